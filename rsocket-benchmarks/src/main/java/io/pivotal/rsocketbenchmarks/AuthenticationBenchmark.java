@@ -0,0 +1,70 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-response over TCP with the credentials sent on every request as well as at setup, so the server
+ * authenticates each request. Compare a run with the server's authentication cache (cacheSize=10000) to one
+ * without it (cacheSize=0), where every request goes through the password encoder. The request is the same every
+ * time: credentials are checked before the route's response cache, and a new request each time would add its churn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    private static final UsernamePasswordMetadata CREDENTIALS = new UsernamePasswordMetadata("user", "pass");
+    private static final MimeType SIMPLE_AUTH = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+    private static final Message REQUEST = new Message("Client", "Request", 0);
+
+    @Param({"10000", "0"})
+    public long cacheSize;
+
+    private BenchmarkServer server;
+    private RSocketRequester requester;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = new BenchmarkServer("rsocket.security.authentication-cache.maximum-size=" + cacheSize);
+        requester = server.connect(Transport.TCP, MimeTypeUtils.parseMimeType("application/x.rsocket-demo.binary"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requester.rsocket().dispose();
+        server.close();
+    }
+
+    @Benchmark
+    public Message requestResponseWithCredentials() {
+        return requester
+                .route("request-response")
+                .metadata(CREDENTIALS, SIMPLE_AUTH)
+                .data(REQUEST)
+                .retrieveMono(Message.class)
+                .block();
+    }
+}
@@ -0,0 +1,22 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.pivotal.rsocketserver.data.Message;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Answers the server's calls back to a connected client, without doing any work that would show up in the results.
+ */
+class BenchmarkClientHandler {
+
+    @MessageMapping("client-status")
+    public Flux<String> statusUpdate(String status) {
+        return Flux.never();
+    }
+
+    @MessageMapping("broadcast")
+    public Mono<Void> broadcast(Flux<Message> messages) {
+        return messages.then();
+    }
+}
@@ -0,0 +1,121 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.pivotal.rsocketserver.RsocketServerApplication;
+import io.pivotal.rsocketserver.transport.AdditionalTransports;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Runs the real rsocket-server application in-process. Spring Boot starts the TCP server, and the server's
+ * 'rsocket.transport' settings have it listen on a WebSocket and a local transport too.
+ */
+public class BenchmarkServer implements Closeable {
+
+    private static final String LOCAL_NAME = "rsocket-benchmarks";
+    private static final MimeType SIMPLE_AUTH = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+
+    private final ConfigurableApplicationContext context;
+    private final RSocketStrategies strategies;
+    private final int tcpPort;
+    private final InetSocketAddress websocket;
+
+    /**
+     * @param properties extra server properties, e.g. "rsocket.broadcast.buffer-size=64"
+     */
+    public BenchmarkServer(String... properties) {
+        this.context = new SpringApplicationBuilder(RsocketServerApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .properties(
+                        // The controller logs every message it handles; that would be the benchmark's bottleneck
+                        "logging.level.io.pivotal.rsocketserver=ERROR",
+                        // rsocket-core 1.0 drops an error into this logger every time a channel is cancelled
+                        "logging.level.reactor.core.publisher.Operators=OFF")
+                // Arguments take precedence over the server's application.properties
+                .run(arguments(properties));
+        this.strategies = context.getBean(RSocketStrategies.class);
+        this.tcpPort = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.rsocket.server.port"));
+        this.websocket = context.getBean(AdditionalTransports.class).getWebsocketAddress();
+    }
+
+    private static String[] arguments(String... properties) {
+        String[] transports = {
+                "--spring.rsocket.server.port=0",
+                "--rsocket.transport.websocket.enabled=true",
+                "--rsocket.transport.websocket.address=localhost",
+                "--rsocket.transport.websocket.port=0",
+                "--rsocket.transport.local.enabled=true",
+                "--rsocket.transport.local.name=" + LOCAL_NAME};
+        String[] arguments = Arrays.copyOf(transports, transports.length + properties.length);
+        for (int i = 0; i < properties.length; i++) {
+            arguments[transports.length + i] = "--" + properties[i];
+        }
+        return arguments;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Log in the way the shell client does, answering the server's calls back with {@link BenchmarkClientHandler}.
+     *
+     * @param transport
+     * @param dataMimeType
+     * @return RSocketRequester
+     */
+    public RSocketRequester connect(Transport transport, MimeType dataMimeType) {
+        SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new BenchmarkClientHandler());
+
+        return RSocketRequester.builder()
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata("user", "pass"), SIMPLE_AUTH)
+                .dataMimeType(dataMimeType)
+                .rsocketStrategies(strategies.mutate()
+                        .encoder(new SimpleAuthenticationEncoder())
+                        .encoder(new DurationEncoder())
+                        .build())
+                .rsocketConnector(connector -> connector.acceptor(responder))
+                .connect(clientTransport(transport))
+                .block();
+    }
+
+    private ClientTransport clientTransport(Transport transport) {
+        switch (transport) {
+            case TCP:
+                return TcpClientTransport.create("localhost", tcpPort);
+            case WEBSOCKET:
+                return WebsocketClientTransport.create(websocket);
+            case LOCAL:
+                return LocalClientTransport.create(LOCAL_NAME);
+            default:
+                throw new IllegalArgumentException("Unknown transport " + transport);
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,78 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.pivotal.rsocketserver.blocking.BlockingExecutor;
+import io.pivotal.rsocketserver.blocking.BlockingProperties;
+import io.pivotal.rsocketserver.data.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many callers at once on a @Blocking route that blocks for 10ms, as a JDBC call might, with the server calling
+ * blocking handlers on virtual threads or on a bounded elastic pool (rsocket.blocking.executor). Each operation
+ * is one of those calls. Virtual threads need the benchmark to run on Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingBenchmark {
+
+    private static final int CALLS = 1000;
+    private static final long BLOCK_MILLIS = 10;
+
+    @Param({"VIRTUAL", "BOUNDED_ELASTIC"})
+    public BlockingProperties.ExecutorType executor;
+
+    private BenchmarkServer server;
+    private RSocketRequester requester;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = new BenchmarkServer("rsocket.blocking.executor=" + executor);
+        BlockingProperties.ExecutorType used = server.getBean(BlockingExecutor.class).getType();
+        if (used != executor) {
+            server.close();
+            throw new IllegalStateException("The server is using " + used + " threads, not " + executor
+                    + ". Run the benchmark on Java 21 or later for virtual threads.");
+        }
+        requester = server.connect(Transport.TCP, MimeTypeUtils.parseMimeType("application/x.rsocket-demo.binary"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requester.rsocket().dispose();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CALLS)
+    public void blocking(Blackhole blackhole) {
+        Flux.range(0, CALLS)
+                .flatMap(index -> requester
+                        .route("blocking." + BLOCK_MILLIS)
+                        .data(new Message("Client", "Request", index))
+                        .retrieveMono(Message.class), CALLS)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+}
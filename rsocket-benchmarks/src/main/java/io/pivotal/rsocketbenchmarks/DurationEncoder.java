@@ -0,0 +1,48 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.pivotal.rsocketserver.codec.BinaryFormat;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The server only decodes Durations, so the benchmark client brings its own encoder for the channel settings,
+ * as the shell client does: a version byte, seconds as a long, then nanos as an int.
+ */
+class DurationEncoder extends AbstractEncoder<Duration> {
+
+    private static final int SIZE = Byte.BYTES + Long.BYTES + Integer.BYTES;
+
+    DurationEncoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return Duration.class.equals(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Duration> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(duration -> encodeValue(duration, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Duration duration, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(SIZE);
+        buffer.asByteBuffer(0, SIZE)
+                .put((byte) 1)
+                .putLong(duration.getSeconds())
+                .putInt(duration.getNano());
+        return buffer.writePosition(SIZE);
+    }
+}
@@ -0,0 +1,124 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.pivotal.rsocketserver.data.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One operation per interaction model, each against the real RSocketController over every transport.
+ * Throughput mode gives operations per second; sample time mode gives the latency distribution
+ * (p50, p99, p99.9...). Run with the gc profiler (the default in {@link RSocketBenchmarks}) for allocations
+ * per operation: client and server share the JVM, so both sides are counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InteractionBenchmark {
+
+    /**
+     * The same request every time, so that after the first one the route answers from its response cache.
+     */
+    private static final Message REQUEST = new Message("Client", "Request", 0);
+    /**
+     * The 'stream.{rate}.{batch}.{count}' route with no rate limit, so an operation is one streamed message.
+     */
+    private static final int STREAM_COUNT_MESSAGES = 1000;
+    private static final int CHANNEL_MESSAGES = 10;
+    private static final Duration CHANNEL_INTERVAL = Duration.ofMillis(1);
+
+    @Param({"TCP", "WEBSOCKET", "LOCAL"})
+    public Transport transport;
+
+    @Param({"application/x.rsocket-demo.binary"})
+    public String dataMimeType;
+
+    private BenchmarkServer server;
+    private RSocketRequester requester;
+    private long index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = new BenchmarkServer();
+        requester = server.connect(transport, MimeTypeUtils.parseMimeType(dataMimeType));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        requester.rsocket().dispose();
+        server.close();
+    }
+
+    @Benchmark
+    public Message requestResponse() {
+        return requester
+                .route("request-response")
+                .data(REQUEST)
+                .retrieveMono(Message.class)
+                .block();
+    }
+
+    /**
+     * A new request every time, so every one misses the response cache, and once it is full evicts an entry.
+     */
+    @Benchmark
+    public Message requestResponseMiss() {
+        return requester
+                .route("request-response")
+                .data(new Message("Client", "Request", index++))
+                .retrieveMono(Message.class)
+                .block();
+    }
+
+    @Benchmark
+    public void fireAndForget() {
+        requester
+                .route("fire-and-forget")
+                .data(new Message("Client", "Fire-And-Forget", index++))
+                .send()
+                .block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAM_COUNT_MESSAGES)
+    public void streamCount(Blackhole blackhole) {
+        requester
+                .route("stream.0.1." + STREAM_COUNT_MESSAGES)
+                .data(new Message("Client", "Stream", index++))
+                .retrieveFlux(Message.class)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    @Benchmark
+    public void channel(Blackhole blackhole) {
+        requester
+                .route("channel")
+                .data(Flux.just(CHANNEL_INTERVAL), Duration.class)
+                .retrieveFlux(Message.class)
+                .take(CHANNEL_MESSAGES)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+}
@@ -0,0 +1,102 @@
+package io.pivotal.rsocketbenchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.pivotal.rsocketserver.ticks.SharedTicks;
+import io.pivotal.rsocketserver.ticks.TickProperties;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The cost of keeping many interval streams ticking: a Flux.interval per stream, as the controller used to do,
+ * against the {@link SharedTicks} timer shared by every stream on the same period.
+ * Each operation just waits while the streams tick, so the numbers to read are the aux counters:
+ * cpuNanos is the CPU time the whole JVM used per second (1e9 is one core kept busy), and ticks is the
+ * number of ticks delivered per second, which should be the same for both sources.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TickBenchmark {
+
+    private static final Duration PERIOD = Duration.ofMillis(100);
+    private static final long WINDOW_MILLIS = 100;
+
+    public enum Source {
+        INTERVAL, SHARED
+    }
+
+    @Param({"1000", "10000", "50000"})
+    public int streams;
+
+    @Param({"INTERVAL", "SHARED"})
+    public Source source;
+
+    private final LongAdder delivered = new LongAdder();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+    private SharedTicks ticks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ticks = new SharedTicks(new TickProperties(), new SimpleMeterRegistry());
+        for (int i = 0; i < streams; i++) {
+            Flux<Long> interval = source == Source.SHARED ? ticks.interval(PERIOD) : Flux.interval(PERIOD);
+            subscriptions.add(interval.subscribe(index -> delivered.increment()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        subscriptions.dispose();
+        ticks.shutdown();
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Usage {
+        public long cpuNanos;
+        public long ticks;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            cpuNanos = 0;
+            ticks = 0;
+        }
+    }
+
+    @Benchmark
+    public void ticking(Usage usage) throws InterruptedException {
+        long cpu = processCpuTime();
+        long before = delivered.sum();
+        Thread.sleep(WINDOW_MILLIS);
+        usage.cpuNanos += processCpuTime() - cpu;
+        usage.ticks += delivered.sum() - before;
+    }
+
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+}
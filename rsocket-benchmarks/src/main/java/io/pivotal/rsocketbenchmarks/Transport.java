@@ -0,0 +1,8 @@
+package io.pivotal.rsocketbenchmarks;
+
+/**
+ * The transports the benchmark server listens on.
+ */
+public enum Transport {
+    TCP, WEBSOCKET, LOCAL
+}
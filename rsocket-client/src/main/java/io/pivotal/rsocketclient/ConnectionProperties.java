@@ -0,0 +1,154 @@
+package io.pivotal.rsocketclient;
+
+import io.pivotal.rsocketclient.balancer.LoadBalancedRSocket;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which servers the shell client connects to, and how it gets a connection back when the network drops it.
+ * Resumption needs the server's 'resumption' profile (see application-resumption.properties), and leases its 'lease'
+ * profile (see application-lease.properties).
+ */
+@Data
+@ConfigurationProperties("rsocket.client")
+public class ConnectionProperties {
+
+    /**
+     * The servers to spread requests across, each as host:port (see {@link Transport} for the other forms).
+     */
+    private List<String> targets = new ArrayList<>(Collections.singletonList("localhost:7000"));
+
+    /**
+     * How to reach the servers, unless the 'login' command says otherwise.
+     */
+    private Transport transport = Transport.TCP;
+
+    /**
+     * How to choose a server for each request (see {@link LoadBalancedRSocket}).
+     */
+    private LoadBalancedRSocket.Strategy balance = LoadBalancedRSocket.Strategy.LEAST_LOADED;
+
+    private final Pool pool = new Pool();
+
+    private final Resume resume = new Resume();
+
+    private final Lease lease = new Lease();
+
+    private final Reconnect reconnect = new Reconnect();
+
+    /**
+     * The transports the client can connect over. The server listens on TCP, and on the others when they are enabled
+     * by its 'rsocket.transport' settings.
+     */
+    public enum Transport {
+        /**
+         * A target is host:port.
+         */
+        TCP {
+            @Override
+            public ClientTransport create(String target) {
+                int colon = target.lastIndexOf(':');
+                return TcpClientTransport.create(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1)));
+            }
+        },
+        /**
+         * A target is host:port, or a ws:// or wss:// URI for a server behind a proxy or on a path.
+         */
+        WEBSOCKET {
+            @Override
+            public ClientTransport create(String target) {
+                return WebsocketClientTransport.create(URI.create(target.contains("://") ? target : "ws://" + target));
+            }
+        },
+        /**
+         * A target is the name of a server running in the same JVM.
+         */
+        LOCAL {
+            @Override
+            public ClientTransport create(String target) {
+                return LocalClientTransport.create(target);
+            }
+        };
+
+        /**
+         * @param target a server, in the form this transport expects
+         * @return a transport that makes a new connection to it each time it connects
+         */
+        public abstract ClientTransport create(String target);
+
+        /**
+         * @param name tcp, websocket or local
+         */
+        public static Transport of(String name) {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * The connections kept to each server. Requests are multiplexed over them, each going to the connection with the
+     * fewest streams, so that one busy TCP connection doesn't hold up the rest.
+     */
+    @Data
+    public static class Pool {
+
+        private int size = 2;
+
+        /**
+         * How many streams (requests in progress) each connection can have before requests queue for one to end.
+         * 0 for no limit.
+         */
+        private int maxStreams = 256;
+    }
+
+    @Data
+    public static class Resume {
+
+        /**
+         * Resume the session after a dropped connection, so that requests in flight carry on where they left off.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long to keep trying to resume, before giving up and reconnecting with a new session.
+         * Should be no longer than the server's 'rsocket.resume.session-duration'.
+         */
+        private Duration sessionDuration = Duration.ofMinutes(2);
+    }
+
+    @Data
+    public static class Lease {
+
+        /**
+         * Only send the server the requests it has leased the connection. Needs the server's 'lease' profile.
+         */
+        private boolean enabled = false;
+    }
+
+    /**
+     * The backoff between attempts to resume, reconnect, or start a stream or channel again. Each wait is about twice
+     * the last, up to the maximum, varied by the jitter so that clients dropped together don't all come back at the
+     * same moment.
+     */
+    @Data
+    public static class Reconnect {
+
+        private Duration minBackoff = Duration.ofMillis(100);
+
+        private Duration maxBackoff = Duration.ofSeconds(10);
+
+        /**
+         * How much of each wait is random, from 0 (none) to 1.
+         */
+        private double jitter = 0.5;
+    }
+}
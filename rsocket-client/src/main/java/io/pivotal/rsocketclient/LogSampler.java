@@ -0,0 +1,29 @@
+package io.pivotal.rsocketclient;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs 1 in every N received messages, so that fast streams don't spend their time writing to the console.
+ * N can be changed at any time with the 'log-every' shell command.
+ */
+class LogSampler {
+
+    private final AtomicLong messages = new AtomicLong();
+    private volatile int every;
+
+    LogSampler(int every) {
+        setEvery(every);
+    }
+
+    boolean sample() {
+        return messages.getAndIncrement() % every == 0;
+    }
+
+    int getEvery() {
+        return every;
+    }
+
+    void setEvery(int every) {
+        this.every = Math.max(1, every);
+    }
+}
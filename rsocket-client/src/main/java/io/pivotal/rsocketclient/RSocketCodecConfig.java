@@ -0,0 +1,25 @@
+package io.pivotal.rsocketclient;
+
+import io.pivotal.rsocketclient.codec.DurationEncoder;
+import io.pivotal.rsocketclient.codec.MessageBatchDecoder;
+import io.pivotal.rsocketclient.codec.MessageBatchEncoder;
+import io.pivotal.rsocketclient.codec.MessageDecoder;
+import io.pivotal.rsocketclient.codec.MessageEncoder;
+import org.springframework.boot.rsocket.messaging.RSocketStrategiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Register the hand-written binary codecs alongside the CBOR and JSON codecs Spring Boot provides.
+ * They are used when 'rsocket.client.data-mime-type' is 'application/x.rsocket-demo.binary'.
+ */
+@Configuration
+public class RSocketCodecConfig {
+
+    @Bean
+    RSocketStrategiesCustomizer binaryCodecs() {
+        return strategies -> strategies
+                .encoder(new MessageEncoder(), new MessageBatchEncoder(), new DurationEncoder())
+                .decoder(new MessageDecoder(), new MessageBatchDecoder());
+    }
+}
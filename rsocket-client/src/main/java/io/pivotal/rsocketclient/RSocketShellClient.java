@@ -2,11 +2,26 @@ package io.pivotal.rsocketclient;
 
 
 import io.pivotal.rsocketclient.data.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketclient.balancer.LoadBalancedRSocket;
+import io.pivotal.rsocketclient.balancer.PoolMetrics;
+import io.pivotal.rsocketclient.load.Interaction;
+import io.pivotal.rsocketclient.load.LoadGenerator;
+import io.pivotal.rsocketclient.load.LoadSettings;
+import io.pivotal.rsocketclient.load.LoadSummary;
+import io.rsocket.RSocket;
 import io.rsocket.SocketAcceptor;
+import io.rsocket.core.Resume;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.Leases;
 import io.rsocket.metadata.WellKnownMimeType;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.messaging.rsocket.RSocketStrategies;
@@ -15,16 +30,37 @@ import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder
 import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
 
 import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Shell commands for each of the RSocket interaction models.
+ * Requests are spread across the servers in 'rsocket.client.targets' (see {@link LoadBalancedRSocket}). A server whose
+ * connection drops is left out while the client reconnects to it, with a jittered exponential backoff
+ * (see {@link ConnectionProperties}), and a stream or channel it was serving starts again on another server.
+ * With 'rsocket.client.resume.enabled' the client resumes its session with the server instead, so the stream or channel
+ * carries on from where it was; it only reconnects with a new session when the session can't be resumed.
+ * With 'rsocket.client.lease.enabled' the client only sends a server the requests the server has leased it, and sends
+ * them to another server, or fails them straight away, when it has no lease.
+ */
 @Slf4j
 @ShellComponent
 public class RSocketShellClient {
@@ -33,41 +69,116 @@ public class RSocketShellClient {
     private static final String REQUEST = "Request";
     private static final String FIRE_AND_FORGET = "Fire-And-Forget";
     private static final String STREAM = "Stream";
+    private static final String BROADCAST = "Broadcast";
     private static final String CLIENT_ID = UUID.randomUUID().toString();
     private static final MimeType SIMPLE_AUTH = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+    // How long login waits for a connection, before leaving the client to carry on trying in the background
+    private static final Duration LOGIN_TIMEOUT = Duration.ofSeconds(10);
+    private static final DateTimeFormatter SUMMARY_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // The client leaves it to the server to limit its own requests, renewing a lease for all it wants well before expiry
+    private static final Duration SERVER_LEASE_RENEWAL = Duration.ofSeconds(10);
+    private static final int SERVER_LEASE_TTL_MILLIS = 30_000;
+    private static final ParameterizedTypeReference<List<Message>> MESSAGE_BATCH = new ParameterizedTypeReference<List<Message>>() { };
+    private static final MimeType COMPOSITE_METADATA = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString());
     private static Disposable disposable;
 
     private RSocketRequester rsocketRequester;
-    private RSocketRequester.Builder rsocketRequesterBuilder;
+    // A new builder for each login: a builder keeps adding to the setup it was given before
+    private ObjectFactory<RSocketRequester.Builder> rsocketRequesterBuilder;
     private RSocketStrategies rsocketStrategies;
+    private MimeType dataMimeType;
+    private LogSampler logs;
+    private ConnectionProperties connectionProperties;
+    private MeterRegistry registry;
 
     @Autowired
-    public RSocketShellClient(RSocketRequester.Builder builder,
-                              @Qualifier("rSocketStrategies") RSocketStrategies strategies) {
+    public RSocketShellClient(ObjectFactory<RSocketRequester.Builder> builder,
+                              @Qualifier("rSocketStrategies") RSocketStrategies strategies,
+                              @Value("${rsocket.client.data-mime-type}") MimeType dataMimeType,
+                              @Value("${rsocket.client.log-every:1}") int logEvery,
+                              ConnectionProperties connectionProperties,
+                              MeterRegistry registry) {
         this.rsocketRequesterBuilder = builder;
         this.rsocketStrategies = strategies;
+        this.dataMimeType = dataMimeType;
+        this.logs = new LogSampler(logEvery);
+        this.connectionProperties = connectionProperties;
+        this.registry = registry;
     }
 
     @ShellMethod("Login with your username and password.")
-    public void login(String username, String password) {
-        log.info("Connecting using client ID: {} and username: {}", CLIENT_ID, username);
-        SocketAcceptor responder = RSocketMessageHandler.responder(rsocketStrategies, new ClientHandler());
+    public void login(String username, String password,
+                      @ShellOption(defaultValue = ShellOption.NULL, help = "tcp, websocket or local. Defaults to rsocket.client.transport") String transport) {
+        // Logging in again replaces the connections, and the stream or channel running on the old ones
+        if (null != this.rsocketRequester && !this.rsocketRequester.rsocket().isDisposed()) {
+            logout();
+        }
+        ConnectionProperties.Transport over = null != transport
+                ? ConnectionProperties.Transport.of(transport) : connectionProperties.getTransport();
+        log.info("Connecting to {} over {} using client ID: {}, username: {} and data MIME type: {}",
+                connectionProperties.getTargets(), over, CLIENT_ID, username, dataMimeType);
+        SocketAcceptor responder = RSocketMessageHandler.responder(rsocketStrategies, new ClientHandler(logs));
         UsernamePasswordMetadata user = new UsernamePasswordMetadata(username, password);
-        this.rsocketRequester = rsocketRequesterBuilder
+        ConnectionProperties.Resume resume = connectionProperties.getResume();
+        RSocketRequester.Builder builder = rsocketRequesterBuilder.getObject()
                 .setupRoute("shell-client")
                 .setupData(CLIENT_ID)
                 .setupMetadata(user, SIMPLE_AUTH)
-                .rsocketStrategies(builder ->
-                        builder.encoder(new SimpleAuthenticationEncoder()))
-                .rsocketConnector(connector -> connector.acceptor(responder))
-                .connectTcp("localhost", 7000)
+                .dataMimeType(dataMimeType)
+                .rsocketStrategies(strategies ->
+                        strategies.encoder(new SimpleAuthenticationEncoder()))
+                .rsocketConnector(connector -> {
+                    connector.acceptor(responder);
+                    if (resume.isEnabled()) {
+                        connector.resume(new Resume()
+                                .sessionDuration(resume.getSessionDuration())
+                                .retry(backoff("Resuming the session")));
+                    }
+                    if (connectionProperties.getLease().isEnabled()) {
+                        connector.lease(() -> Leases.create().sender(stats -> Flux
+                                .interval(Duration.ZERO, SERVER_LEASE_RENEWAL)
+                                .map(renewal -> Lease.create(SERVER_LEASE_TTL_MILLIS, Integer.MAX_VALUE))));
+                    }
+                });
+
+        // Each subscription makes a new connection, with the same settings and credentials
+        Map<String, Mono<RSocket>> targets = new LinkedHashMap<>();
+        for (String target : connectionProperties.getTargets()) {
+            targets.put(target, builder
+                    .connect(over.create(target))
+                    .map(RSocketRequester::rsocket));
+        }
+        ConnectionProperties.Pool pool = connectionProperties.getPool();
+        LoadBalancedRSocket rsocket = new LoadBalancedRSocket(targets, connectionProperties.getBalance(),
+                pool.getSize(), pool.getMaxStreams(), backoff("Connecting"), registry);
+        this.rsocketRequester = RSocketRequester.wrap(rsocket, dataMimeType, COMPOSITE_METADATA, rsocketStrategies);
+        // Fails, rather than trying again and again, if the servers refuse the credentials
+        rsocket.connected()
+                .timeout(LOGIN_TIMEOUT, Mono.fromRunnable(() -> log.warn("No connection yet. Still trying...")))
+                .doOnError(error -> rsocket.dispose())
                 .block();
+    }
 
-        this.rsocketRequester.rsocket()
-                .onClose()
-                .doOnError(error -> log.warn("Connection CLOSED"))
-                .doFinally(consumer -> log.info("Client DISCONNECTED"))
-                .subscribe();
+    /**
+     * @param attempt what is being tried, for logging
+     */
+    private RetryBackoffSpec backoff(String attempt) {
+        ConnectionProperties.Reconnect reconnect = connectionProperties.getReconnect();
+        return Retry.backoff(Long.MAX_VALUE, reconnect.getMinBackoff())
+                .maxBackoff(reconnect.getMaxBackoff())
+                .jitter(reconnect.getJitter())
+                .doBeforeRetry(signal -> log.info("{} failed: {}. Trying again (attempt {})...",
+                        attempt, signal.failure(), signal.totalRetries() + 1));
+    }
+
+    /**
+     * Start a stream or channel again when its connection is lost (errors sent by the server end it), with the
+     * backoff starting afresh once it has been running again.
+     */
+    private RetryBackoffSpec restart(String interaction) {
+        return backoff(interaction)
+                .filter(error -> !(error instanceof ApplicationErrorException))
+                .transientErrors(true);
     }
 
     @PreDestroy
@@ -114,21 +225,34 @@ public class RSocketShellClient {
     }
 
     @ShellMethod("Send one request. Many responses (stream) will be printed.")
-    public void stream() {
+    public void stream(@ShellOption(defaultValue = "1", help = "How many streams to run at once") int count) {
         if (userIsLoggedIn()) {
             log.info("\n\n**** Request-Stream\n**** Send one request.\n**** Log responses.\n**** Type 's' to stop.");
-            disposable = this.rsocketRequester
-                    .route("stream")
-                    .data(new Message(CLIENT, STREAM))
-                    .retrieveFlux(Message.class)
-                    .subscribe(message -> log.info("Response: {} \n(Type 's' to stop.)", message));
+            if (count > 1) {
+                log.info("Running {} streams at once, across the connection pool.", count);
+            }
+            disposable = Flux.range(0, count)
+                    .flatMap(stream -> this.rsocketRequester
+                            .route("stream")
+                            .data(new Message(CLIENT, STREAM))
+                            .retrieveFlux(Message.class)
+                            .retryWhen(restart(STREAM)), count)
+                    .subscribe(message -> {
+                        if (logs.sample()) {
+                            log.info("Response: {} \n(Type 's' to stop.)", message);
+                        }
+                    }, error -> log.warn("Stream ended: {}", error.getMessage()));
         }
     }
 
     @ShellMethod("Stream some settings to the server. Stream of responses will be printed.")
-    public void channel() {
+    public void channel(@ShellOption(defaultValue = "0", help = "Messages the server may send in each frame. 0 sends one at a time") int batch,
+                        @ShellOption(defaultValue = "100", help = "The longest the server holds on to a message, to batch it") int millis) {
         if (userIsLoggedIn()) {
             log.info("\n\n***** Channel (bi-directional streams)\n***** Asking for a stream of messages.\n***** Type 's' to stop.\n\n");
+            if (batch > 0) {
+                log.info("The server will send up to {} messages in each frame, at most {}ms late.", batch, millis);
+            }
 
             Mono<Duration> setting1 = Mono.just(Duration.ofSeconds(1));
             Mono<Duration> setting2 = Mono.just(Duration.ofSeconds(3)).delayElement(Duration.ofSeconds(5));
@@ -137,14 +261,81 @@ public class RSocketShellClient {
             Flux<Duration> settings = Flux.concat(setting1, setting2, setting3)
                     .doOnNext(d -> log.info("\nSending setting for a {}-second interval.\n", d.getSeconds()));
 
-            disposable = this.rsocketRequester
+            disposable = retrieveChannel(settings, batch, millis)
+                    .retryWhen(restart("Channel"))
+                    .subscribe(message -> {
+                        if (logs.sample()) {
+                            log.info("Received: {} \n(Type 's' to stop.)", message);
+                        }
+                    }, error -> log.warn("Channel ended: {}", error.getMessage()));
+        }
+    }
+
+    /**
+     * The channel's messages, one at a time whether or not the server batches them.
+     *
+     * @param batch the most messages the server sends in a frame, or 0 to use the unbatched 'channel' route
+     * @param millis the longest the server holds on to a message, to batch it
+     */
+    private Flux<Message> retrieveChannel(Flux<Duration> settings, int batch, int millis) {
+        if (batch <= 0) {
+            return this.rsocketRequester
                     .route("channel")
                     .data(settings)
-                    .retrieveFlux(Message.class)
-                    .subscribe(message -> log.info("Received: {} \n(Type 's' to stop.)", message));
+                    .retrieveFlux(Message.class);
+        }
+        return this.rsocketRequester
+                .route("channel." + batch + "." + millis)
+                .data(settings)
+                .retrieveFlux(MESSAGE_BATCH)
+                .flatMapIterable(messages -> messages);
+    }
+
+    @ShellMethod("Send one message to the server. The server will send it on to every connected client.")
+    public void broadcast() {
+        if (userIsLoggedIn()) {
+            log.info("\nBroadcast. Sending one message. Every connected client will log it...");
+            this.rsocketRequester
+                    .route("broadcast")
+                    .data(new Message(CLIENT, BROADCAST))
+                    .send()
+                    .block();
         }
     }
 
+    @ShellMethod("Show the connections to each server, the streams on each connection, and the requests queued.")
+    public void pool() {
+        log.info("\n{}", PoolMetrics.report(registry));
+    }
+
+    @ShellMethod("Send requests for a while, at a fixed rate or as fast as possible. Log the throughput and latency "
+            + "every second, then write a summary to a file.")
+    public void load(@ShellOption(defaultValue = "request-response",
+                             help = "request-response, fire-and-forget, stream or channel") String interaction,
+                     @ShellOption(defaultValue = "0", help = "Requests to start each second. 0 is as fast as possible") int rate,
+                     @ShellOption(defaultValue = "64", help = "The most requests in progress at once") int concurrency,
+                     @ShellOption(defaultValue = "30", help = "How long to send requests for") int seconds,
+                     @ShellOption(defaultValue = "10", help = "Messages to receive from each stream or channel") int messages,
+                     @ShellOption(defaultValue = ShellOption.NULL, help = "The summary file") String output) throws IOException {
+        if (userIsLoggedIn()) {
+            LoadSettings settings = new LoadSettings(Interaction.of(interaction), rate, concurrency,
+                    Duration.ofSeconds(seconds), messages);
+            log.info("\nSending {} requests for {}s, {}, at most {} at once...", settings.getInteraction(), seconds,
+                    rate > 0 ? rate + " a second" : "as fast as possible", concurrency);
+            LoadSummary summary = new LoadGenerator(this.rsocketRequester, settings).run();
+            Path file = Paths.get(null != output ? output
+                    : "load-" + settings.getInteraction() + "-" + LocalDateTime.now().format(SUMMARY_TIME) + ".txt");
+            summary.write(file);
+            log.info("\n{}\nSummary written to {}", summary, file.toAbsolutePath());
+        }
+    }
+
+    @ShellMethod("Log only 1 in every N streamed or broadcast messages. 1 logs them all.")
+    public void logEvery(int n) {
+        logs.setEvery(n);
+        log.info("Logging 1 in every {} messages.", logs.getEvery());
+    }
+
     @ShellMethod("Stops Streams or Channels.")
     public void s() {
         if (userIsLoggedIn() && null != disposable) {
@@ -158,9 +349,34 @@ public class RSocketShellClient {
 @Slf4j
 class ClientHandler {
 
+    // How many broadcast messages to ask the server for at a time
+    private static final int BROADCAST_DEMAND = 32;
+
+    private final LogSampler logs;
+
+    ClientHandler() {
+        this(new LogSampler(1));
+    }
+
+    ClientHandler(LogSampler logs) {
+        this.logs = logs;
+    }
+
     @MessageMapping("client-status")
     public Flux<String> statusUpdate(String status) {
         log.info("Connection {}", status);
         return Flux.interval(Duration.ofSeconds(5)).map(index -> String.valueOf(Runtime.getRuntime().freeMemory()));
     }
+
+    @MessageMapping("broadcast")
+    public Mono<Void> broadcast(Flux<Message> messages) {
+        return messages
+                .limitRate(BROADCAST_DEMAND)
+                .doOnNext(message -> {
+                    if (logs.sample()) {
+                        log.info("Broadcast: {}", message);
+                    }
+                })
+                .then();
+    }
 }
@@ -0,0 +1,176 @@
+package io.pivotal.rsocketclient.balancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads requests across several servers, each of which has its own pool of connections (see {@link Node}).
+ * Servers without a connection are left out until they have one again, so requests only fail when none of them has.
+ * Servers that give out leases are also left out while they haven't leased any of their connections a request,
+ * unless none of them has, in which case the request fails without being sent.
+ * <ul>
+ * <li>LEAST_LOADED: picks the less loaded of two servers chosen at random, where load is the average latency of the
+ * server, weighted by the requests waiting for it. Slow servers get fewer requests, without all of them going to the
+ * single fastest one.</li>
+ * <li>ROUND_ROBIN: takes turns.</li>
+ * </ul>
+ * Each request goes to one server: a stream or channel carries on with the server it started with.
+ */
+public class LoadBalancedRSocket implements RSocket {
+
+    public enum Strategy {
+        LEAST_LOADED, ROUND_ROBIN
+    }
+
+    private final List<Node> nodes;
+    private final Strategy strategy;
+    private final AtomicInteger turn = new AtomicInteger();
+    private final MonoProcessor<Void> onClose = MonoProcessor.create();
+
+    /**
+     * @param targets    how to connect to each server, by name
+     * @param strategy   how to choose a server for each request
+     * @param pool       how many connections to keep to each server
+     * @param maxStreams how many streams each connection can have before requests queue, or 0 for no limit
+     * @param reconnect  the backoff between failed attempts to connect to a server
+     * @param registry   where to register each server's pool meters (see {@link PoolMetrics})
+     */
+    public LoadBalancedRSocket(Map<String, Mono<RSocket>> targets, Strategy strategy, int pool, int maxStreams,
+                               RetryBackoffSpec reconnect, MeterRegistry registry) {
+        this.strategy = strategy;
+        this.nodes = targets.entrySet().stream()
+                .map(target -> new Node(target.getKey(), target.getValue(), reconnect, pool, maxStreams, registry))
+                .collect(Collectors.toList());
+        this.nodes.forEach(Node::start);
+    }
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+        return request(payload, rsocket -> rsocket.fireAndForget(payload)).then();
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+        return request(payload, rsocket -> rsocket.requestResponse(payload)).next();
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+        return request(payload, rsocket -> rsocket.requestStream(payload));
+    }
+
+    @Override
+    public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+        return request(null, rsocket -> rsocket.requestChannel(payloads));
+    }
+
+    @Override
+    public Mono<Void> metadataPush(Payload payload) {
+        return request(payload, rsocket -> rsocket.metadataPush(payload)).then();
+    }
+
+    private <T> Flux<T> request(Payload payload, Function<RSocket, Publisher<T>> request) {
+        return Flux.defer(() -> {
+            Node node = select();
+            if (null == node) {
+                if (null != payload) {
+                    payload.release();
+                }
+                return Flux.error(noServer());
+            }
+            return node.request(payload, request);
+        });
+    }
+
+    /**
+     * @return completes once there is a connection to one of the servers, or fails if every server refused the setup
+     */
+    public Mono<Void> connected() {
+        return Flux.fromIterable(nodes)
+                .flatMapDelayError(node -> node.connected().thenReturn(node), nodes.size(), 1)
+                .next()
+                .then();
+    }
+
+    /**
+     * @return a server with a connection that can take a request now, or failing that any server with a connection, or
+     * null if none of them has one
+     */
+    Node select() {
+        List<Node> available = available(Node::isAvailable);
+        if (available.isEmpty()) {
+            available = available(Node::isConnected);
+        }
+        if (available.isEmpty()) {
+            return null;
+        }
+        if (strategy == Strategy.ROUND_ROBIN || available.size() == 1) {
+            return available.get(Math.floorMod(turn.getAndIncrement(), available.size()));
+        }
+        // The power of two choices: nearly as good as comparing them all, and no herd on the least loaded
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(available.size());
+        int second = random.nextInt(available.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Node a = available.get(first);
+        Node b = available.get(second);
+        return a.load() <= b.load() ? a : b;
+    }
+
+    private List<Node> available(Predicate<Node> condition) {
+        List<Node> available = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            if (condition.test(node)) {
+                available.add(node);
+            }
+        }
+        return available;
+    }
+
+    List<Node> nodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    private IllegalStateException noServer() {
+        return new IllegalStateException("No connection to any of " + nodes);
+    }
+
+    @Override
+    public double availability() {
+        return isDisposed() ? 0.0 : nodes.stream().mapToDouble(node -> node.isAvailable() ? 1.0 : 0.0).max().orElse(0.0);
+    }
+
+    @Override
+    public void dispose() {
+        nodes.forEach(Node::dispose);
+        onClose.onComplete();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return onClose.isTerminated();
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+        return onClose;
+    }
+}
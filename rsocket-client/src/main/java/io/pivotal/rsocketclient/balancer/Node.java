@@ -0,0 +1,476 @@
+package io.pivotal.rsocketclient.balancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.ReferenceCountUtil;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.SetupException;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.MonoSink;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * One server the {@link LoadBalancedRSocket} can send requests to.
+ * It keeps a pool of connections to the server, making a new one in the background whenever one is lost, and is left
+ * out of the selection while it has none, or while none of them has a lease from a server that gives them out (see
+ * {@link LoadBalancedRSocket}). A connection the server closes straight away counts as a failed attempt, so making
+ * it again backs off. A server that refuses the setup, such as for the wrong credentials, stops the node: trying again
+ * with the same setup would only be refused again. Each request goes to the connection with the fewest streams
+ * (requests in progress) so that one busy TCP connection doesn't hold up the rest. When every connection has its maximum number of
+ * streams, requests queue for the next one to end.
+ * It also keeps the numbers the selection is weighted by: the requests waiting for the server, and a moving average
+ * of how long the server takes to answer. The pool is metered (see {@link PoolMetrics}).
+ */
+@Slf4j
+class Node implements Disposable {
+
+    // How much each new latency counts towards the average
+    private static final double WEIGHT = 0.2;
+    // The latency assumed for a server that hasn't answered yet
+    private static final double INITIAL_LATENCY = Duration.ofMillis(1).toNanos();
+    // How long a new connection must stay open to count as made. The server refuses a setup well within it
+    private static final Duration ESTABLISHED = Duration.ofSeconds(1);
+
+    private final String target;
+    private final Mono<RSocket> connect;
+    private final RetryBackoffSpec reconnect;
+    private final int maxStreams;
+    private final List<Connection> connections = new ArrayList<>();
+    // Guarded by this
+    private final Queue<Waiter> queue = new ArrayDeque<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final MeterRegistry registry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Timer wait;
+    private final MonoProcessor<Void> connected = MonoProcessor.create();
+
+    private volatile double latency = INITIAL_LATENCY;
+    private volatile boolean disposed;
+
+    /**
+     * @param target     the server's name, for logging and metrics
+     * @param connect    makes a new connection to the server each time it is subscribed to
+     * @param reconnect  the backoff between failed attempts to connect
+     * @param pool       how many connections to keep
+     * @param maxStreams how many streams each connection can have before requests queue, or 0 for no limit
+     * @param registry   where to register the pool's meters
+     */
+    Node(String target, Mono<RSocket> connect, RetryBackoffSpec reconnect, int pool, int maxStreams, MeterRegistry registry) {
+        this.target = target;
+        this.connect = connect;
+        this.reconnect = reconnect.filter(error -> !(error instanceof SetupException));
+        this.maxStreams = maxStreams;
+        this.registry = registry;
+        for (int i = 0; i < Math.max(1, pool); i++) {
+            Connection connection = new Connection(i);
+            connections.add(connection);
+            meters.add(Gauge.builder(PoolMetrics.STREAMS, connection, Connection::streams)
+                    .tag(PoolMetrics.TARGET, target)
+                    .tag(PoolMetrics.CONNECTION, String.valueOf(i))
+                    .description("Streams in progress on the connection")
+                    .register(registry));
+        }
+        meters.add(Gauge.builder(PoolMetrics.CONNECTIONS, this, Node::openConnections)
+                .tag(PoolMetrics.TARGET, target)
+                .description("Connections to the server")
+                .register(registry));
+        meters.add(Gauge.builder(PoolMetrics.QUEUED, this, Node::queued)
+                .tag(PoolMetrics.TARGET, target)
+                .description("Requests waiting for a connection to have room for another stream")
+                .register(registry));
+        wait = Timer.builder(PoolMetrics.WAIT)
+                .tag(PoolMetrics.TARGET, target)
+                .description("How long requests waited for a connection")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        meters.add(wait);
+    }
+
+    void start() {
+        connections.forEach(Connection::start);
+    }
+
+    /**
+     * @return completes once the node has had its first connection, or fails if the server refused the setup
+     */
+    Mono<Void> connected() {
+        return connected;
+    }
+
+    /**
+     * @return whether a connection can take a request now: it is open, and has a lease if the server gives them out
+     */
+    boolean isAvailable() {
+        for (Connection connection : connections) {
+            if (connection.hasLease()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isConnected() {
+        for (Connection connection : connections) {
+            if (connection.isConnected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the latency expected for one more request: the average latency, for each request waiting and the new one
+     */
+    double load() {
+        return latency * (pending.get() + 1);
+    }
+
+    private int openConnections() {
+        int connected = 0;
+        for (Connection connection : connections) {
+            if (connection.isConnected()) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    private synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Make the request on one of the connections, once it has room for another stream. The request counts as pending
+     * until it ends, and its latency is the time to its first response (or its completion, if there are none).
+     *
+     * @param payload released if the request is never made, or null
+     * @param request makes the request on the connection
+     */
+    <T> Flux<T> request(Payload payload, Function<RSocket, Publisher<T>> request) {
+        return Flux.defer(() -> {
+            long queued = System.nanoTime();
+            AtomicBoolean sent = new AtomicBoolean();
+            pending.incrementAndGet();
+            return acquire()
+                    .flatMapMany(waiter -> {
+                        Connection connection = waiter.take();
+                        if (null == connection) {
+                            return Flux.empty();
+                        }
+                        wait.record(System.nanoTime() - queued, TimeUnit.NANOSECONDS);
+                        RSocket rsocket = connection.rsocket;
+                        if (null == rsocket) {
+                            release(connection);
+                            return Flux.error(noConnection());
+                        }
+                        sent.set(true);
+                        return track(Flux.from(request.apply(rsocket)))
+                                .doFinally(signal -> release(connection));
+                    })
+                    .doFinally(signal -> {
+                        pending.decrementAndGet();
+                        if (null != payload && !sent.get()) {
+                            ReferenceCountUtil.safeRelease(payload);
+                        }
+                    });
+        });
+    }
+
+    private <T> Flux<T> track(Flux<T> request) {
+        long start = System.nanoTime();
+        AtomicBoolean answered = new AtomicBoolean();
+        Runnable answer = () -> {
+            if (answered.compareAndSet(false, true)) {
+                latency += WEIGHT * ((System.nanoTime() - start) - latency);
+            }
+        };
+        return request
+                .doOnNext(response -> answer.run())
+                .doOnComplete(answer);
+    }
+
+    /**
+     * @return a waiter that has been handed the connection with the fewest streams, once one has room for another
+     */
+    private Mono<Waiter> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            sink.onCancel(waiter::cancel);
+            Connection connection;
+            synchronized (this) {
+                connection = leastBusy();
+                if (null != connection) {
+                    connection.streams++;
+                } else if (isConnected()) {
+                    queue.add(waiter);
+                    return;
+                }
+            }
+            if (null == connection) {
+                waiter.fail();
+            } else {
+                waiter.hand(connection);
+            }
+        });
+    }
+
+    private void release(Connection connection) {
+        synchronized (this) {
+            connection.streams--;
+        }
+        drain();
+    }
+
+    /**
+     * Hand connections with room for another stream to the requests queued for one.
+     */
+    private void drain() {
+        List<Waiter> waiters = new ArrayList<>();
+        List<Connection> acquired = new ArrayList<>();
+        synchronized (this) {
+            Connection connection;
+            while (!queue.isEmpty() && null != (connection = leastBusy())) {
+                connection.streams++;
+                waiters.add(queue.poll());
+                acquired.add(connection);
+            }
+        }
+        for (int i = 0; i < waiters.size(); i++) {
+            waiters.get(i).hand(acquired.get(i));
+        }
+    }
+
+    /**
+     * Fail the requests queued for a connection, once there are none.
+     */
+    private void failQueued() {
+        List<Waiter> waiters;
+        synchronized (this) {
+            if (isConnected() && !disposed) {
+                return;
+            }
+            waiters = new ArrayList<>(queue);
+            queue.clear();
+        }
+        waiters.forEach(Waiter::fail);
+    }
+
+    /**
+     * @return the open connection with room for another stream that has the fewest, preferring those with a lease. A
+     * request on a connection without one fails straight away, without reaching the server.
+     */
+    // Called holding the lock
+    private Connection leastBusy() {
+        Connection leastBusy = null;
+        boolean leased = false;
+        for (Connection connection : connections) {
+            if (!connection.isConnected() || (maxStreams > 0 && connection.streams >= maxStreams)) {
+                continue;
+            }
+            boolean lease = connection.hasLease();
+            if (null == leastBusy || (lease && !leased)
+                    || (lease == leased && connection.streams < leastBusy.streams)) {
+                leastBusy = connection;
+                leased = lease;
+            }
+        }
+        return leastBusy;
+    }
+
+    /**
+     * Stop trying to connect, once the server has refused the setup.
+     */
+    private void refused(Throwable error) {
+        log.error("{} refused the connection: {}", target, error.getMessage());
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+            disposed = true;
+        }
+        connected.onError(error);
+        dispose();
+    }
+
+    private IllegalStateException noConnection() {
+        return new IllegalStateException("No connection to " + target);
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        connections.forEach(Connection::dispose);
+        failQueued();
+        meters.forEach(registry::remove);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    @Override
+    public String toString() {
+        return target;
+    }
+
+    /**
+     * A request waiting for a connection. Whichever comes first, the request taking the connection it has been handed
+     * or cancelling, decides whether the request or the waiter gives the connection back.
+     */
+    private final class Waiter {
+
+        private static final int QUEUED = 0;
+        private static final int HANDED = 1;
+        private static final int TAKEN = 2;
+        private static final int CANCELLED = 3;
+
+        private final MonoSink<Waiter> sink;
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private volatile Connection connection;
+
+        Waiter(MonoSink<Waiter> sink) {
+            this.sink = sink;
+        }
+
+        void hand(Connection connection) {
+            this.connection = connection;
+            if (state.compareAndSet(QUEUED, HANDED)) {
+                sink.success(this);
+            } else {
+                release(connection);
+            }
+        }
+
+        void fail() {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                sink.error(noConnection());
+            }
+        }
+
+        /**
+         * @return the connection, or null if the request was cancelled
+         */
+        Connection take() {
+            return state.compareAndSet(HANDED, TAKEN) ? connection : null;
+        }
+
+        void cancel() {
+            if (state.compareAndSet(QUEUED, CANCELLED)) {
+                synchronized (Node.this) {
+                    queue.remove(this);
+                }
+            } else if (state.compareAndSet(HANDED, CANCELLED)) {
+                release(connection);
+            }
+        }
+    }
+
+    /**
+     * One of the pooled connections, and the streams in progress on it.
+     */
+    private final class Connection implements Disposable {
+
+        private final int index;
+        private volatile RSocket rsocket;
+        private volatile Disposable connecting;
+        // Changed holding the node's lock
+        private volatile int streams;
+
+        Connection(int index) {
+            this.index = index;
+        }
+
+        void start() {
+            this.connecting = connect
+                    .flatMap(this::open)
+                    .retryWhen(reconnect)
+                    .subscribe(this::established, Node.this::refused);
+        }
+
+        /**
+         * Use the connection straight away, but only count it as made once it has stayed open for a while.
+         *
+         * @return the connection, once it has, or an error if it is closed before then
+         */
+        private Mono<RSocket> open(RSocket rsocket) {
+            if (disposed) {
+                rsocket.dispose();
+                return Mono.never();
+            }
+            log.info("Connected to {} (connection {})", target, index);
+            this.rsocket = rsocket;
+            drain();
+            return rsocket.onClose()
+                    .then(Mono.<RSocket>error(ClosedChannelException::new))
+                    .timeout(ESTABLISHED, Mono.just(rsocket))
+                    .doOnError(error -> closed());
+        }
+
+        private void established(RSocket rsocket) {
+            Node.this.connected.onComplete();
+            rsocket.onClose()
+                    .doFinally(signal -> {
+                        closed();
+                        if (!disposed) {
+                            log.info("Lost connection {} to {}. Reconnecting...", index, target);
+                            start();
+                        }
+                    })
+                    .subscribe(null, error -> { });
+        }
+
+        private void closed() {
+            this.rsocket = null;
+            failQueued();
+        }
+
+        boolean isConnected() {
+            RSocket rsocket = this.rsocket;
+            return null != rsocket && !rsocket.isDisposed();
+        }
+
+        /**
+         * @return whether the server has leased the connection a request, or doesn't use leases
+         */
+        boolean hasLease() {
+            RSocket rsocket = this.rsocket;
+            return null != rsocket && rsocket.availability() > 0;
+        }
+
+        int streams() {
+            return streams;
+        }
+
+        @Override
+        public void dispose() {
+            Disposable connecting = this.connecting;
+            if (null != connecting) {
+                connecting.dispose();
+            }
+            RSocket rsocket = this.rsocket;
+            if (null != rsocket) {
+                rsocket.dispose();
+            }
+        }
+    }
+}
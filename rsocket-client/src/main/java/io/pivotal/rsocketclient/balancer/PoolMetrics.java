@@ -0,0 +1,64 @@
+package io.pivotal.rsocketclient.balancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The meters each server's connection pool registers, tagged with the server as 'target'.
+ * <ul>
+ * <li>rsocket.client.pool.connections (gauge): connections to the server.</li>
+ * <li>rsocket.client.pool.streams (gauge): streams (requests in progress) on each connection, also tagged with the
+ * connection's number as 'connection'.</li>
+ * <li>rsocket.client.pool.queued (gauge): requests waiting for a connection to have room for another stream.</li>
+ * <li>rsocket.client.pool.wait (timer): how long each request waited for a connection.</li>
+ * </ul>
+ */
+public final class PoolMetrics {
+
+    static final String CONNECTIONS = "rsocket.client.pool.connections";
+    static final String STREAMS = "rsocket.client.pool.streams";
+    static final String QUEUED = "rsocket.client.pool.queued";
+    static final String WAIT = "rsocket.client.pool.wait";
+    static final String TARGET = "target";
+    static final String CONNECTION = "connection";
+
+    private PoolMetrics() {
+    }
+
+    /**
+     * @return a line for each server, with its connections, the streams on each of them, and the requests queued
+     */
+    public static String report(MeterRegistry registry) {
+        return registry.find(CONNECTIONS).gauges().stream()
+                .map(gauge -> gauge.getId().getTag(TARGET))
+                .sorted()
+                .map(target -> report(registry, target))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String report(MeterRegistry registry, String target) {
+        String streams = registry.find(STREAMS).tag(TARGET, target).gauges().stream()
+                .sorted(Comparator.comparing(gauge -> Integer.valueOf(gauge.getId().getTag(CONNECTION))))
+                .map(gauge -> String.valueOf((long) gauge.value()))
+                .collect(Collectors.joining(", ", "[", "]"));
+        Timer wait = registry.get(WAIT).tag(TARGET, target).timer();
+        double p99 = 0;
+        for (ValueAtPercentile percentile : wait.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.99) {
+                p99 = percentile.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return String.format("%s: %d connections, streams %s, %d queued, %d requests waited %.3fms at p99",
+                target,
+                (long) registry.get(CONNECTIONS).tag(TARGET, target).gauge().value(),
+                streams,
+                (long) registry.get(QUEUED).tag(TARGET, target).gauge().value(),
+                wait.count(),
+                p99);
+    }
+}
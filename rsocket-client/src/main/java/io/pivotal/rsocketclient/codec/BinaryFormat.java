@@ -0,0 +1,138 @@
+package io.pivotal.rsocketclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact binary wire format, written and read directly on Netty ByteBufs.
+ * Strings are written as a 2-byte length (-1 for null) followed by their UTF-8 bytes. The small, fixed set of
+ * origin and interaction names used by the clients and the server is written from cached bytes, and decoded
+ * to the same interned String instances without copying the bytes out of the frame.
+ */
+public final class BinaryFormat {
+
+    public static final MimeType MIME_TYPE = new MimeType("application", "x.rsocket-demo.binary");
+
+    static final byte VERSION = 1;
+
+    private static final String[] KNOWN_STRINGS = {
+            "Server", "Response", "Stream", "Channel", "Broadcast",
+            "Client", "Request", "Fire-And-Forget"
+    };
+
+    private static final byte[][] KNOWN_BYTES = new byte[KNOWN_STRINGS.length][];
+    private static final Map<String, byte[]> BYTES_BY_STRING = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KNOWN_STRINGS.length; i++) {
+            KNOWN_BYTES[i] = KNOWN_STRINGS[i].getBytes(StandardCharsets.UTF_8);
+            BYTES_BY_STRING.put(KNOWN_STRINGS[i], KNOWN_BYTES[i]);
+        }
+    }
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * Allocate a buffer of the given size. Netty factories hand out a (pooled) ByteBuf directly; any other
+     * factory gets a heap ByteBuf, wrapped without copying once it has been written.
+     */
+    static ByteBuf allocate(DataBufferFactory factory, int size) {
+        if (factory instanceof NettyDataBufferFactory) {
+            return ((NettyDataBufferFactory) factory).getByteBufAllocator().buffer(size);
+        }
+        return Unpooled.buffer(size);
+    }
+
+    static DataBuffer wrap(DataBufferFactory factory, ByteBuf buffer) {
+        if (factory instanceof NettyDataBufferFactory) {
+            return ((NettyDataBufferFactory) factory).wrap(buffer);
+        }
+        return factory.wrap(buffer.nioBuffer());
+    }
+
+    /**
+     * View a DataBuffer as a ByteBuf, without copying it.
+     */
+    static ByteBuf unwrap(DataBuffer buffer) {
+        if (buffer instanceof NettyDataBuffer) {
+            return ((NettyDataBuffer) buffer).getNativeBuffer();
+        }
+        return Unpooled.wrappedBuffer(buffer.asByteBuffer());
+    }
+
+    static int sizeOf(String value) {
+        if (value == null) {
+            return Short.BYTES;
+        }
+        byte[] known = BYTES_BY_STRING.get(value);
+        return Short.BYTES + (known != null ? known.length : ByteBufUtil.utf8Bytes(value));
+    }
+
+    static void writeString(ByteBuf buffer, String value) {
+        if (value == null) {
+            buffer.writeShort(-1);
+            return;
+        }
+        byte[] known = BYTES_BY_STRING.get(value);
+        int length = known != null ? known.length : ByteBufUtil.utf8Bytes(value);
+        if (length > Short.MAX_VALUE) {
+            throw new EncodingException("String of " + length + " bytes is too long to encode");
+        }
+        buffer.writeShort(length);
+        if (known != null) {
+            buffer.writeBytes(known);
+        } else {
+            ByteBufUtil.reserveAndWriteUtf8(buffer, value, length);
+        }
+    }
+
+    static String readString(ByteBuf buffer) {
+        int length = buffer.readShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.readableBytes()) {
+            throw new DecodingException("String of " + length + " bytes exceeds the remaining " + buffer.readableBytes());
+        }
+        int start = buffer.readerIndex();
+        buffer.skipBytes(length);
+        for (int i = 0; i < KNOWN_BYTES.length; i++) {
+            if (matches(buffer, start, length, KNOWN_BYTES[i])) {
+                return KNOWN_STRINGS[i];
+            }
+        }
+        return buffer.toString(start, length, StandardCharsets.UTF_8);
+    }
+
+    static void readVersion(ByteBuf buffer) {
+        byte version = buffer.readByte();
+        if (version != VERSION) {
+            throw new DecodingException("Unsupported binary format version " + version);
+        }
+    }
+
+    private static boolean matches(ByteBuf buffer, int start, int length, byte[] candidate) {
+        if (candidate.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.getByte(start + i) != candidate[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package io.pivotal.rsocketclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Writes the channel's Duration settings in the {@link BinaryFormat}: seconds as a long, then nanos as an int.
+ */
+public class DurationEncoder extends AbstractEncoder<Duration> {
+
+    private static final int SIZE = Byte.BYTES + Long.BYTES + Integer.BYTES;
+
+    public DurationEncoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return Duration.class.equals(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Duration> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(duration -> encodeValue(duration, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Duration duration, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        ByteBuf buffer = BinaryFormat.allocate(bufferFactory, SIZE);
+        buffer.writeByte(BinaryFormat.VERSION);
+        buffer.writeLong(duration.getSeconds());
+        buffer.writeInt(duration.getNano());
+        return BinaryFormat.wrap(bufferFactory, buffer);
+    }
+}
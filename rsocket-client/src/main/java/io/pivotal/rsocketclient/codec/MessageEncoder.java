@@ -0,0 +1,72 @@
+package io.pivotal.rsocketclient.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.pivotal.rsocketclient.data.Message;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+
+/**
+ * Writes a Message in the {@link BinaryFormat}, straight into a (pooled) buffer.
+ */
+public class MessageEncoder extends AbstractEncoder<Message> {
+
+    public MessageEncoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return Message.class.isAssignableFrom(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends Message> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(message -> encodeValue(message, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Message message, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        ByteBuf buffer = BinaryFormat.allocate(bufferFactory, sizeOf(message));
+        try {
+            buffer.writeByte(BinaryFormat.VERSION);
+            write(buffer, message);
+            return BinaryFormat.wrap(bufferFactory, buffer);
+        } catch (RuntimeException ex) {
+            buffer.release();
+            throw ex;
+        }
+    }
+
+    private static int sizeOf(Message message) {
+        return Byte.BYTES + sizeOfFields(message);
+    }
+
+    /**
+     * The size of the Message's fields, without the version.
+     */
+    static int sizeOfFields(Message message) {
+        return BinaryFormat.sizeOf(message.getOrigin())
+                + BinaryFormat.sizeOf(message.getInteraction())
+                + Long.BYTES
+                + Long.BYTES;
+    }
+
+    /**
+     * Write the Message's fields, without the version.
+     */
+    static void write(ByteBuf buffer, Message message) {
+        BinaryFormat.writeString(buffer, message.getOrigin());
+        BinaryFormat.writeString(buffer, message.getInteraction());
+        buffer.writeLong(message.getIndex());
+        buffer.writeLong(message.getCreated());
+    }
+}
@@ -0,0 +1,90 @@
+package io.pivotal.rsocketclient.load;
+
+import io.pivotal.rsocketclient.data.Message;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The interaction models the {@link LoadGenerator} can drive, each against the server route the shell command of the
+ * same name uses. Streams use 'stream.0.1.{messages}', so each ends after the given number of messages.
+ */
+public enum Interaction {
+
+    REQUEST_RESPONSE("request-response") {
+        @Override
+        Mono<Long> send(RSocketRequester requester, long index, int messages) {
+            return requester
+                    .route("request-response")
+                    .data(new Message(CLIENT, "Request", index))
+                    .retrieveMono(Message.class)
+                    .thenReturn(1L);
+        }
+    },
+
+    FIRE_AND_FORGET("fire-and-forget") {
+        @Override
+        Mono<Long> send(RSocketRequester requester, long index, int messages) {
+            return requester
+                    .route("fire-and-forget")
+                    .data(new Message(CLIENT, "Fire-And-Forget", index))
+                    .send()
+                    .thenReturn(0L);
+        }
+    },
+
+    STREAM("stream") {
+        @Override
+        Mono<Long> send(RSocketRequester requester, long index, int messages) {
+            return requester
+                    .route("stream.0.1." + messages)
+                    .data(new Message(CLIENT, "Stream", index))
+                    .retrieveFlux(Message.class)
+                    .count();
+        }
+    },
+
+    CHANNEL("channel") {
+        @Override
+        Mono<Long> send(RSocketRequester requester, long index, int messages) {
+            return requester
+                    .route("channel")
+                    .data(Flux.just(CHANNEL_INTERVAL), Duration.class)
+                    .retrieveFlux(Message.class)
+                    .take(messages)
+                    .count();
+        }
+    };
+
+    private static final String CLIENT = "Load";
+    // As often as the server's ticks allow
+    private static final Duration CHANNEL_INTERVAL = Duration.ofMillis(1);
+
+    private final String route;
+
+    Interaction(String route) {
+        this.route = route;
+    }
+
+    /**
+     * @return the messages received
+     */
+    abstract Mono<Long> send(RSocketRequester requester, long index, int messages);
+
+    public static Interaction of(String name) {
+        return Arrays.stream(values())
+                .filter(interaction -> interaction.route.equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No interaction called '" + name + "'. Use one of "
+                        + Arrays.stream(values()).map(Interaction::toString).collect(Collectors.joining(", "))));
+    }
+
+    @Override
+    public String toString() {
+        return route;
+    }
+}
@@ -0,0 +1,145 @@
+package io.pivotal.rsocketclient.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives one interaction model for a while, without blocking: requests are pipelined on the requester's connections,
+ * up to the concurrency limit.
+ * <ul>
+ * <li>With a rate, requests are started on a fixed schedule, whether or not earlier ones have ended. Each latency is
+ * measured from when the request was due, so a slow server can't hide its queueing by slowing the client down.
+ * Requests due while the most are already in progress are missed, and counted.</li>
+ * <li>Without one, each of the concurrent requests starts the next as soon as it ends.</li>
+ * </ul>
+ * Throughput and latency percentiles (from an HdrHistogram) are logged every second.
+ */
+@Slf4j
+public class LoadGenerator {
+
+    // How often to start the requests that are due, at a fixed rate
+    private static final Duration TICK = Duration.ofMillis(1);
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final RSocketRequester requester;
+    private final LoadSettings settings;
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    // Guarded by itself
+    private final Histogram latencies = new Histogram(SIGNIFICANT_DIGITS);
+    private final AtomicLong index = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder missed = new LongAdder();
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    // Changed by the reporter only
+    private long reported;
+    private long reportedCompleted;
+    private long reportedMessages;
+
+    public LoadGenerator(RSocketRequester requester, LoadSettings settings) {
+        this.requester = requester;
+        this.settings = settings;
+    }
+
+    /**
+     * Send the load, and wait for the last request to end.
+     */
+    public LoadSummary run() {
+        long start = System.nanoTime();
+        long end = start + settings.getDuration().toNanos();
+        Disposable reporter = Flux.interval(REPORT_INTERVAL).subscribe(tick -> report());
+        try {
+            (settings.getRate() > 0 ? fixedRate(start, end) : asFastAsPossible(end)).blockLast();
+        } finally {
+            reporter.dispose();
+        }
+        synchronized (latencies) {
+            latencies.add(recorder.getIntervalHistogram());
+            return new LoadSummary(settings, Duration.ofNanos(System.nanoTime() - start), completed.sum(),
+                    messages.sum(), errors.sum(), missed.sum(), latencies.copy());
+        }
+    }
+
+    private Flux<Long> fixedRate(long start, long end) {
+        long period = TimeUnit.SECONDS.toNanos(1) / settings.getRate();
+        long total = (end - start) / period;
+        AtomicLong scheduled = new AtomicLong();
+        return Flux.interval(TICK)
+                .takeWhile(tick -> scheduled.get() < total)
+                // When each request that is now due should have started
+                .flatMapIterable(tick -> {
+                    long due = Math.min(total, (System.nanoTime() - start) / period + 1);
+                    List<Long> starts = new ArrayList<>();
+                    for (long next = scheduled.get(); next < due; next = scheduled.incrementAndGet()) {
+                        starts.add(start + next * period);
+                    }
+                    return starts;
+                })
+                .onBackpressureDrop(due -> missed.increment())
+                .flatMap(this::request, settings.getConcurrency());
+    }
+
+    private Flux<Long> asFastAsPossible(long end) {
+        return Flux.range(0, settings.getConcurrency())
+                .flatMap(worker -> Mono.defer(() -> request(System.nanoTime()))
+                        .repeat(() -> System.nanoTime() < end), settings.getConcurrency());
+    }
+
+    /**
+     * @param due when the request should start, which its latency is measured from
+     * @return the messages received
+     */
+    private Mono<Long> request(long due) {
+        return settings.getInteraction()
+                .send(requester, index.getAndIncrement(), settings.getMessages())
+                .doOnNext(received -> {
+                    recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due)));
+                    completed.increment();
+                    messages.add(received);
+                })
+                .onErrorResume(error -> {
+                    errors.increment();
+                    if (failed.compareAndSet(false, true)) {
+                        log.warn("Request failed (only the first failure is logged): {}", error.toString());
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private void report() {
+        synchronized (latencies) {
+            Histogram interval = recorder.getIntervalHistogram();
+            latencies.add(interval);
+            reported++;
+            long completed = this.completed.sum();
+            long messages = this.messages.sum();
+            log.info(String.format("%ds: %d/s, %d messages/s, latency (ms) p50 %.3f, p99 %.3f, p99.9 %.3f, max %.3f, "
+                            + "errors %d, missed %d",
+                    reported, completed - reportedCompleted, messages - reportedMessages,
+                    millis(interval, 50), millis(interval, 99), millis(interval, 99.9),
+                    interval.getMaxValue() / 1000.0, errors.sum(), missed.sum()));
+            reportedCompleted = completed;
+            reportedMessages = messages;
+        }
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
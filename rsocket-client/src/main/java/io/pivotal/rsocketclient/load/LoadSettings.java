@@ -0,0 +1,31 @@
+package io.pivotal.rsocketclient.load;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * What the {@link LoadGenerator} sends, and how fast.
+ */
+@Value
+public class LoadSettings {
+
+    Interaction interaction;
+
+    /**
+     * Requests to start each second, or 0 to start each one as soon as another ends.
+     */
+    int rate;
+
+    /**
+     * The most requests in progress at once.
+     */
+    int concurrency;
+
+    Duration duration;
+
+    /**
+     * Messages to receive from each stream or channel.
+     */
+    int messages;
+}
@@ -0,0 +1,72 @@
+package io.pivotal.rsocketclient.load;
+
+import lombok.Value;
+import org.HdrHistogram.Histogram;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The totals of a {@link LoadGenerator} run. Latencies are recorded in microseconds.
+ */
+@Value
+public class LoadSummary {
+
+    // Print the latencies in milliseconds
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    LoadSettings settings;
+    Duration elapsed;
+    long completed;
+    long messages;
+    long errors;
+    /**
+     * Requests not started when they were due, because the most requests were already in progress.
+     */
+    long missed;
+    Histogram latencies;
+
+    public double throughput() {
+        return completed / seconds();
+    }
+
+    private double seconds() {
+        return Math.max(1, elapsed.toMillis()) / 1000.0;
+    }
+
+    /**
+     * @return the summary, then the latency distribution in the HdrHistogram format (which its plotter can read)
+     */
+    @Override
+    public String toString() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes, false, StandardCharsets.UTF_8.name())) {
+            out.printf("Interaction: %s%n", settings.getInteraction());
+            out.printf("Rate: %s, concurrency: %d, duration: %ds%n",
+                    settings.getRate() > 0 ? settings.getRate() + "/s" : "as fast as possible",
+                    settings.getConcurrency(), settings.getDuration().getSeconds());
+            out.printf("Completed: %d (%.1f/s), messages: %d (%.1f/s), errors: %d, missed: %d, in %.3fs%n",
+                    completed, throughput(), messages, messages / seconds(), errors, missed, seconds());
+            out.printf("Latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                    millis(50), millis(90), millis(99), millis(99.9), latencies.getMaxValue() / MICROS_PER_MILLI);
+            out.println();
+            latencies.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            return bytes.toString(StandardCharsets.UTF_8.name());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private double millis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.write(file, toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,146 @@
+package io.pivotal.rsocketclient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Log the shell client in to a server that checks the password in the setup frame. Check the wrong password fails
+ * login rather than the client trying again and again, and that logging in again replaces the old connections.
+ */
+public class RSocketShellClientLoginITest {
+
+    private static final int POOL = 2;
+
+    private final AtomicInteger setups = new AtomicInteger();
+    private final AtomicInteger open = new AtomicInteger();
+    private final Semaphore streams = new Semaphore(0);
+    private final Semaphore cancelled = new Semaphore(0);
+    private CloseableChannel server;
+    private RSocketShellClient client;
+
+    @BeforeEach
+    public void setup() {
+        server = RSocketServer.create((setup, sendingSocket) -> {
+            setups.incrementAndGet();
+            if (!"pass".equals(password(setup))) {
+                return Mono.error(new RejectedSetupException("Invalid credentials"));
+            }
+            open.incrementAndGet();
+            sendingSocket.onClose().doFinally(signal -> open.decrementAndGet()).subscribe(null, error -> { });
+            return Mono.just(new StreamResponder());
+        }).bind(TcpServerTransport.create("localhost", 0)).block();
+
+        ConnectionProperties properties = new ConnectionProperties();
+        properties.setTargets(Collections.singletonList("localhost:" + server.address().getPort()));
+        properties.getPool().setSize(POOL);
+        properties.getReconnect().setMinBackoff(Duration.ofMillis(10));
+        client = new RSocketShellClient(() -> RSocketRequester.builder().rsocketStrategies(jsonStrategies()),
+                jsonStrategies(), MimeTypeUtils.APPLICATION_JSON, 1, properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.logout();
+        server.dispose();
+    }
+
+    @Test
+    public void testWrongPasswordFailsLoginWithoutReconnecting() throws Exception {
+        assertThatThrownBy(() -> client.login("user", "wrong", null))
+                .isInstanceOf(RejectedSetupException.class)
+                .hasMessageContaining("Invalid credentials");
+
+        // One setup for each pooled connection, and no more once they have been rejected
+        int rejected = setups.get();
+        assertThat(rejected).isBetween(1, POOL);
+        Thread.sleep(500);
+        assertThat(setups.get()).isEqualTo(rejected);
+    }
+
+    @Test
+    public void testLoggingInAgainReplacesTheConnectionsAndStopsTheStream() throws Exception {
+        assertThatThrownBy(() -> client.login("user", "wrong", null)).isInstanceOf(RejectedSetupException.class);
+
+        // Only the new credentials are sent
+        client.login("user", "pass", null);
+        assertThat(open.get()).isEqualTo(POOL);
+        client.stream(1);
+        assertThat(streams.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+
+        client.login("user", "pass", null);
+        assertThat(cancelled.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (open.get() > POOL && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(open.get()).isEqualTo(POOL);
+        // The old stream isn't started again on the new connections
+        assertThat(streams.tryAcquire(500, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    /**
+     * @return the password in the setup frame's simple authentication metadata, or null if there is none
+     */
+    private static String password(ConnectionSetupPayload setup) {
+        for (CompositeMetadata.Entry entry : new CompositeMetadata(setup.metadata(), false)) {
+            if (WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString().equals(entry.getMimeType())) {
+                ByteBuf auth = entry.getContent();
+                AuthMetadataCodec.readWellKnownAuthType(auth);
+                AuthMetadataCodec.readUsername(auth);
+                return AuthMetadataCodec.readPassword(auth).toString(StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static RSocketStrategies jsonStrategies() {
+        return RSocketStrategies.builder()
+                .encoder(new Jackson2JsonEncoder())
+                .decoder(new Jackson2JsonDecoder())
+                .build();
+    }
+
+    /**
+     * Streams that never send anything, but count when they start and are cancelled.
+     */
+    private class StreamResponder implements RSocket {
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            payload.release();
+            return Flux.<Payload>never()
+                    .doOnSubscribe(subscription -> streams.release())
+                    .doOnCancel(cancelled::release);
+        }
+    }
+}
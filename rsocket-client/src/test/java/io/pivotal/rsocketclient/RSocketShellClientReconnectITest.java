@@ -0,0 +1,154 @@
+package io.pivotal.rsocketclient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.pivotal.rsocketclient.data.Message;
+import io.rsocket.Closeable;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import io.rsocket.transport.netty.server.WebsocketServerTransport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.ConnectMapping;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drop the shell client's connection from the server side, and check the client connects again by itself and
+ * starts its stream again, over each transport.
+ */
+public class RSocketShellClientReconnectITest {
+
+    private static final String LOCAL_NAME = "rsocket-shell-client-reconnect-itest";
+
+    private static AnnotationConfigApplicationContext context;
+
+    @BeforeAll
+    public static void setupOnce() {
+        context = new AnnotationConfigApplicationContext(ServerConfig.class);
+    }
+
+    @AfterAll
+    public static void tearDownOnce() {
+        context.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ConnectionProperties.Transport.class)
+    public void testClientReconnectsAndStartsItsStreamAgain(ConnectionProperties.Transport transport) throws Exception {
+        ServerController controller = context.getBean(ServerController.class);
+        RSocketServer rSocketServer = RSocketServer.create(context.getBean(RSocketMessageHandler.class).responder());
+        Closeable server;
+        String target;
+        switch (transport) {
+            case TCP:
+                CloseableChannel tcp = rSocketServer.bind(TcpServerTransport.create("localhost", 0)).block();
+                server = tcp;
+                target = "localhost:" + tcp.address().getPort();
+                break;
+            case WEBSOCKET:
+                CloseableChannel websocket = rSocketServer.bind(WebsocketServerTransport.create("localhost", 0)).block();
+                server = websocket;
+                target = "localhost:" + websocket.address().getPort();
+                break;
+            default:
+                server = rSocketServer.bind(LocalServerTransport.create(LOCAL_NAME)).block();
+                target = LOCAL_NAME;
+        }
+        ConnectionProperties properties = new ConnectionProperties();
+        properties.setTargets(Collections.singletonList(target));
+        properties.getPool().setSize(1);
+        properties.getReconnect().setMinBackoff(Duration.ofMillis(10));
+
+        RSocketShellClient client = new RSocketShellClient(
+                () -> RSocketRequester.builder().rsocketStrategies(jsonStrategies()),
+                jsonStrategies(), MimeTypeUtils.APPLICATION_JSON, 1, properties, new SimpleMeterRegistry());
+        try {
+            // Chosen at login, rather than by rsocket.client.transport
+            client.login("user", "pass", transport.name().toLowerCase());
+            RSocketRequester connection = controller.connections.poll(10, TimeUnit.SECONDS);
+            assertThat(connection).isNotNull();
+
+            client.stream(1);
+            assertThat(controller.streams.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+
+            connection.rsocket().dispose();
+
+            assertThat(controller.connections.poll(10, TimeUnit.SECONDS)).isNotNull();
+            assertThat(controller.streams.tryAcquire(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            client.logout();
+        }
+
+        try {
+            // Logging out closes the connection for good
+            assertThat(controller.connections.poll(1, TimeUnit.SECONDS)).isNull();
+        } finally {
+            server.dispose();
+        }
+    }
+
+    private static RSocketStrategies jsonStrategies() {
+        return RSocketStrategies.builder()
+                .encoder(new Jackson2JsonEncoder())
+                .decoder(new Jackson2JsonDecoder())
+                .build();
+    }
+
+    @Controller
+    static class ServerController {
+
+        final BlockingQueue<RSocketRequester> connections = new LinkedBlockingQueue<>();
+        final Semaphore streams = new Semaphore(0);
+
+        @ConnectMapping("shell-client")
+        void connect(RSocketRequester requester) {
+            connections.add(requester);
+        }
+
+        @MessageMapping("stream")
+        Flux<Message> stream(Message request) {
+            return Flux.interval(Duration.ofMillis(100))
+                    .map(index -> new Message("Server", "Stream", index))
+                    .doOnSubscribe(subscription -> streams.release());
+        }
+    }
+
+    @TestConfiguration
+    static class ServerConfig {
+
+        @Bean
+        public ServerController serverController() {
+            return new ServerController();
+        }
+
+        @Bean
+        public RSocketMessageHandler serverMessageHandler() {
+            RSocketMessageHandler handler = new RSocketMessageHandler();
+            handler.setRSocketStrategies(jsonStrategies());
+            return handler;
+        }
+    }
+}
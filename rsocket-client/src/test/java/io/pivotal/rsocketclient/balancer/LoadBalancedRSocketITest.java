@@ -0,0 +1,290 @@
+package io.pivotal.rsocketclient.balancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.pivotal.rsocketclient.data.Message;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.ConnectMapping;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Spread requests across several in-process servers, each on its own ephemeral port, and stop and start them
+ * to check the balancer leaves them out while they're down and takes them back once they're up.
+ * Spread streams across the connections to one server, and queue them when the connections are full.
+ */
+public class LoadBalancedRSocketITest {
+
+    private static final int SERVERS = 3;
+
+    private static final RSocketStrategies STRATEGIES = RSocketStrategies.builder()
+            .encoder(new Jackson2JsonEncoder())
+            .decoder(new Jackson2JsonDecoder())
+            .build();
+
+    private final List<ServerController> controllers = new ArrayList<>();
+    private final List<CloseableChannel> servers = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private LoadBalancedRSocket balancer;
+    private RSocketRequester requester;
+
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < SERVERS; i++) {
+            ServerController controller = new ServerController();
+            controllers.add(controller);
+            servers.add(start(controller, 0));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (null != balancer) {
+            balancer.dispose();
+        }
+        servers.forEach(CloseableChannel::dispose);
+    }
+
+    @Test
+    public void testRoundRobinTakesTurns() {
+        connect(LoadBalancedRSocket.Strategy.ROUND_ROBIN, SERVERS, 1, 0);
+
+        send(30);
+
+        controllers.forEach(controller -> assertThat(controller.requests.get()).isEqualTo(10));
+    }
+
+    @Test
+    public void testLeastLoadedAvoidsTheSlowServer() {
+        controllers.get(0).delay = Duration.ofMillis(50);
+        connect(LoadBalancedRSocket.Strategy.LEAST_LOADED, SERVERS, 1, 0);
+
+        send(60);
+
+        assertThat(controllers.get(0).requests.get()).isLessThan(10);
+        assertThat(controllers.get(1).requests.get() + controllers.get(2).requests.get()).isGreaterThan(50);
+    }
+
+    @Test
+    public void testStoppedServerIsLeftOutUntilItIsBack() {
+        connect(LoadBalancedRSocket.Strategy.ROUND_ROBIN, SERVERS, 1, 0);
+        Node node = balancer.nodes().get(0);
+        int port = servers.get(0).address().getPort();
+
+        stop(0);
+        await(() -> !node.isAvailable());
+        send(10);
+        assertThat(controllers.get(0).requests.get()).isZero();
+
+        servers.set(0, start(controllers.get(0), port));
+        await(node::isAvailable);
+        send(30);
+        assertThat(controllers.get(0).requests.get()).isEqualTo(10);
+    }
+
+    @Test
+    public void testRequestsFailWithoutAnyServer() {
+        connect(LoadBalancedRSocket.Strategy.LEAST_LOADED, SERVERS, 1, 0);
+
+        for (int i = 0; i < SERVERS; i++) {
+            stop(i);
+        }
+        await(() -> balancer.availability() == 0.0);
+
+        StepVerifier.create(request())
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void testStreamsAreSpreadAcrossPooledConnections() {
+        connect(LoadBalancedRSocket.Strategy.LEAST_LOADED, 1, 4, 0);
+        ServerController controller = controllers.get(0);
+
+        Disposable streams = Flux.range(0, 8).flatMap(i -> stream(), 8).subscribe();
+        try {
+            await(() -> controller.streams() == 8);
+            assertThat(controller.streams.values()).hasSize(4).allMatch(count -> count.get() == 2);
+            assertThat(registry.find(PoolMetrics.STREAMS).gauges()).hasSize(4).allMatch(gauge -> gauge.value() == 2);
+            assertThat(registry.get(PoolMetrics.CONNECTIONS).gauge().value()).isEqualTo(4);
+        } finally {
+            streams.dispose();
+        }
+    }
+
+    @Test
+    public void testRequestsQueueWhileTheConnectionsAreFull() {
+        connect(LoadBalancedRSocket.Strategy.LEAST_LOADED, 1, 1, 2);
+        ServerController controller = controllers.get(0);
+
+        Disposable first = stream().subscribe();
+        Disposable second = stream().subscribe();
+        Disposable third = stream().subscribe();
+        try {
+            await(() -> controller.streams() == 2);
+            assertThat(registry.get(PoolMetrics.QUEUED).gauge().value()).isEqualTo(1);
+            assertThat(PoolMetrics.report(registry)).contains("streams [2], 1 queued");
+
+            first.dispose();
+            await(() -> controller.streams() == 3);
+            assertThat(registry.get(PoolMetrics.QUEUED).gauge().value()).isZero();
+            assertThat(registry.get(PoolMetrics.WAIT).timer().count()).isEqualTo(3);
+        } finally {
+            second.dispose();
+            third.dispose();
+        }
+    }
+
+    @Test
+    public void testConnectionsClosedStraightAwayAreRetriedWithTheBackoff() throws Exception {
+        ServerController controller = controllers.get(0);
+        controller.close = true;
+        connect(LoadBalancedRSocket.Strategy.LEAST_LOADED, 1, 1, 0);
+
+        Thread.sleep(1000);
+
+        // About one attempt every 50ms, rather than one straight after another
+        assertThat(controller.connections.size()).isBetween(2, 25);
+        assertThat(balancer.connected().toFuture()).isNotDone();
+    }
+
+    private void connect(LoadBalancedRSocket.Strategy strategy, int servers, int pool, int maxStreams) {
+        Map<String, Mono<RSocket>> targets = new LinkedHashMap<>();
+        for (CloseableChannel server : this.servers.subList(0, servers)) {
+            int port = server.address().getPort();
+            targets.put("localhost:" + port, RSocketRequester.builder()
+                    .rsocketStrategies(STRATEGIES)
+                    .setupRoute("shell-client")
+                    .connectTcp("localhost", port)
+                    .map(RSocketRequester::rsocket));
+        }
+        balancer = new LoadBalancedRSocket(targets, strategy, pool, maxStreams,
+                Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(50)), registry);
+        requester = RSocketRequester.wrap(balancer, MimeTypeUtils.APPLICATION_JSON,
+                MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString()), STRATEGIES);
+        // Each server has seen every connection, so stopping it closes them all
+        await(() -> controllers.subList(0, servers).stream().allMatch(controller -> controller.connections.size() == pool));
+    }
+
+    private void send(int requests) {
+        for (int i = 0; i < requests; i++) {
+            assertThat(request().block(Duration.ofSeconds(10))).isNotNull();
+        }
+    }
+
+    private Mono<Message> request() {
+        return requester
+                .route("request-response")
+                .data(new Message("TEST", "Request"))
+                .retrieveMono(Message.class);
+    }
+
+    private Flux<Message> stream() {
+        return requester
+                .route("stream")
+                .data(new Message("TEST", "Stream"))
+                .retrieveFlux(Message.class);
+    }
+
+    private CloseableChannel start(ServerController controller, int port) {
+        RSocketMessageHandler handler = new RSocketMessageHandler();
+        handler.setHandlers(Collections.singletonList(controller));
+        handler.setRSocketStrategies(STRATEGIES);
+        handler.afterPropertiesSet();
+        return RSocketServer.create(handler.responder())
+                .bind(TcpServerTransport.create("localhost", port))
+                .block();
+    }
+
+    /**
+     * Stop listening, and close the connections the server has.
+     */
+    private void stop(int server) {
+        servers.get(server).dispose();
+        servers.get(server).onClose().block(Duration.ofSeconds(10));
+        ServerController controller = controllers.get(server);
+        RSocketRequester connection;
+        while (null != (connection = controller.connections.poll())) {
+            connection.rsocket().dispose();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("Waited too long").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Controller
+    static class ServerController {
+
+        final Queue<RSocketRequester> connections = new ConcurrentLinkedQueue<>();
+        final AtomicInteger requests = new AtomicInteger();
+        // Streams started on each connection
+        final Map<RSocket, AtomicInteger> streams = new ConcurrentHashMap<>();
+        volatile Duration delay = Duration.ZERO;
+        // Close each connection as soon as it is set up
+        volatile boolean close;
+
+        @ConnectMapping("shell-client")
+        void connect(RSocketRequester requester) {
+            connections.add(requester);
+            if (close) {
+                requester.rsocket().dispose();
+            }
+        }
+
+        @MessageMapping("request-response")
+        Mono<Message> requestResponse(Message request) {
+            requests.incrementAndGet();
+            return Mono.just(new Message("Server", "Response")).delayElement(delay);
+        }
+
+        @MessageMapping("stream")
+        Flux<Message> stream(Message request, RSocketRequester requester) {
+            streams.computeIfAbsent(requester.rsocket(), connection -> new AtomicInteger()).incrementAndGet();
+            return Flux.interval(Duration.ofMillis(100)).map(index -> new Message("Server", "Stream", index));
+        }
+
+        int streams() {
+            return streams.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.pivotal.rsocketclient.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.pivotal.rsocketclient.codec.BinaryFormat;
+import io.pivotal.rsocketclient.codec.DurationEncoder;
+import io.pivotal.rsocketclient.codec.MessageBatchDecoder;
+import io.pivotal.rsocketclient.codec.MessageBatchEncoder;
+import io.pivotal.rsocketclient.codec.MessageDecoder;
+import io.pivotal.rsocketclient.codec.MessageEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageCodecTest {
+
+    private static final ResolvableType MESSAGE = ResolvableType.forClass(Message.class);
+    private static final ResolvableType MESSAGE_BATCH = ResolvableType.forClassWithGenerics(List.class, Message.class);
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+
+    @Test
+    public void testJsonRoundTrip() {
+        Message message = new Message("Client", "Request", 42);
+        assertThat(roundTrip(message, new Jackson2JsonEncoder(json), new Jackson2JsonDecoder(json), MediaType.APPLICATION_JSON))
+                .isEqualTo(message);
+    }
+
+    @Test
+    public void testCborRoundTrip() {
+        Message message = new Message("Client", "Request", 42);
+        assertThat(roundTrip(message, new Jackson2CborEncoder(cbor), new Jackson2CborDecoder(cbor), MediaType.APPLICATION_CBOR))
+                .isEqualTo(message);
+    }
+
+    @Test
+    public void testBinaryRoundTrip() {
+        Message message = new Message("Client", "Request", 42);
+        assertThat(roundTrip(message, new MessageEncoder(), new MessageDecoder(), BinaryFormat.MIME_TYPE))
+                .isEqualTo(message);
+
+        Message unknown = new Message("Somewhere \u00e9lse", null, -1);
+        assertThat(roundTrip(unknown, new MessageEncoder(), new MessageDecoder(), BinaryFormat.MIME_TYPE))
+                .isEqualTo(unknown);
+    }
+
+    @Test
+    public void testBinaryBatchRoundTrip() {
+        List<Message> batch = Arrays.asList(new Message("Server", "Channel", 0), new Message("Somewhere \u00e9lse", null, 1));
+        assertThat(roundTrip(batch, new MessageBatchEncoder(), new MessageBatchDecoder(), BinaryFormat.MIME_TYPE))
+                .isEqualTo(batch);
+        assertThat(roundTrip(Collections.emptyList(), new MessageBatchEncoder(), new MessageBatchDecoder(), BinaryFormat.MIME_TYPE))
+                .isEmpty();
+    }
+
+    @Test
+    public void testCborBatchRoundTrip() {
+        List<Message> batch = Arrays.asList(new Message("Server", "Channel", 0), new Message("Server", "Channel", 1));
+        assertThat(roundTrip(batch, new Jackson2CborEncoder(cbor), new Jackson2CborDecoder(cbor), MediaType.APPLICATION_CBOR))
+                .isEqualTo(batch);
+    }
+
+    @Test
+    public void testCborPayloadIsSmallerThanJson() {
+        Message message = new Message("Client", "Request", 42);
+        int jsonSize = encodedSize(message, new Jackson2JsonEncoder(json), MediaType.APPLICATION_JSON);
+        int cborSize = encodedSize(message, new Jackson2CborEncoder(cbor), MediaType.APPLICATION_CBOR);
+
+        assertThat(cborSize).isLessThan(jsonSize);
+    }
+
+    @Test
+    public void testBinaryPayloadIsSmallerThanCbor() {
+        Message message = new Message("Client", "Request", 42);
+        int cborSize = encodedSize(message, new Jackson2CborEncoder(cbor), MediaType.APPLICATION_CBOR);
+        int binarySize = encodedSize(message, new MessageEncoder(), BinaryFormat.MIME_TYPE);
+
+        assertThat(binarySize).isLessThan(cborSize);
+    }
+
+    @Test
+    public void testBinaryDecodingReadsInPlaceAndReleasesTheBuffer() {
+        NettyDataBufferFactory pooled = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        NettyDataBuffer encoded = (NettyDataBuffer) new MessageEncoder()
+                .encodeValue(new Message("Client", "Request", 42), pooled, MESSAGE, BinaryFormat.MIME_TYPE, Collections.emptyMap());
+
+        // Decode from a retained slice, the way a zero-copy RSocket frame hands over its data
+        ByteBuf frame = encoded.getNativeBuffer();
+        DataBuffer slice = pooled.wrap(frame.retainedSlice());
+        Message decoded = new MessageDecoder().decode(slice, MESSAGE, BinaryFormat.MIME_TYPE, Collections.emptyMap());
+
+        // Well known strings are interned rather than copied out of the buffer
+        assertThat(decoded.getOrigin()).isSameAs("Client");
+        assertThat(decoded.getInteraction()).isSameAs("Request");
+        assertThat(frame.refCnt()).isEqualTo(1);
+        assertThat(frame.release()).isTrue();
+    }
+
+    @Test
+    public void testDurationEncoding() {
+        NettyDataBufferFactory pooled = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        NettyDataBuffer encoded = (NettyDataBuffer) new DurationEncoder()
+                .encodeValue(Duration.ofMillis(1500), pooled, ResolvableType.forClass(Duration.class), BinaryFormat.MIME_TYPE, Collections.emptyMap());
+
+        ByteBuf buffer = encoded.getNativeBuffer();
+        try {
+            assertThat(buffer.readByte()).isEqualTo((byte) 1);
+            assertThat(buffer.readLong()).isEqualTo(1);
+            assertThat(buffer.readInt()).isEqualTo(500_000_000);
+            assertThat(buffer.isReadable()).isFalse();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static Message roundTrip(Message message, Encoder<? super Message> encoder, Decoder<?> decoder, MimeType mimeType) {
+        DataBuffer encoded = encoder.encodeValue(message, new DefaultDataBufferFactory(), MESSAGE, mimeType, Collections.emptyMap());
+        return (Message) decoder.decodeToMono(Mono.just(encoded), MESSAGE, mimeType, Collections.emptyMap()).block();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Message> roundTrip(List<Message> batch, Encoder<? super List<Message>> encoder, Decoder<?> decoder, MimeType mimeType) {
+        DataBuffer encoded = encoder.encodeValue(batch, new DefaultDataBufferFactory(), MESSAGE_BATCH, mimeType, Collections.emptyMap());
+        return (List<Message>) decoder.decodeToMono(Mono.just(encoded), MESSAGE_BATCH, mimeType, Collections.emptyMap()).block();
+    }
+
+    private static int encodedSize(Message message, Encoder<? super Message> encoder, MimeType mimeType) {
+        DataBuffer encoded = encoder.encodeValue(message, new DefaultDataBufferFactory(), MESSAGE, mimeType, Collections.emptyMap());
+        try {
+            return encoded.readableByteCount();
+        } finally {
+            DataBufferUtils.release(encoded);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.pivotal.rsocketclient.load;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.DefaultPayload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Drive an in-memory RSocket that echoes each request, answering after a short delay.
+ */
+public class LoadGeneratorTest {
+
+    private static final RSocketStrategies STRATEGIES = RSocketStrategies.builder()
+            .encoder(new Jackson2JsonEncoder())
+            .decoder(new Jackson2JsonDecoder())
+            .build();
+
+    private static final Duration DELAY = Duration.ofMillis(10);
+    // Messages in each echoed stream
+    private static final int STREAM_MESSAGES = 3;
+
+    private final RSocketRequester requester = RSocketRequester.wrap(new EchoRSocket(), MimeTypeUtils.APPLICATION_JSON,
+            MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString()), STRATEGIES);
+
+    @Test
+    public void testAsFastAsPossibleKeepsEveryRequestInProgress() {
+        LoadSummary summary = run(new LoadSettings(Interaction.REQUEST_RESPONSE, 0, 8, Duration.ofSeconds(1), 1));
+
+        // Each of the 8 requests in progress takes at least 10ms, so no more than 800 fit in a second
+        assertThat(summary.getCompleted()).isBetween(100L, 800L);
+        assertThat(summary.getMessages()).isEqualTo(summary.getCompleted());
+        assertThat(summary.getErrors()).isZero();
+        assertThat(summary.getMissed()).isZero();
+        assertThat(summary.getLatencies().getTotalCount()).isEqualTo(summary.getCompleted());
+        assertThat(summary.getLatencies().getValueAtPercentile(50)).isGreaterThanOrEqualTo(DELAY.toMillis() * 1000);
+    }
+
+    @Test
+    public void testFixedRateStartsRequestsOnSchedule() {
+        LoadSummary summary = run(new LoadSettings(Interaction.STREAM, 200, 16, Duration.ofSeconds(1), 10));
+
+        assertThat(summary.getCompleted()).isEqualTo(200);
+        assertThat(summary.getMessages()).isEqualTo(200 * STREAM_MESSAGES);
+        assertThat(summary.getMissed()).isZero();
+    }
+
+    @Test
+    public void testFixedRateMissesRequestsWhenTheMostAreInProgress() {
+        // Only 1 of the 10ms requests fits at once, so only about 100 of the 500 due each second start
+        LoadSummary summary = run(new LoadSettings(Interaction.REQUEST_RESPONSE, 500, 1, Duration.ofSeconds(1), 1));
+
+        assertThat(summary.getMissed()).isPositive();
+        assertThat(summary.getCompleted() + summary.getMissed()).isEqualTo(500);
+    }
+
+    @Test
+    public void testSummaryIsWritten(@TempDir Path directory) throws Exception {
+        LoadSummary summary = run(new LoadSettings(Interaction.FIRE_AND_FORGET, 100, 4, Duration.ofMillis(500), 1));
+        Path file = directory.resolve("summary.txt");
+
+        summary.write(file);
+
+        String written = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertThat(written)
+                .contains("Interaction: fire-and-forget")
+                .contains("Rate: 100/s, concurrency: 4")
+                .contains("Completed: 50")
+                .contains("Value     Percentile TotalCount 1/(1-Percentile)");
+    }
+
+    @Test
+    public void testUnknownInteraction() {
+        assertThat(Interaction.of("Request-Response")).isEqualTo(Interaction.REQUEST_RESPONSE);
+        assertThatThrownBy(() -> Interaction.of("request-channel"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("request-response, fire-and-forget, stream, channel");
+    }
+
+    private LoadSummary run(LoadSettings settings) {
+        return new LoadGenerator(requester, settings).run();
+    }
+
+    static class EchoRSocket implements RSocket {
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            payload.release();
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            return Mono.just(echo(payload)).delayElement(DELAY);
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            String data = payload.getDataUtf8();
+            payload.release();
+            return Flux.range(0, STREAM_MESSAGES).map(index -> DefaultPayload.create(data)).delaySubscription(DELAY);
+        }
+
+        private static Payload echo(Payload payload) {
+            try {
+                return DefaultPayload.create(payload.getDataUtf8());
+            } finally {
+                payload.release();
+            }
+        }
+    }
+}
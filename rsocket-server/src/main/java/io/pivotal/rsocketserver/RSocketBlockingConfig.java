@@ -0,0 +1,44 @@
+package io.pivotal.rsocketserver;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.blocking.Blocking;
+import io.pivotal.rsocketserver.blocking.BlockingExecutor;
+import io.pivotal.rsocketserver.blocking.BlockingInterceptor;
+import io.pivotal.rsocketserver.blocking.BlockingProperties;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * Calls @MessageMapping methods annotated with {@link Blocking} on the {@link BlockingExecutor}, set by
+ * 'rsocket.blocking.executor'. The advisor is ordered last, after method security and the response cache, so
+ * requests that are denied, or answered from the cache, never leave the event loop.
+ */
+@Configuration
+@Import(RSocketResponseCacheConfig.AutoProxyRegistrar.class)
+public class RSocketBlockingConfig {
+
+    static final int ORDER = Ordered.LOWEST_PRECEDENCE;
+
+    @Bean
+    BlockingExecutor blockingExecutor(BlockingProperties properties, MeterRegistry registry) {
+        return new BlockingExecutor(properties, registry);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor blockingAdvisor(ObjectProvider<BlockingExecutor> executor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(Blocking.class),
+                new BlockingInterceptor(executor));
+        advisor.setOrder(ORDER);
+        return advisor;
+    }
+}
@@ -0,0 +1,26 @@
+package io.pivotal.rsocketserver;
+
+import io.pivotal.rsocketserver.codec.DurationDecoder;
+import io.pivotal.rsocketserver.codec.MessageBatchDecoder;
+import io.pivotal.rsocketserver.codec.MessageBatchEncoder;
+import io.pivotal.rsocketserver.codec.MessageDecoder;
+import io.pivotal.rsocketserver.codec.MessageEncoder;
+import org.springframework.boot.rsocket.messaging.RSocketStrategiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Register the hand-written binary codecs alongside the CBOR and JSON codecs Spring Boot provides.
+ * Clients opt in by using the 'application/x.rsocket-demo.binary' data MIME type.
+ * Batches of Messages, sent by the batched channel, are written as one payload (see {@link MessageBatchEncoder}).
+ */
+@Configuration
+public class RSocketCodecConfig {
+
+    @Bean
+    RSocketStrategiesCustomizer binaryCodecs() {
+        return strategies -> strategies
+                .encoder(new MessageEncoder(), new MessageBatchEncoder())
+                .decoder(new MessageDecoder(), new MessageBatchDecoder(), new DurationDecoder());
+    }
+}
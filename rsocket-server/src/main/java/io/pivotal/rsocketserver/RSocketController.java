@@ -1,7 +1,18 @@
 package io.pivotal.rsocketserver;
 
+import io.pivotal.rsocketserver.blocking.Blocking;
+import io.pivotal.rsocketserver.broadcast.MessageBroadcaster;
+import io.pivotal.rsocketserver.cache.CachedResponse;
+import io.pivotal.rsocketserver.clients.ClientRegistry;
+import io.pivotal.rsocketserver.clients.ConnectedClient;
 import io.pivotal.rsocketserver.data.Message;
+import io.pivotal.rsocketserver.ingest.IngestPipeline;
+import io.pivotal.rsocketserver.logging.RequestLogSampler;
+import io.pivotal.rsocketserver.stream.MessageStream;
+import io.pivotal.rsocketserver.ticks.SharedTicks;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.rsocket.RSocketRequester;
@@ -15,7 +26,6 @@ import reactor.core.publisher.Mono;
 
 import javax.annotation.PreDestroy;
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -26,34 +36,53 @@ public class RSocketController {
     static final String RESPONSE = "Response";
     static final String STREAM = "Stream";
     static final String CHANNEL = "Channel";
+    static final long MAX_BLOCKING_MILLIS = 10_000;
+    static final int MAX_CHANNEL_BATCH = 1000;
 
-    private final List<RSocketRequester> CLIENTS = new ArrayList<>();
+    private final ClientRegistry clients;
+    private final MessageBroadcaster broadcaster;
+    private final SharedTicks ticks;
+    private final RequestLogSampler logs;
+    private final IngestPipeline ingest;
+
+    RSocketController(ClientRegistry clients, MessageBroadcaster broadcaster, SharedTicks ticks, RequestLogSampler logs,
+                      IngestPipeline ingest) {
+        this.clients = clients;
+        this.broadcaster = broadcaster;
+        this.ticks = ticks;
+        this.logs = logs;
+        this.ingest = ingest;
+    }
 
     @PreDestroy
     void shutdown() {
         log.info("Detaching all remaining clients...");
-        CLIENTS.stream().forEach(requester -> requester.rsocket().dispose());
+        clients.all().forEach(connected -> connected.getRequester().rsocket().dispose());
         log.info("Shutting down.");
     }
 
     @ConnectMapping("shell-client")
     void connectShellClientAndAskForTelemetry(RSocketRequester requester,
-                                              @Payload String client) {
+                                              @Payload String client,
+                                              @Header(RSocketSecurityConfig.USERNAME_HEADER) String username) {
+
+        ConnectedClient connected = new ConnectedClient(client, username, requester);
 
         requester.rsocket()
                 .onClose()
                 .doFirst(() -> {
-                    // Add all new clients to a client list
+                    // Add all new clients to the client registry
                     log.info("Client: {} CONNECTED.", client);
-                    CLIENTS.add(requester);
+                    clients.register(connected);
+                    broadcaster.attach(connected);
                 })
                 .doOnError(error -> {
                     // Warn when channels are closed by clients
                     log.warn("Channel to client {} CLOSED", client);
                 })
                 .doFinally(consumer -> {
-                    // Remove disconnected clients from the client list
-                    CLIENTS.remove(requester);
+                    // Remove disconnected clients from the client registry
+                    clients.unregister(connected);
                     log.info("Client {} DISCONNECTED", client);
                 })
                 .subscribe();
@@ -63,28 +92,57 @@ public class RSocketController {
                 .data("OPEN")
                 .retrieveFlux(String.class)
                 .doOnNext(s -> log.info("Client: {} Free Memory: {}.", client, s))
-                .subscribe();
+                .subscribe(
+                        status -> { },
+                        error -> log.debug("Client: {} status updates stopped: {}", client, error.toString()));
     }
 
     /**
      * This @MessageMapping is intended to be used "request --> response" style.
      * For each Message received, a new Message is returned with ORIGIN=Server and INTERACTION=Request-Response.
+     * The same request within 10 seconds gets the same response back from the cache.
      *
      * @param request
      * @return Message
      */
     @PreAuthorize("hasRole('USER')")
+    @CachedResponse(expireAfterWrite = "10s")
     @MessageMapping("request-response")
     Mono<Message> requestResponse(final Message request, @AuthenticationPrincipal UserDetails user) {
-        log.info("Received request-response request: {}", request);
-        log.info("Request-response initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        if (logs.sample("request-response")) {
+            log.info("Received request-response request: {}", request);
+            log.info("Request-response initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
         // create a single Message and return it
         return Mono.just(new Message(SERVER, RESPONSE));
     }
 
+    /**
+     * This @MessageMapping is intended to be used "request --> response" style, to try out handlers that block.
+     * It stands in for a call to a blocking API, such as JDBC, by sleeping for the given time (at most 10 seconds).
+     * Being @Blocking, it is called on the blocking executor, and the event loop carries on with other requests.
+     *
+     * @param millis how long to block for
+     * @param request
+     * @return Message
+     */
+    @PreAuthorize("hasRole('USER')")
+    @Blocking
+    @MessageMapping("blocking.{millis}")
+    Mono<Message> blocking(@DestinationVariable long millis, final Message request,
+                           @AuthenticationPrincipal UserDetails user) throws InterruptedException {
+        if (logs.sample("blocking.{millis}")) {
+            log.info("Received blocking request: {} (blocking for {}ms)", request, millis);
+            log.info("Blocking request initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
+        Thread.sleep(Math.max(0, Math.min(millis, MAX_BLOCKING_MILLIS)));
+        return Mono.just(new Message(SERVER, RESPONSE));
+    }
+
     /**
      * This @MessageMapping is intended to be used "fire --> forget" style.
      * When a new CommandRequest is received, nothing is returned (void)
+     * The Message is queued for the ingest pipeline, which writes it out in a batch later.
      *
      * @param request
      * @return
@@ -92,9 +150,11 @@ public class RSocketController {
     @PreAuthorize("hasRole('USER')")
     @MessageMapping("fire-and-forget")
     public Mono<Void> fireAndForget(final Message request, @AuthenticationPrincipal UserDetails user) {
-        log.info("Received fire-and-forget request: {}", request);
-        log.info("Fire-And-Forget initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
-        return Mono.empty();
+        if (logs.sample("fire-and-forget")) {
+            log.info("Received fire-and-forget request: {}", request);
+            log.info("Fire-And-Forget initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
+        return ingest.ingest(request);
     }
 
     /**
@@ -107,16 +167,41 @@ public class RSocketController {
     @PreAuthorize("hasRole('USER')")
     @MessageMapping("stream")
     Flux<Message> stream(final Message request, @AuthenticationPrincipal UserDetails user) {
-        log.info("Received stream request: {}", request);
-        log.info("Stream initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        if (logs.sample("stream")) {
+            log.info("Received stream request: {}", request);
+            log.info("Stream initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
 
-        return Flux
-                // create a new indexed Flux emitting one element every second
+        return ticks
+                // create a new indexed Flux emitting one element every second, from the timer shared by all streams
                 .interval(Duration.ofSeconds(1))
                 // create a Flux of new Messages using the indexed Flux
                 .map(index -> new Message(SERVER, STREAM, index));
     }
 
+    /**
+     * This @MessageMapping is intended to be used "subscribe --> stream" style, for capacity testing.
+     * Messages are only created when the client asks for them, so the stream goes as fast as the client can take it.
+     * For example 'stream.0.1.1000000' sends a million messages as fast as possible, and 'stream.1000.100.0'
+     * sends 1000 messages a second, in batches of 100, until the client cancels.
+     *
+     * @param rate  the most messages to send each second, or 0 for no limit
+     * @param batch how many messages to send together, when the rate is limited, up to 1000
+     * @param count how many messages to send in total, or 0 for no end
+     * @param request
+     * @return
+     */
+    @PreAuthorize("hasRole('USER')")
+    @MessageMapping("stream.{rate}.{batch}.{count}")
+    Flux<Message> stream(@DestinationVariable long rate, @DestinationVariable int batch, @DestinationVariable long count,
+                         final Message request, @AuthenticationPrincipal UserDetails user) {
+        if (logs.sample("stream.{rate}.{batch}.{count}")) {
+            log.info("Received stream request: {} (rate {}, batch {}, count {})", request, rate, batch, count);
+            log.info("Stream initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
+        return MessageStream.of(SERVER, STREAM, rate, batch, count, ticks::interval);
+    }
+
     /**
      * This @MessageMapping is intended to be used "stream <--> stream" style.
      * The incoming stream contains the interval settings (in seconds) for the outgoing stream of messages.
@@ -127,13 +212,68 @@ public class RSocketController {
     @PreAuthorize("hasRole('USER')")
     @MessageMapping("channel")
     Flux<Message> channel(final Flux<Duration> settings, @AuthenticationPrincipal UserDetails user) {
-        log.info("Received channel request...");
-        log.info("Channel initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        if (logs.sample("channel")) {
+            log.info("Received channel request...");
+            log.info("Channel initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
 
+        return channelMessages(settings);
+    }
+
+    /**
+     * This @MessageMapping is intended to be used "stream <--> stream" style, like 'channel', at high rates.
+     * Rather than one Message per frame, it sends a batch of Messages in each frame: as soon as there are 'batch'
+     * of them (at most 1000), or when the oldest has waited 'millis', whichever comes first. With 'millis' 0 a batch
+     * is only sent once it is full. For example 'channel.100.10' sends up to 100 Messages a frame, at most 10ms late.
+     * Like a tick, a batch that is ready while the client has no demand is dropped.
+     *
+     * @param batch  the most messages to send together
+     * @param millis the longest to hold on to a message, or 0 to wait for a full batch
+     * @param settings
+     * @return
+     */
+    @PreAuthorize("hasRole('USER')")
+    @MessageMapping("channel.{batch}.{millis}")
+    Flux<List<Message>> channel(@DestinationVariable int batch, @DestinationVariable long millis,
+                                final Flux<Duration> settings, @AuthenticationPrincipal UserDetails user) {
+        if (logs.sample("channel.{batch}.{millis}")) {
+            log.info("Received batched channel request (batch {}, {}ms)...", batch, millis);
+            log.info("Channel initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
+
+        int size = Math.max(1, Math.min(batch, MAX_CHANNEL_BATCH));
+        Flux<Message> messages = channelMessages(settings);
+        return (millis > 0 ? messages.bufferTimeout(size, Duration.ofMillis(millis)) : messages.buffer(size))
+                .onBackpressureDrop();
+    }
+
+    private Flux<Message> channelMessages(Flux<Duration> settings) {
         return settings
                 .doOnNext(setting -> log.info("Channel frequency setting is {} second(s).", setting.getSeconds()))
                 .doOnCancel(() -> log.warn("The client cancelled the channel."))
-                .switchMap(setting -> Flux.interval(setting)
+                .switchMap(setting -> ticks.interval(setting)
                         .map(index -> new Message(SERVER, CHANNEL, index)));
     }
+
+    /**
+     * This @MessageMapping is intended to be used "fire --> forget" style.
+     * The Message received is sent on to every connected client, through each client's 'broadcast' route.
+     *
+     * @param request
+     * @return
+     */
+    @PreAuthorize("hasRole('USER')")
+    @MessageMapping("broadcast")
+    public Mono<Void> broadcast(final Message request, @AuthenticationPrincipal UserDetails user) {
+        boolean logged = logs.sample("broadcast");
+        if (logged) {
+            log.info("Received broadcast request: {}", request);
+            log.info("Broadcast initiated by '{}' in the role '{}'", user.getUsername(), user.getAuthorities());
+        }
+        int recipients = broadcaster.broadcast(request);
+        if (logged) {
+            log.info("Broadcast queued for {} client(s).", recipients);
+        }
+        return Mono.empty();
+    }
 }
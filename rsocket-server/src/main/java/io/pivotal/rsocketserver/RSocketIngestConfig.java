@@ -0,0 +1,31 @@
+package io.pivotal.rsocketserver;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.ingest.FileIngestSink;
+import io.pivotal.rsocketserver.ingest.IngestPipeline;
+import io.pivotal.rsocketserver.ingest.IngestProperties;
+import io.pivotal.rsocketserver.ingest.IngestSink;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * The pipeline behind the 'fire-and-forget' route. Events are appended to 'rsocket.ingest.file', unless there is
+ * an {@link IngestSink} bean to write them to instead.
+ */
+@Configuration
+public class RSocketIngestConfig {
+
+    @Bean
+    IngestPipeline ingestPipeline(IngestProperties properties, ObjectProvider<IngestSink> sink,
+                                  ObjectProvider<ObjectMapper> mapper, MeterRegistry registry) throws IOException {
+        IngestSink target = sink.getIfAvailable();
+        if (null == target) {
+            target = new FileIngestSink(properties.getFile(), mapper.getIfAvailable(ObjectMapper::new));
+        }
+        return new IngestPipeline(properties, target, registry);
+    }
+}
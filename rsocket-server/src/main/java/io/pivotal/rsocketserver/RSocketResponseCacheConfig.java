@@ -0,0 +1,53 @@
+package io.pivotal.rsocketserver;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.cache.CachedResponse;
+import io.pivotal.rsocketserver.cache.ResponseCacheInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.config.AopConfigUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.type.AnnotationMetadata;
+
+/**
+ * Caches the responses of @MessageMapping methods annotated with {@link CachedResponse}.
+ * The advisor is ordered after method security (see {@link RSocketSecurityConfig}), so @PreAuthorize checks
+ * every request before a cached response can be returned, and before any blocking call (see
+ * {@link RSocketBlockingConfig}), so a cached response is returned without one.
+ */
+@Configuration
+@Import(RSocketResponseCacheConfig.AutoProxyRegistrar.class)
+public class RSocketResponseCacheConfig {
+
+    static final int ORDER = RSocketBlockingConfig.ORDER - 1;
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor responseCacheAdvisor(ObjectProvider<MeterRegistry> registry) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(CachedResponse.class),
+                new ResponseCacheInterceptor(registry));
+        advisor.setOrder(ORDER);
+        return advisor;
+    }
+
+    /**
+     * Makes sure there is something to apply the advisor. With lazy initialization, Boot's AOP auto-configuration
+     * never gets to register an auto proxy creator, and method security may be switched off.
+     */
+    static class AutoProxyRegistrar implements ImportBeanDefinitionRegistrar {
+
+        @Override
+        public void registerBeanDefinitions(AnnotationMetadata metadata, BeanDefinitionRegistry registry) {
+            AopConfigUtils.registerAutoProxyCreatorIfNecessary(registry);
+        }
+    }
+}
@@ -1,24 +1,69 @@
 package io.pivotal.rsocketserver;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.pivotal.rsocketserver.metrics.RoutePatterns;
+import io.pivotal.rsocketserver.ratelimit.RateLimitInterceptor;
+import io.pivotal.rsocketserver.ratelimit.RateLimitProperties;
+import io.pivotal.rsocketserver.security.AuthenticationCacheProperties;
+import io.pivotal.rsocketserver.security.CachingAuthenticationManager;
+import io.pivotal.rsocketserver.security.ConnectionAuthorizationInterceptor;
+import io.pivotal.rsocketserver.security.RouteAuthorizations;
+import io.pivotal.rsocketserver.security.SetupPayloadInterceptor;
+import io.pivotal.rsocketserver.security.SimpleAuthenticationConverter;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.WellKnownAuthType;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.rsocket.messaging.RSocketStrategiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.messaging.rsocket.RSocketStrategies;
 import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
-import org.springframework.security.config.Customizer;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.rsocket.EnableRSocketSecurity;
+import org.springframework.security.config.annotation.rsocket.PayloadInterceptorOrder;
 import org.springframework.security.config.annotation.rsocket.RSocketSecurity;
 import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.messaging.handler.invocation.reactive.AuthenticationPrincipalArgumentResolver;
+import org.springframework.security.rsocket.authentication.AuthenticationPayloadInterceptor;
 import org.springframework.security.rsocket.core.PayloadSocketAcceptorInterceptor;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Every connection and request must be authenticated, and the @PreAuthorize rules on each @MessageMapping decide
+ * which users may use it. How the rules are applied depends on 'rsocket.security.authorization':
+ * <ul>
+ * <li>payload (the default): each request is authenticated again if it carries credentials, and method security
+ * evaluates the rule of the method that handles it.</li>
+ * <li>connection: only the setup frame is authenticated, and every rule is decided for the connection as soon as
+ * it is set up. Each request is then checked against those decisions, and method security is switched off.
+ * Suits long-lived connections, like the shell client's, that send many requests. A user's roles are fixed for
+ * the life of their connection.</li>
+ * </ul>
+ * Either way, a {@link RateLimitInterceptor} then limits how many requests each user and connection may make on each
+ * route, as set by 'rsocket.rate-limit'.
+ */
 @Configuration
 @EnableRSocketSecurity
-@EnableReactiveMethodSecurity
 public class RSocketSecurityConfig {
 
+    static final String AUTHORIZATION = "rsocket.security.authorization";
+
+    static final String USERNAME_HEADER = "username";
+    private static final MimeType SIMPLE_AUTH = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+
     @Bean
     RSocketMessageHandler messageHandler(RSocketStrategies strategies) {
 
@@ -28,6 +73,29 @@ public class RSocketSecurityConfig {
         return handler;
     }
 
+    /**
+     * The security context is not available to @ConnectMapping handlers, so expose the username sent in the
+     * setup frame's simple authentication metadata as a message header instead. The password is never read.
+     * Handlers only run once the setup frame has been authenticated, so this is the authenticated user.
+     *
+     * @return RSocketStrategiesCustomizer
+     */
+    @Bean
+    RSocketStrategiesCustomizer usernameExtractor() {
+        return strategies -> strategies.metadataExtractorRegistry(registry ->
+                registry.metadataToExtract(SIMPLE_AUTH, DataBuffer.class, (metadata, headers) -> {
+                    try {
+                        ByteBuf auth = NettyDataBufferFactory.toByteBuf(metadata);
+                        if (AuthMetadataCodec.isWellKnownAuthType(auth)
+                                && AuthMetadataCodec.readWellKnownAuthType(auth) == WellKnownAuthType.SIMPLE) {
+                            headers.put(USERNAME_HEADER, AuthMetadataCodec.readUsername(auth).toString(StandardCharsets.UTF_8));
+                        }
+                    } finally {
+                        DataBufferUtils.release(metadata);
+                    }
+                }));
+    }
+
     @Bean
     MapReactiveUserDetailsService authentication() {
         //This is NOT intended for production use (it is intended for getting started experience only)
@@ -46,12 +114,72 @@ public class RSocketSecurityConfig {
         return new MapReactiveUserDetailsService(user, admin);
     }
 
+    /**
+     * Checking a password is slow on purpose, so only check each username and password once in a while.
+     * Publish a UserChangedEvent when a user changes, to stop their cached authentication being used.
+     *
+     * @param users
+     * @param properties
+     * @param registry
+     * @return CachingAuthenticationManager
+     */
+    @Bean
+    CachingAuthenticationManager authenticationManager(ReactiveUserDetailsService users,
+                                                       AuthenticationCacheProperties properties,
+                                                       MeterRegistry registry) {
+        return new CachingAuthenticationManager(
+                new UserDetailsRepositoryReactiveAuthenticationManager(users), properties, registry);
+    }
+
+    @Bean
+    RateLimitInterceptor rateLimits(RSocketMessageHandler handler, RateLimitProperties properties, MeterRegistry registry) {
+        return new RateLimitInterceptor(RoutePatterns.of(handler), properties, registry);
+    }
+
     @Bean
-    PayloadSocketAcceptorInterceptor authorization(RSocketSecurity security) {
+    @ConditionalOnProperty(name = AUTHORIZATION, havingValue = "payload", matchIfMissing = true)
+    PayloadSocketAcceptorInterceptor authorization(RSocketSecurity security, ReactiveAuthenticationManager authenticationManager,
+                                                   RateLimitInterceptor rateLimits) {
         security.authorizePayload(authorize ->
                 authorize
                         .anyExchange().authenticated() // all connections, exchanges.
-        ).simpleAuthentication(Customizer.withDefaults());
+        ).addPayloadInterceptor(simpleAuthentication(authenticationManager))
+                .addPayloadInterceptor(rateLimits);
+        return security.build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = AUTHORIZATION, havingValue = "connection")
+    PayloadSocketAcceptorInterceptor connectionAuthorization(RSocketSecurity security,
+                                                             ReactiveAuthenticationManager authenticationManager,
+                                                             RSocketMessageHandler handler,
+                                                             RateLimitInterceptor rateLimits) {
+        security.addPayloadInterceptor(new SetupPayloadInterceptor(simpleAuthentication(authenticationManager),
+                PayloadInterceptorOrder.AUTHENTICATION.getOrder()))
+                .addPayloadInterceptor(new ConnectionAuthorizationInterceptor(RouteAuthorizations.of(handler)))
+                .addPayloadInterceptor(rateLimits);
         return security.build();
     }
+
+    /**
+     * The same interceptor simpleAuthentication() would add, but with a converter that doesn't leak buffers.
+     *
+     * @param authenticationManager
+     * @return AuthenticationPayloadInterceptor
+     */
+    private static AuthenticationPayloadInterceptor simpleAuthentication(ReactiveAuthenticationManager authenticationManager) {
+        AuthenticationPayloadInterceptor interceptor = new AuthenticationPayloadInterceptor(authenticationManager);
+        interceptor.setAuthenticationConverter(new SimpleAuthenticationConverter());
+        interceptor.setOrder(PayloadInterceptorOrder.AUTHENTICATION.getOrder());
+        return interceptor;
+    }
+
+    /**
+     * Method security comes before the response cache, so that cached responses are only returned to authorized users.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = AUTHORIZATION, havingValue = "payload", matchIfMissing = true)
+    @EnableReactiveMethodSecurity(order = RSocketResponseCacheConfig.ORDER - 1)
+    static class MethodSecurityConfig {
+    }
 }
@@ -0,0 +1,35 @@
+package io.pivotal.rsocketserver;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.ingest.IngestPipeline;
+import io.pivotal.rsocketserver.lease.AimdLimit;
+import io.pivotal.rsocketserver.lease.LeaseAdmission;
+import io.pivotal.rsocketserver.lease.LeaseProperties;
+import io.rsocket.core.RSocketServer;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Only take the requests each connection has been leased (see {@link LeaseAdmission}).
+ * Clients should honour leases (see the shell client's application-lease.properties), and must lease the server the
+ * requests it makes of them, such as 'client-status' and 'broadcast'. Leases also stop while the ingest pipeline is
+ * refusing events under its REJECT overflow policy.
+ */
+@Profile("lease")
+@Component
+public class RSocketServerLeaseConfig implements RSocketServerCustomizer {
+
+    private final LeaseAdmission admission;
+
+    public RSocketServerLeaseConfig(LeaseProperties properties, IngestPipeline ingest, MeterRegistry registry) {
+        this.admission = new LeaseAdmission(new AimdLimit(properties), properties, ingest::isRejecting, registry);
+    }
+
+    @Override
+    public void customize(RSocketServer rSocketServer) {
+        rSocketServer
+                .lease(admission::leases)
+                .interceptors(interceptors -> interceptors.forResponder(admission));
+    }
+}
@@ -0,0 +1,34 @@
+package io.pivotal.rsocketserver;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.pivotal.rsocketserver.clients.ClientRegistry;
+import io.pivotal.rsocketserver.metrics.RouteMetricsInterceptor;
+import io.pivotal.rsocketserver.metrics.RoutePatterns;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+
+/**
+ * Metrics for every route, and for the connected clients.
+ * Metrics are published over JMX, under the 'metrics' domain, so they can be browsed locally with JConsole
+ * or VisualVM. The actuator's metrics endpoint is on JMX too.
+ */
+@Configuration
+public class RSocketServerMetricsConfig {
+
+    @Bean
+    RSocketServerCustomizer routeMetrics(MeterRegistry registry, RSocketMessageHandler handler) {
+        RouteMetricsInterceptor interceptor = new RouteMetricsInterceptor(registry, RoutePatterns.of(handler));
+        return server -> server.interceptors(interceptors -> interceptors.forResponder(interceptor));
+    }
+
+    @Bean
+    MeterBinder connectedClients(ClientRegistry clients) {
+        return registry -> Gauge.builder("rsocket.connections", clients, ClientRegistry::size)
+                .description("Clients currently connected through the 'shell-client' @ConnectMapping")
+                .register(registry);
+    }
+}
@@ -1,24 +1,79 @@
 package io.pivotal.rsocketserver;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.pivotal.rsocketserver.resume.MappedResumableFramesStore;
+import io.pivotal.rsocketserver.resume.ResumeMetrics;
+import io.pivotal.rsocketserver.resume.ResumeProperties;
+import io.pivotal.rsocketserver.resume.ResumeStoreProperties;
+import io.pivotal.rsocketserver.resume.SessionsDirectory;
 import io.rsocket.core.RSocketServer;
 import io.rsocket.core.Resume;
+import io.rsocket.resume.InMemoryResumableFramesStore;
+import io.rsocket.resume.ResumableFramesStore;
 import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
+import java.util.function.Function;
+
 
 /**
  * Make the socket capable of resumption.
- * By default, the Resume Session will have a duration of 120s, a timeout of
- * 10s, and use the In Memory (volatile, non-persistent) session store.
+ * The session duration, stream timeout and store cleanup are set by {@link ResumeProperties}
+ * (see application-resumption.properties). The frames a session may have to send again are kept in memory-mapped
+ * files (see {@link MappedResumableFramesStore}), in a directory of this server's own that is removed when it stops
+ * (see {@link SessionsDirectory}), or in memory if 'rsocket.resume.store.type' is 'memory'.
+ * Sessions are metered by {@link ResumeMetrics}.
  */
 @Profile("resumption")
 @Component
 public class RSocketServerResumptionConfig implements RSocketServerCustomizer {
 
+    private final ResumeProperties properties;
+    private final ResumeStoreProperties store;
+    // Shared by the servers on every transport (see RSocketTransportConfig)
+    private final Function<ByteBuf, ResumableFramesStore> stores;
+    // This server's directory under 'rsocket.resume.store.directory', if the store is mapped
+    private SessionsDirectory sessions;
+
+    public RSocketServerResumptionConfig(ResumeProperties properties, ResumeStoreProperties store, MeterRegistry registry) {
+        this.properties = properties;
+        this.store = store;
+        this.stores = new ResumeMetrics(registry).metered(stores());
+    }
+
     @Override
     public void customize(RSocketServer rSocketServer) {
-        rSocketServer.resume(new Resume());
+        Resume resume = new Resume()
+                .sessionDuration(properties.getSessionDuration())
+                .streamTimeout(properties.getStreamTimeout())
+                .storeFactory(stores);
+        if (properties.isCleanupStoreOnKeepAlive()) {
+            resume.cleanupStoreOnKeepAlive();
+        }
+        rSocketServer.resume(resume);
+    }
+
+    private Function<ByteBuf, ResumableFramesStore> stores() {
+        if (store.getType() == ResumeStoreProperties.Type.MAPPED) {
+            SessionsDirectory directory = SessionsDirectory.create(store.getDirectory());
+            this.sessions = directory;
+            return token -> new MappedResumableFramesStore(directory.path().resolve(ByteBufUtil.hexDump(token)), store);
+        }
+        return token -> new InMemoryResumableFramesStore("server", Math.toIntExact(store.getMaxBytes().toBytes()));
+    }
+
+    /**
+     * Sessions don't outlive the server, so neither do their frames.
+     */
+    @PreDestroy
+    public void deleteSessions() {
+        if (null != sessions) {
+            sessions.close();
+        }
     }
 
 }
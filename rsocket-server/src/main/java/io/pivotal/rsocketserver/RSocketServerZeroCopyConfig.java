@@ -0,0 +1,24 @@
+package io.pivotal.rsocketserver;
+
+import io.rsocket.core.RSocketServer;
+import io.rsocket.frame.decoder.PayloadDecoder;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Decode payloads without copying them out of the incoming frames.
+ * Every payload then holds on to its frame's pooled buffer until it is released, so each
+ * decoder (and handler, if it takes raw buffers) is responsible for releasing what it reads.
+ */
+@Profile("zero-copy")
+@Component
+public class RSocketServerZeroCopyConfig implements RSocketServerCustomizer {
+
+    @Override
+    public void customize(RSocketServer rSocketServer) {
+        rSocketServer.payloadDecoder(PayloadDecoder.ZERO_COPY);
+    }
+
+}
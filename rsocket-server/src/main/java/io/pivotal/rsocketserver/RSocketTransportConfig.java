@@ -0,0 +1,29 @@
+package io.pivotal.rsocketserver;
+
+import io.pivotal.rsocketserver.transport.AdditionalTransports;
+import io.pivotal.rsocketserver.transport.TransportProperties;
+import io.rsocket.core.RSocketServer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+
+/**
+ * Listen on WebSocket and local transports too, when enabled by 'rsocket.transport' (see {@link TransportProperties}).
+ * Their servers answer with the same responder as the main server, and are customized by the same
+ * {@link RSocketServerCustomizer}s, which add security, resumption, leases and the rest.
+ */
+@Configuration
+public class RSocketTransportConfig {
+
+    @Bean
+    AdditionalTransports additionalTransports(TransportProperties properties, RSocketMessageHandler handler,
+                                              ObjectProvider<RSocketServerCustomizer> customizers) {
+        return new AdditionalTransports(properties, () -> {
+            RSocketServer server = RSocketServer.create(handler.responder());
+            customizers.orderedStream().forEach(customizer -> customizer.customize(server));
+            return server;
+        });
+    }
+}
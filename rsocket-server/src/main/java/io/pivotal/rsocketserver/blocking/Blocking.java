@@ -0,0 +1,20 @@
+package io.pivotal.rsocketserver.blocking;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a @MessageMapping method that blocks, for example on JDBC or file I/O, so that it is called on the
+ * {@link BlockingExecutor} instead of the connection's event loop, where it would hold up every other connection
+ * on that loop. The method must return a Mono or a Flux, which is passed on once the call returns.
+ * <p>
+ * Authorization, and the response cache, still run before the method is handed over.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Blocking {
+}
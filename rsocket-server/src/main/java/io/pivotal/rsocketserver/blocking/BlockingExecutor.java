@@ -0,0 +1,116 @@
+package io.pivotal.rsocketserver.blocking;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes blocking calls off the event loop, and passes on the Mono or Flux they return.
+ * <p>
+ * With virtual threads each call gets a thread of its own, which costs next to nothing while it waits, so a slow
+ * database holds up no more than the calls waiting for it. A bounded elastic pool of platform threads can only wait
+ * on so many calls at once, and queues the rest.
+ */
+@Slf4j
+public class BlockingExecutor implements Closeable {
+
+    static final String THREAD_PREFIX = "rsocket-blocking-";
+
+    private final BlockingProperties.ExecutorType type;
+    private final Scheduler scheduler;
+    private final AtomicInteger active = new AtomicInteger();
+
+    public BlockingExecutor(BlockingProperties properties, MeterRegistry registry) {
+        ExecutorService virtual = null;
+        if (BlockingProperties.ExecutorType.VIRTUAL == properties.getExecutor()) {
+            virtual = VirtualThreads.newThreadPerTaskExecutor(THREAD_PREFIX);
+            if (virtual == null) {
+                log.warn("Virtual threads need Java 21 or later. Calling blocking handlers on a bounded elastic pool.");
+            }
+        }
+        if (virtual != null) {
+            this.type = BlockingProperties.ExecutorType.VIRTUAL;
+            this.scheduler = Schedulers.fromExecutorService(virtual, THREAD_PREFIX);
+        } else {
+            this.type = BlockingProperties.ExecutorType.BOUNDED_ELASTIC;
+            this.scheduler = Schedulers.newBoundedElastic(properties.getMaxThreads(), properties.getMaxQueued(),
+                    THREAD_PREFIX);
+        }
+        Gauge.builder("rsocket.blocking.active", active, AtomicInteger::get)
+                .description("Blocking handler calls in progress")
+                .tag("executor", type.name())
+                .register(registry);
+        log.info("Calling blocking handlers on {} threads", type);
+    }
+
+    /**
+     * @return the executor in use, which may not be the one asked for
+     */
+    public BlockingProperties.ExecutorType getType() {
+        return type;
+    }
+
+    /**
+     * Make the call when the result is subscribed to.
+     *
+     * @param call blocks, then returns a Mono
+     * @return the Mono the call returns
+     */
+    public <T> Mono<T> mono(Callable<? extends Publisher<T>> call) {
+        return call(call).flatMap(Mono::from);
+    }
+
+    /**
+     * Make the call when the result is subscribed to.
+     *
+     * @param call blocks, then returns a Flux
+     * @return the Flux the call returns
+     */
+    public <T> Flux<T> flux(Callable<? extends Publisher<T>> call) {
+        return call(call).flatMapMany(Flux::from);
+    }
+
+    /**
+     * Cancelling interrupts the call. The InterruptedException that ends it then has nowhere to go, so it is dropped
+     * here, rather than logged as an error nobody asked for.
+     */
+    private <T> Mono<Publisher<T>> call(Callable<? extends Publisher<T>> call) {
+        return Mono.defer(() -> {
+            AtomicBoolean cancelled = new AtomicBoolean();
+            return Mono.<Publisher<T>>fromCallable(() -> blocking(call, cancelled))
+                    .subscribeOn(scheduler)
+                    .doOnCancel(() -> cancelled.set(true));
+        });
+    }
+
+    private <T> Publisher<T> blocking(Callable<? extends Publisher<T>> call, AtomicBoolean cancelled) throws Exception {
+        active.incrementAndGet();
+        try {
+            return call.call();
+        } catch (InterruptedException e) {
+            if (!cancelled.get()) {
+                throw e;
+            }
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,47 @@
+package io.pivotal.rsocketserver.blocking;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+
+/**
+ * Calls {@link Blocking} methods on the {@link BlockingExecutor}. The caller gets a Mono or Flux straight away,
+ * and the method is called when it is subscribed to.
+ */
+public class BlockingInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<BlockingExecutor> executor;
+
+    public BlockingInterceptor(ObjectProvider<BlockingExecutor> executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (Mono.class.isAssignableFrom(method.getReturnType())) {
+            return executor.getObject().mono(() -> proceed(invocation));
+        }
+        if (Flux.class.isAssignableFrom(method.getReturnType())) {
+            return executor.getObject().flux(() -> proceed(invocation));
+        }
+        throw new IllegalStateException("@Blocking method " + method + " must return a Mono or a Flux");
+    }
+
+    private static Publisher<Object> proceed(MethodInvocation invocation) throws Exception {
+        try {
+            @SuppressWarnings("unchecked")
+            Publisher<Object> result = (Publisher<Object>) invocation.proceed();
+            return result != null ? result : Mono.empty();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.pivotal.rsocketserver.blocking;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the executor that @{@link Blocking} handlers are called on.
+ */
+@Data
+@ConfigurationProperties("rsocket.blocking")
+public class BlockingProperties {
+
+    /**
+     * What to call blocking handlers on.
+     */
+    private ExecutorType executor = ExecutorType.VIRTUAL;
+
+    /**
+     * The most threads the BOUNDED_ELASTIC executor starts. Calls queue once they are all busy.
+     */
+    private int maxThreads = 10 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The most calls the BOUNDED_ELASTIC executor queues before it rejects more.
+     */
+    private int maxQueued = 100_000;
+
+    public enum ExecutorType {
+        /**
+         * A new virtual thread for every call, when running on Java 21 or later. On older JVMs this falls back to
+         * BOUNDED_ELASTIC.
+         */
+        VIRTUAL,
+        /**
+         * A pool of platform threads that grows to 'max-threads', like Reactor's boundedElastic scheduler.
+         */
+        BOUNDED_ELASTIC
+    }
+}
@@ -0,0 +1,41 @@
+package io.pivotal.rsocketserver.broadcast;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the per-client broadcast queues.
+ */
+@Data
+@ConfigurationProperties("rsocket.broadcast")
+public class BroadcastProperties {
+
+    /**
+     * The maximum number of broadcast messages queued for a client that has no outstanding demand.
+     */
+    private int bufferSize = 256;
+
+    /**
+     * What to do when a client's queue is full.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+    public enum OverflowPolicy {
+        /**
+         * Drop the oldest queued message to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the new message, keeping the messages already queued.
+         */
+        DROP_LATEST,
+        /**
+         * Keep only the most recent message, whatever the buffer size.
+         */
+        DOWNSAMPLE,
+        /**
+         * Stop broadcasting to the client altogether.
+         */
+        DETACH
+    }
+}
@@ -0,0 +1,115 @@
+package io.pivotal.rsocketserver.broadcast;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.pivotal.rsocketserver.clients.ConnectedClient;
+import io.pivotal.rsocketserver.data.Message;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans a Message out to every connected client.
+ * Each client gets its own bounded queue which is drained only as fast as the client requests messages
+ * (RSocket request(n) demand), so a slow client never blocks the others. When a client's queue is full,
+ * the configured {@link BroadcastProperties.OverflowPolicy} decides what gets dropped.
+ */
+@Slf4j
+@Component
+public class MessageBroadcaster {
+
+    static final String ROUTE = "broadcast";
+
+    private final ConcurrentMap<ConnectedClient, FluxSink<Broadcast>> outboxes = new ConcurrentHashMap<>();
+    private final BroadcastProperties properties;
+    private final Timer fanOutLatency;
+    private final Counter dropped;
+
+    public MessageBroadcaster(BroadcastProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.fanOutLatency = Timer.builder("rsocket.broadcast.fanout")
+                .description("Time from a broadcast being published to it being sent to a client")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.dropped = Counter.builder("rsocket.broadcast.dropped")
+                .description("Broadcast messages dropped because a client was too slow")
+                .tag("policy", properties.getOverflowPolicy().name())
+                .register(registry);
+    }
+
+    /**
+     * Open a channel to the client's 'broadcast' route, through which all future broadcasts are sent.
+     *
+     * @param client
+     */
+    public void attach(ConnectedClient client) {
+        client.getRequester()
+                .route(ROUTE)
+                .data(outbox(client), Message.class)
+                .retrieveFlux(Void.class)
+                .subscribe(
+                        nothing -> { },
+                        error -> log.warn("Stopped broadcasting to client {}: {}", client.getClientId(), error.getMessage()));
+    }
+
+    /**
+     * Queue the message for every connected client.
+     *
+     * @param message
+     * @return the number of clients the message was queued for
+     */
+    public int broadcast(Message message) {
+        Broadcast broadcast = new Broadcast(message, System.nanoTime());
+        int clients = 0;
+        for (FluxSink<Broadcast> outbox : outboxes.values()) {
+            outbox.next(broadcast);
+            clients++;
+        }
+        return clients;
+    }
+
+    Flux<Message> outbox(ConnectedClient client) {
+        Flux<Broadcast> queued = Flux.create(sink -> {
+            outboxes.put(client, sink);
+            sink.onDispose(() -> outboxes.remove(client, sink));
+        }, FluxSink.OverflowStrategy.DROP);
+
+        return bounded(queued)
+                .map(broadcast -> {
+                    fanOutLatency.record(System.nanoTime() - broadcast.getPublished(), TimeUnit.NANOSECONDS);
+                    return broadcast.getMessage();
+                });
+    }
+
+    private Flux<Broadcast> bounded(Flux<Broadcast> queued) {
+        switch (properties.getOverflowPolicy()) {
+            case DROP_LATEST:
+                return queued.onBackpressureBuffer(properties.getBufferSize(), this::drop, BufferOverflowStrategy.DROP_LATEST);
+            case DOWNSAMPLE:
+                return queued.onBackpressureBuffer(1, this::drop, BufferOverflowStrategy.DROP_OLDEST);
+            case DETACH:
+                return queued.onBackpressureBuffer(properties.getBufferSize(), this::drop, BufferOverflowStrategy.ERROR);
+            case DROP_OLDEST:
+            default:
+                return queued.onBackpressureBuffer(properties.getBufferSize(), this::drop, BufferOverflowStrategy.DROP_OLDEST);
+        }
+    }
+
+    private void drop(Broadcast broadcast) {
+        dropped.increment();
+    }
+
+    @Value
+    static class Broadcast {
+        Message message;
+        long published;
+    }
+}
@@ -0,0 +1,38 @@
+package io.pivotal.rsocketserver.cache;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a request-response @MessageMapping method (one returning a Mono) whose response can be reused for
+ * identical requests. Responses are keyed by the route and the method's decoded arguments, that is the payload
+ * and any @DestinationVariable values. Identical requests that arrive while the first is still in flight share
+ * its result rather than calling the method again. Errors and empty responses are never cached.
+ * <p>
+ * Authorization still runs for every request, before the cache is consulted.
+ * Only use this on methods whose result depends on nothing but their arguments.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachedResponse {
+
+    /**
+     * The most responses to keep. The cache evicts with W-TinyLFU once it is full.
+     */
+    long maximumSize() default 10_000;
+
+    /**
+     * How long a response is reused for, e.g. "30s" or "PT1M".
+     */
+    String expireAfterWrite() default "1m";
+
+    /**
+     * Whether each user gets their own responses, by adding the @AuthenticationPrincipal to the key.
+     * Otherwise the principal is left out of the key, and all authorized users share responses.
+     */
+    boolean perUser() default false;
+}
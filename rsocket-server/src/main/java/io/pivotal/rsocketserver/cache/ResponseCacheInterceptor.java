@@ -0,0 +1,123 @@
+package io.pivotal.rsocketserver.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Serves {@link CachedResponse} methods from a Caffeine cache, one cache per method.
+ * The cache holds the in-flight future as well as the completed response, which is what coalesces identical
+ * concurrent requests into a single call. Hits, misses, evictions and size are published for each route under
+ * the usual 'cache.*' metric names.
+ */
+@Slf4j
+public class ResponseCacheInterceptor implements MethodInterceptor {
+
+    private final ConcurrentMap<Method, AsyncCache<Key, Object>> caches = new ConcurrentHashMap<>();
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public ResponseCacheInterceptor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        CachedResponse cached = AnnotatedElementUtils.findMergedAnnotation(method, CachedResponse.class);
+        if (cached == null || !Mono.class.isAssignableFrom(method.getReturnType())) {
+            return invocation.proceed();
+        }
+        AsyncCache<Key, Object> cache = caches.computeIfAbsent(method, m -> newCache(m, cached));
+        Key key = key(invocation, cached);
+
+        // The first caller's context goes with the call, as it would if the method had been called directly
+        return Mono.subscriberContext().flatMap(context -> Mono.fromFuture(
+                cache.get(key, (k, executor) -> toFuture(proceed(invocation).subscriberContext(context)))
+                        // Cancelling a copy leaves the shared future for the other callers
+                        .thenApply(Function.identity())));
+    }
+
+    private AsyncCache<Key, Object> newCache(Method method, CachedResponse cached) {
+        String route = route(method);
+        log.info("Caching responses to '{}' (maximum size {}, expire after write {}, per user {})",
+                route, cached.maximumSize(), cached.expireAfterWrite(), cached.perUser());
+        AsyncCache<Key, Object> cache = Caffeine.newBuilder()
+                .maximumSize(cached.maximumSize())
+                .expireAfterWrite(DurationStyle.detectAndParse(cached.expireAfterWrite()))
+                .recordStats()
+                .buildAsync();
+        registry.ifAvailable(meters -> CaffeineCacheMetrics.monitor(meters, cache, route));
+        return cache;
+    }
+
+    private static Key key(MethodInvocation invocation, CachedResponse cached) {
+        Method method = invocation.getMethod();
+        Object[] arguments = invocation.getArguments();
+        List<Object> values = new ArrayList<>(arguments.length);
+        String user = null;
+        for (int i = 0; i < arguments.length; i++) {
+            if (method.getParameters()[i].isAnnotationPresent(AuthenticationPrincipal.class)) {
+                user = cached.perUser() ? username(arguments[i]) : null;
+            } else {
+                values.add(arguments[i]);
+            }
+        }
+        return new Key(route(method), values, user);
+    }
+
+    private static String route(Method method) {
+        MessageMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, MessageMapping.class);
+        return mapping != null && mapping.value().length > 0 ? String.join(",", mapping.value()) : method.getName();
+    }
+
+    private static String username(Object principal) {
+        if (principal instanceof UserDetails) {
+            return ((UserDetails) principal).getUsername();
+        }
+        if (principal instanceof Principal) {
+            return ((Principal) principal).getName();
+        }
+        return String.valueOf(principal);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<Object> toFuture(Mono<?> response) {
+        return (CompletableFuture<Object>) response.toFuture();
+    }
+
+    private static Mono<?> proceed(MethodInvocation invocation) {
+        try {
+            return (Mono<?>) invocation.proceed();
+        } catch (Throwable error) {
+            return Mono.error(error);
+        }
+    }
+
+    @Value
+    static class Key {
+        String route;
+        List<Object> arguments;
+        String user;
+    }
+}
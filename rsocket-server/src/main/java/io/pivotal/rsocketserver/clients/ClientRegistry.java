@@ -0,0 +1,84 @@
+package io.pivotal.rsocketserver.clients;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps track of the clients currently connected to this server.
+ * Clients are indexed by their client ID and by the name of the authenticated user, so that handlers can
+ * call back a specific client without scanning every connection. Adding, removing and looking up a client
+ * are O(1), and iterating the registry never blocks connects or disconnects happening on other threads.
+ */
+@Component
+public class ClientRegistry {
+
+    private final ConcurrentMap<String, ConnectedClient> clientsById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<ConnectedClient>> clientsByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Add a client to the registry. A client reconnecting with the same client ID replaces its old entry.
+     *
+     * @param client
+     */
+    public void register(ConnectedClient client) {
+        ConnectedClient replaced = clientsById.put(client.getClientId(), client);
+        if (replaced != null) {
+            removeFromUser(replaced);
+        }
+        clientsByUser.compute(client.getUsername(), (user, clients) -> {
+            Set<ConnectedClient> updated = clients == null ? ConcurrentHashMap.newKeySet() : clients;
+            updated.add(client);
+            return updated;
+        });
+    }
+
+    /**
+     * Remove a client from the registry, unless it has already been replaced by a newer connection
+     * using the same client ID.
+     *
+     * @param client
+     * @return true if the client was removed
+     */
+    public boolean unregister(ConnectedClient client) {
+        if (clientsById.remove(client.getClientId(), client)) {
+            removeFromUser(client);
+            return true;
+        }
+        return false;
+    }
+
+    public Optional<ConnectedClient> findById(String clientId) {
+        return Optional.ofNullable(clientsById.get(clientId));
+    }
+
+    public Collection<ConnectedClient> findByUser(String username) {
+        Set<ConnectedClient> clients = clientsByUser.get(username);
+        return clients == null ? Collections.emptySet() : Collections.unmodifiableSet(clients);
+    }
+
+    /**
+     * A live, weakly consistent view of all connected clients. It is safe to iterate while clients come and go.
+     *
+     * @return all connected clients
+     */
+    public Collection<ConnectedClient> all() {
+        return Collections.unmodifiableCollection(clientsById.values());
+    }
+
+    public int size() {
+        return clientsById.size();
+    }
+
+    private void removeFromUser(ConnectedClient client) {
+        clientsByUser.computeIfPresent(client.getUsername(), (user, clients) -> {
+            clients.remove(client);
+            return clients.isEmpty() ? null : clients;
+        });
+    }
+}
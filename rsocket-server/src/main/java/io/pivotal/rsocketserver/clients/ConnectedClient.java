@@ -0,0 +1,14 @@
+package io.pivotal.rsocketserver.clients;
+
+import lombok.Value;
+import org.springframework.messaging.rsocket.RSocketRequester;
+
+/**
+ * A shell client connected to this server, identified by the client ID sent in its setup payload.
+ */
+@Value
+public class ConnectedClient {
+    String clientId;
+    String username;
+    RSocketRequester requester;
+}
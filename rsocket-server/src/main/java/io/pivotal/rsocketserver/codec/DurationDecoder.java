@@ -0,0 +1,41 @@
+package io.pivotal.rsocketserver.codec;
+
+import io.netty.buffer.ByteBuf;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Reads the channel's Duration settings in the {@link BinaryFormat}: seconds as a long, then nanos as an int.
+ */
+public class DurationDecoder extends AbstractDataBufferDecoder<Duration> {
+
+    public DurationDecoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return Duration.class.equals(elementType.toClass()) && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Duration decode(DataBuffer dataBuffer, ResolvableType targetType,
+                           MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+        try {
+            ByteBuf buffer = BinaryFormat.unwrap(dataBuffer);
+            BinaryFormat.readVersion(buffer);
+            return Duration.ofSeconds(buffer.readLong(), buffer.readInt());
+        } catch (IndexOutOfBoundsException ex) {
+            throw new DecodingException("Truncated Duration payload", ex);
+        } finally {
+            DataBufferUtils.release(dataBuffer);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.pivotal.rsocketserver.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.pivotal.rsocketserver.data.Message;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a List of Messages written by the {@link MessageBatchEncoder} directly from the frame's buffer, then
+ * releases it.
+ */
+public class MessageBatchDecoder extends AbstractDataBufferDecoder<List<Message>> {
+
+    // Two empty strings and two longs
+    private static final int MIN_MESSAGE_SIZE = Short.BYTES + Short.BYTES + Long.BYTES + Long.BYTES;
+
+    public MessageBatchDecoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return List.class.equals(elementType.toClass())
+                && Message.class.equals(elementType.getGeneric(0).toClass())
+                && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public List<Message> decode(DataBuffer dataBuffer, ResolvableType targetType,
+                                MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+        try {
+            ByteBuf buffer = BinaryFormat.unwrap(dataBuffer);
+            BinaryFormat.readVersion(buffer);
+            int count = buffer.readInt();
+            if (count < 0 || count > buffer.readableBytes() / MIN_MESSAGE_SIZE) {
+                throw new DecodingException("Batch of " + count + " Messages can't fit in the remaining "
+                        + buffer.readableBytes() + " bytes");
+            }
+            List<Message> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(MessageDecoder.read(buffer));
+            }
+            return batch;
+        } catch (IndexOutOfBoundsException ex) {
+            throw new DecodingException("Truncated Message batch payload", ex);
+        } finally {
+            DataBufferUtils.release(dataBuffer);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.pivotal.rsocketserver.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.pivotal.rsocketserver.data.Message;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a List of Messages in the {@link BinaryFormat} as one payload: the version, the number of Messages as an
+ * int, then the fields of each Message. Sending a batch in one frame saves the frame header, and the version, on
+ * every Message but the first.
+ */
+public class MessageBatchEncoder extends AbstractEncoder<List<Message>> {
+
+    public MessageBatchEncoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return List.class.isAssignableFrom(elementType.toClass())
+                && Message.class.isAssignableFrom(elementType.getGeneric(0).toClass())
+                && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends List<Message>> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(batch -> encodeValue(batch, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(List<Message> batch, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        ByteBuf buffer = BinaryFormat.allocate(bufferFactory, sizeOf(batch));
+        try {
+            buffer.writeByte(BinaryFormat.VERSION);
+            buffer.writeInt(batch.size());
+            for (Message message : batch) {
+                MessageEncoder.write(buffer, message);
+            }
+            return BinaryFormat.wrap(bufferFactory, buffer);
+        } catch (RuntimeException ex) {
+            buffer.release();
+            throw ex;
+        }
+    }
+
+    private static int sizeOf(List<Message> batch) {
+        int size = Byte.BYTES + Integer.BYTES;
+        for (Message message : batch) {
+            size += MessageEncoder.sizeOfFields(message);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,54 @@
+package io.pivotal.rsocketserver.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.pivotal.rsocketserver.data.Message;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+/**
+ * Reads a Message in the {@link BinaryFormat} directly from the frame's buffer, then releases it.
+ * No bytes are copied, so this works with RSocket's zero-copy payload decoding.
+ */
+public class MessageDecoder extends AbstractDataBufferDecoder<Message> {
+
+    public MessageDecoder() {
+        super(BinaryFormat.MIME_TYPE);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return Message.class.equals(elementType.toClass()) && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Message decode(DataBuffer dataBuffer, ResolvableType targetType,
+                          MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+        try {
+            ByteBuf buffer = BinaryFormat.unwrap(dataBuffer);
+            BinaryFormat.readVersion(buffer);
+            return read(buffer);
+        } catch (IndexOutOfBoundsException ex) {
+            throw new DecodingException("Truncated Message payload", ex);
+        } finally {
+            DataBufferUtils.release(dataBuffer);
+        }
+    }
+
+    /**
+     * Read the Message's fields, after the version.
+     */
+    static Message read(ByteBuf buffer) {
+        Message message = new Message();
+        message.setOrigin(BinaryFormat.readString(buffer));
+        message.setInteraction(BinaryFormat.readString(buffer));
+        message.setIndex(buffer.readLong());
+        message.setCreated(buffer.readLong());
+        return message;
+    }
+}
@@ -0,0 +1,45 @@
+package io.pivotal.rsocketserver.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.pivotal.rsocketserver.data.Message;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each event to a local file, as one line of JSON. The file is flushed after every batch.
+ */
+public class FileIngestSink implements IngestSink {
+
+    private final ObjectWriter json;
+    private final BufferedWriter out;
+
+    public FileIngestSink(Path file, ObjectMapper mapper) throws IOException {
+        if (null != file.getParent()) {
+            Files.createDirectories(file.getParent());
+        }
+        this.json = mapper.writerFor(Message.class);
+        this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void write(List<Message> events) throws IOException {
+        for (Message event : events) {
+            out.write(json.writeValueAsString(event));
+            out.newLine();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,192 @@
+package io.pivotal.rsocketserver.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.exceptions.RejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.jctools.queues.MpscArrayQueue;
+import reactor.core.publisher.Mono;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes the events sent to the 'fire-and-forget' route off the event loop, and writes them to an
+ * {@link IngestSink} in batches.
+ * <p>
+ * Events go into a bounded multi-producer, single-consumer ring buffer, which absorbs bursts without locking,
+ * so handing an event over never blocks the connection's event loop, however slow the sink. A single writer
+ * thread drains the buffer, and writes a batch once it holds 'batch-size' events or its oldest event has
+ * waited 'flush-interval'. While the buffer is empty the writer sleeps until the batch is due, or until the next
+ * event arrives if it has no batch. When the buffer is full the {@link IngestProperties.OverflowPolicy} decides what
+ * happens to new events.
+ */
+@Slf4j
+public class IngestPipeline implements Closeable {
+
+    private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final MpscArrayQueue<Message> buffer;
+    private final IngestSink sink;
+    private final IngestProperties.OverflowPolicy policy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    // How many events are buffered before the SAMPLE policy starts dropping them
+    private final int sampleFrom;
+    private final int sampleEvery;
+    private final AtomicLong sampled = new AtomicLong();
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+    private final Timer flushes;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Whether the writer is, or is about to be, parked waiting for events
+    private volatile boolean idle;
+
+    public IngestPipeline(IngestProperties properties, IngestSink sink, MeterRegistry registry) {
+        this.buffer = new MpscArrayQueue<>(properties.getBufferSize());
+        this.sink = sink;
+        this.policy = properties.getOverflowPolicy();
+        this.batchSize = properties.getBatchSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.sampleFrom = (int) (buffer.capacity() * properties.getSampleThreshold());
+        this.sampleEvery = properties.getSampleEvery();
+        Gauge.builder("rsocket.ingest.queued", buffer, MpscArrayQueue::size)
+                .description("Events waiting to be written")
+                .register(registry);
+        this.dropped = Counter.builder("rsocket.ingest.dropped")
+                .description("Events dropped or rejected because the buffer was full")
+                .tag("policy", policy.name())
+                .register(registry);
+        this.written = Counter.builder("rsocket.ingest.written")
+                .description("Events written to the sink")
+                .register(registry);
+        this.failed = Counter.builder("rsocket.ingest.failed")
+                .description("Events lost because the sink couldn't write them")
+                .register(registry);
+        this.flushes = Timer.builder("rsocket.ingest.flush")
+                .description("Time to write one batch of events to the sink")
+                .register(registry);
+        this.writer = new Thread(this::drain, "rsocket-ingest");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue the event to be written.
+     *
+     * @param event
+     * @return an empty Mono, or a {@link RejectedException} if the event was refused under the REJECT policy
+     */
+    public Mono<Void> ingest(Message event) {
+        if (offer(event) || IngestProperties.OverflowPolicy.REJECT != policy) {
+            return Mono.empty();
+        }
+        return Mono.error(new RejectedException("Too many events waiting to be written"));
+    }
+
+    /**
+     * @return whether the event was queued
+     */
+    boolean offer(Message event) {
+        if (IngestProperties.OverflowPolicy.SAMPLE == policy && buffer.size() >= sampleFrom
+                && sampled.getAndIncrement() % sampleEvery != 0) {
+            dropped.increment();
+            return false;
+        }
+        if (!running || !buffer.offer(event)) {
+            dropped.increment();
+            return false;
+        }
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * @return whether new events are being refused, under the REJECT policy
+     */
+    public boolean isRejecting() {
+        return IngestProperties.OverflowPolicy.REJECT == policy && buffer.size() >= buffer.capacity();
+    }
+
+    private void drain() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        while (running || !buffer.isEmpty()) {
+            int drained = buffer.drain(batch::add, batchSize - batch.size());
+            if (drained > 0 && batch.size() == drained) {
+                // The batch's oldest event has just arrived
+                deadline = System.nanoTime() + flushIntervalNanos;
+            }
+            if (batch.size() == batchSize || (!batch.isEmpty() && System.nanoTime() - deadline >= 0)) {
+                flush(batch);
+            } else if (drained == 0) {
+                park(batch.isEmpty() ? 0 : Math.max(1, deadline - System.nanoTime()));
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Wait for an event, or until the batch is due.
+     *
+     * @param nanos the longest to wait, or 0 for as long as it takes
+     */
+    private void park(long nanos) {
+        idle = true;
+        // Look again, as an event offered before the writer was idle wouldn't have woken it
+        if (running && buffer.isEmpty()) {
+            if (nanos > 0) {
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        idle = false;
+    }
+
+    private void flush(List<Message> batch) {
+        long start = System.nanoTime();
+        try {
+            sink.write(batch);
+            written.increment(batch.size());
+        } catch (IOException | RuntimeException e) {
+            failed.increment(batch.size());
+            log.warn("Couldn't write {} events: {}", batch.size(), e.toString());
+        } finally {
+            flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Stop taking events, and write the ones still buffered before closing the sink.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Gave up waiting for {} events to be written.", buffer.size());
+        }
+        sink.close();
+    }
+}
@@ -0,0 +1,77 @@
+package io.pivotal.rsocketserver.ingest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings for the pipeline behind the 'fire-and-forget' route.
+ */
+@Data
+@Validated
+@ConfigurationProperties("rsocket.ingest")
+public class IngestProperties {
+
+    /**
+     * The most events waiting to be written. Rounded up to a power of 2.
+     */
+    @Min(1)
+    private int bufferSize = 65536;
+
+    /**
+     * The most events written to the sink at once.
+     */
+    @Min(1)
+    private int batchSize = 1024;
+
+    /**
+     * The longest an event waits for its batch to fill before the batch is written anyway.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * What to do with new events when the buffer is full.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    /**
+     * How full the buffer is, from 0 to 1, before the SAMPLE policy starts dropping events.
+     */
+    @DecimalMin("0")
+    @DecimalMax("1")
+    private double sampleThreshold = 0.5;
+
+    /**
+     * The SAMPLE policy keeps 1 in every N events once the buffer is past the threshold.
+     */
+    @Min(1)
+    private int sampleEvery = 10;
+
+    /**
+     * The file the default sink appends events to, one JSON document per line.
+     */
+    private Path file = Paths.get(System.getProperty("java.io.tmpdir"), "rsocket-ingest", "events.jsonl");
+
+    public enum OverflowPolicy {
+        /**
+         * Drop new events while the buffer is full.
+         */
+        DROP,
+        /**
+         * Keep only a sample of the new events once the buffer is past the threshold, and drop them all
+         * while it is full.
+         */
+        SAMPLE,
+        /**
+         * Refuse new events while the buffer is full, with a rejected error.
+         */
+        REJECT
+    }
+}
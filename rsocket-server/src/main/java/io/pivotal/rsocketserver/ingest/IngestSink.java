@@ -0,0 +1,26 @@
+package io.pivotal.rsocketserver.ingest;
+
+import io.pivotal.rsocketserver.data.Message;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the {@link IngestPipeline} writes its batches of events. Declare a bean of this type to replace the
+ * default {@link FileIngestSink}.
+ * <p>
+ * Batches are written one at a time, from the pipeline's own thread, so a sink may block.
+ */
+public interface IngestSink extends Closeable {
+
+    /**
+     * @param events the batch, which is reused once this returns, so it must be copied to be kept
+     * @throws IOException if the events couldn't be written. They are counted as failed, and not tried again.
+     */
+    void write(List<Message> events) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
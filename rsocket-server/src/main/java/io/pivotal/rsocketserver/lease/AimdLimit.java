@@ -0,0 +1,102 @@
+package io.pivotal.rsocketserver.lease;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A concurrency limit that finds how many requests the server can handle at once, from how long they take.
+ * Additive increase, multiplicative decrease: a request slower than the threshold multiplies the limit by the
+ * backoff ratio, and each one that isn't adds 1, as long as at least half the limit is in use (so that a quiet server
+ * doesn't raise its limit on no evidence).
+ * <p>
+ * Only requests that started after the last cut can cut the limit again. The others were let in under the old limit,
+ * so their being slow is no news, and a burst of them would otherwise cut it to the minimum at once.
+ * <p>
+ * It also keeps a moving average of the latency, from which {@link LeaseAdmission} works out how many requests the
+ * limit lets through in a given time.
+ */
+public class AimdLimit {
+
+    // How much each new latency counts towards the average
+    private static final double WEIGHT = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long thresholdNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Changed holding the lock
+    private volatile double limit;
+    // How many times the limit has been cut, changed holding the lock
+    private volatile long cuts;
+    // Changed holding the lock, and negative until a request has ended
+    private volatile double latencyNanos = -1;
+
+    public AimdLimit(LeaseProperties properties) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.thresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the average time a request takes, or a negative number if none has ended yet
+     */
+    public double latencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return how many more requests can start now
+     */
+    public int headroom() {
+        return Math.max(0, limit() - inFlight());
+    }
+
+    /**
+     * A request has started.
+     *
+     * @return the ticket to end it with
+     */
+    long start() {
+        inFlight.incrementAndGet();
+        return cuts;
+    }
+
+    /**
+     * A request has ended.
+     *
+     * @param ticket       from {@link #start()}
+     * @param latencyNanos how long it took
+     */
+    void end(long ticket, long latencyNanos) {
+        int inFlight = this.inFlight.getAndDecrement();
+        synchronized (this) {
+            double average = this.latencyNanos;
+            this.latencyNanos = average < 0 ? latencyNanos : average + WEIGHT * (latencyNanos - average);
+            if (latencyNanos > thresholdNanos) {
+                if (ticket == cuts) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    cuts++;
+                }
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    /**
+     * A request was cancelled, which says nothing about how long it would have taken.
+     */
+    void cancel() {
+        inFlight.decrementAndGet();
+    }
+}
@@ -0,0 +1,153 @@
+package io.pivotal.rsocketserver.lease;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.LeaseStats;
+import io.rsocket.lease.Leases;
+import io.rsocket.plugins.RSocketInterceptor;
+import io.rsocket.util.RSocketProxy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Admits requests through RSocket leases, so an overloaded server sheds load instead of getting slower for everyone.
+ * <p>
+ * Every 'interval' each connection is leased its share of the requests the {@link AimdLimit} lets through in that
+ * time, split evenly between the connections. By Little's law that is the limit times the interval over the average
+ * latency: a limit of 10 requests at once, each taking 1ms, serves 500 requests in 50ms, not 10. Until a request has
+ * ended, or if requests take longer than the interval, it is the headroom, the limit less the requests in flight.
+ * A client honouring leases sends no more than that, and the server rejects any requests beyond it. When there is no
+ * headroom, or the server is otherwise overloaded, no lease is sent, and the last one soon runs out.
+ * <p>
+ * The limit follows the latency of request-response and fire-and-forget requests, which this also intercepts. Streams
+ * and channels each take one request from a lease, but aren't counted in flight: they can run for as long as the
+ * client likes, and their first message may be late on purpose.
+ */
+public class LeaseAdmission implements RSocketInterceptor {
+
+    private final AimdLimit limit;
+    private final Duration interval;
+    private final int timeToLiveMillis;
+    private final BooleanSupplier overloaded;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Counter granted;
+    private final Counter rejected;
+
+    /**
+     * @param overloaded whether to stop leasing requests whatever the limit
+     */
+    public LeaseAdmission(AimdLimit limit, LeaseProperties properties, BooleanSupplier overloaded,
+                          MeterRegistry registry) {
+        this.limit = limit;
+        this.interval = properties.getInterval();
+        this.timeToLiveMillis = (int) Math.max(1, properties.getInterval().toMillis() * 2);
+        this.overloaded = overloaded;
+        Gauge.builder("rsocket.lease.limit", limit, AimdLimit::limit)
+                .description("Requests the server takes at once")
+                .register(registry);
+        Gauge.builder("rsocket.lease.in-flight", limit, AimdLimit::inFlight)
+                .description("Request-response and fire-and-forget requests in progress")
+                .register(registry);
+        this.granted = Counter.builder("rsocket.lease.granted")
+                .description("Requests leased to clients")
+                .register(registry);
+        this.rejected = Counter.builder("rsocket.lease.rejected")
+                .description("Requests rejected for want of a lease")
+                .register(registry);
+    }
+
+    /**
+     * @return the leases for a new connection
+     */
+    public Leases<?> leases() {
+        return Leases.<Rejections>create()
+                .sender(stats -> Flux.interval(Duration.ZERO, interval)
+                        .map(tick -> budget())
+                        .filter(budget -> budget > 0)
+                        .map(budget -> {
+                            granted.increment(budget);
+                            return Lease.create(timeToLiveMillis, budget);
+                        })
+                        .doOnSubscribe(subscription -> connections.incrementAndGet())
+                        .doFinally(signal -> connections.decrementAndGet()))
+                .stats(new Rejections());
+    }
+
+    /**
+     * @return the requests to lease one connection
+     */
+    int budget() {
+        if (overloaded.getAsBoolean()) {
+            return 0;
+        }
+        int headroom = limit.headroom();
+        if (0 == headroom) {
+            return 0;
+        }
+        long total = headroom;
+        double latencyNanos = limit.latencyNanos();
+        if (latencyNanos > 0) {
+            total = Math.max(total, (long) Math.ceil(limit.limit() * (double) interval.toNanos() / latencyNanos));
+        }
+        long connections = Math.max(1, this.connections.get());
+        // Round up, so every connection gets at least one while there is any headroom
+        return (int) Math.min(Integer.MAX_VALUE, (total + connections - 1) / connections);
+    }
+
+    @Override
+    public RSocket apply(RSocket rSocket) {
+        return new LimitedRSocket(rSocket);
+    }
+
+    private final class LimitedRSocket extends RSocketProxy {
+
+        LimitedRSocket(RSocket source) {
+            super(source);
+        }
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            return Mono.defer(() -> {
+                long ticket = limit.start();
+                long start = System.nanoTime();
+                return super.fireAndForget(payload).doFinally(signal -> end(ticket, start, signal));
+            });
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            return Mono.defer(() -> {
+                long ticket = limit.start();
+                long start = System.nanoTime();
+                return super.requestResponse(payload).doFinally(signal -> end(ticket, start, signal));
+            });
+        }
+    }
+
+    private void end(long ticket, long start, SignalType signal) {
+        if (SignalType.CANCEL == signal) {
+            limit.cancel();
+        } else {
+            limit.end(ticket, System.nanoTime() - start);
+        }
+    }
+
+    private final class Rejections implements LeaseStats {
+
+        @Override
+        public void onEvent(EventType eventType) {
+            if (EventType.REJECT == eventType) {
+                rejected.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.pivotal.rsocketserver.lease;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the leases the server gives each connection, and the concurrency limit they are worked out from.
+ */
+@Data
+@ConfigurationProperties("rsocket.lease")
+public class LeaseProperties {
+
+    /**
+     * How often each connection gets a new lease. Each lease lasts for two of these, unless the next replaces it.
+     */
+    private Duration interval = Duration.ofMillis(20);
+
+    /**
+     * The concurrency limit to start from.
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 1;
+
+    private int maxLimit = 1000;
+
+    /**
+     * Requests slower than this are taken as a sign of overload, and cut the limit.
+     */
+    private Duration latencyThreshold = Duration.ofMillis(50);
+
+    /**
+     * What the limit is multiplied by on each sign of overload.
+     */
+    private double backoffRatio = 0.9;
+}
@@ -0,0 +1,31 @@
+package io.pivotal.rsocketserver.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for sampling the per-request log lines. These are the starting values, which can be changed at
+ * runtime through the RequestLogSampler MBean.
+ */
+@Data
+@ConfigurationProperties("rsocket.logging")
+public class LogSamplingProperties {
+
+    /**
+     * Log 1 in every N requests on each route. 1 logs every request.
+     */
+    private int every = 1;
+
+    /**
+     * Per-route overrides of 'every', e.g. rsocket.logging.routes.request-response=1000.
+     */
+    private Map<String, Integer> routes = new HashMap<>();
+
+    /**
+     * The most requests to log on each route each second, whatever the sampling. 0 means no limit.
+     */
+    private int maxPerSecond = 0;
+}
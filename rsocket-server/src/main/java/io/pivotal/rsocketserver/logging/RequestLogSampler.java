@@ -0,0 +1,117 @@
+package io.pivotal.rsocketserver.logging;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which requests get logged, so that busy routes keep an audit trail without logging every request.
+ * Each route logs 1 in every N requests, and at most a set number each second. Checking costs two atomic
+ * increments and allocates nothing, so handlers should ask before building any log arguments.
+ * <p>
+ * Sampling can be changed while the server runs, through JMX.
+ */
+@Component
+@ManagedResource(objectName = "io.pivotal.rsocketserver:type=RequestLogSampler",
+        description = "Sampling of the per-request log lines")
+public class RequestLogSampler {
+
+    private final ConcurrentMap<String, RouteSampling> routes = new ConcurrentHashMap<>();
+    private volatile int every;
+    private volatile int maxPerSecond;
+
+    public RequestLogSampler(LogSamplingProperties properties) {
+        setEvery(properties.getEvery());
+        setMaxPerSecond(properties.getMaxPerSecond());
+        properties.getRoutes().forEach(this::setRouteEvery);
+    }
+
+    /**
+     * @param route
+     * @return true if this request on the route should be logged
+     */
+    public boolean sample(String route) {
+        return routes.computeIfAbsent(route, key -> new RouteSampling(0)).sample(every, maxPerSecond);
+    }
+
+    @ManagedAttribute(description = "Log 1 in every N requests, on routes without their own setting")
+    public int getEvery() {
+        return every;
+    }
+
+    @ManagedAttribute
+    public void setEvery(int every) {
+        this.every = Math.max(1, every);
+    }
+
+    @ManagedAttribute(description = "The most requests to log on each route each second, or 0 for no limit")
+    public int getMaxPerSecond() {
+        return maxPerSecond;
+    }
+
+    @ManagedAttribute
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = Math.max(0, maxPerSecond);
+    }
+
+    @ManagedOperation(description = "Log 1 in every N requests on the route, or 0 to go back to the default")
+    public void setRouteEvery(String route, int every) {
+        routes.computeIfAbsent(route, key -> new RouteSampling(0)).every = Math.max(0, every);
+    }
+
+    @ManagedAttribute(description = "Requests logged and skipped on each route")
+    public String getCounts() {
+        StringBuilder counts = new StringBuilder();
+        for (Map.Entry<String, RouteSampling> route : routes.entrySet()) {
+            counts.append(route.getKey()).append(": ")
+                    .append(route.getValue().logged.get()).append(" logged, ")
+                    .append(route.getValue().skipped.get()).append(" skipped\n");
+        }
+        return counts.toString();
+    }
+
+    private static final class RouteSampling {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong logged = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicInteger loggedThisSecond = new AtomicInteger();
+        private volatile long second;
+        private volatile int every;
+
+        RouteSampling(int every) {
+            this.every = every;
+        }
+
+        boolean sample(int defaultEvery, int maxPerSecond) {
+            int n = every > 0 ? every : defaultEvery;
+            if (requests.getAndIncrement() % n != 0 || !withinRate(maxPerSecond)) {
+                skipped.incrementAndGet();
+                return false;
+            }
+            logged.incrementAndGet();
+            return true;
+        }
+
+        private boolean withinRate(int maxPerSecond) {
+            if (maxPerSecond <= 0) {
+                return true;
+            }
+            long now = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+            if (now != second) {
+                // A race here can let a few extra lines through as the second turns over, which is fine
+                second = now;
+                loggedThisSecond.set(0);
+            }
+            return loggedThisSecond.incrementAndGet() <= maxPerSecond;
+        }
+    }
+}
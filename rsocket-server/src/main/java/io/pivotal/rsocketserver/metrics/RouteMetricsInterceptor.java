@@ -0,0 +1,125 @@
+package io.pivotal.rsocketserver.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.plugins.RSocketInterceptor;
+import io.rsocket.util.RSocketProxy;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Times every request the server responds to, whatever handles it.
+ * <ul>
+ * <li>rsocket.requests (timer): how long each request took, from the request arriving to its response completing,
+ * failing or being cancelled. Tagged with the route pattern, the interaction model and the outcome
+ * (success, error or cancelled). The count gives request and cancellation rates.</li>
+ * <li>rsocket.requests.elements (summary): how many messages each stream or channel sent back.</li>
+ * </ul>
+ * Errors include requests that were denied by security, as this interceptor sits in front of it.
+ */
+public class RouteMetricsInterceptor implements RSocketInterceptor {
+
+    static final String REQUESTS = "rsocket.requests";
+    static final String ELEMENTS = "rsocket.requests.elements";
+
+    private final MeterRegistry registry;
+    private final RoutePatterns routes;
+
+    public RouteMetricsInterceptor(MeterRegistry registry, RoutePatterns routes) {
+        this.registry = registry;
+        this.routes = routes;
+    }
+
+    @Override
+    public RSocket apply(RSocket rSocket) {
+        return new MeteredRSocket(rSocket);
+    }
+
+    private final class MeteredRSocket extends RSocketProxy {
+
+        MeteredRSocket(RSocket source) {
+            super(source);
+        }
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            // Read the route first: the handler releases the payload
+            String route = RoutePatterns.route(payload);
+            return metered(super.fireAndForget(payload), route, "fire-and-forget");
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            String route = RoutePatterns.route(payload);
+            return metered(super.requestResponse(payload), route, "request-response");
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            String route = RoutePatterns.route(payload);
+            return metered(super.requestStream(payload), route, "request-stream");
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+            // The route is in the first payload of the channel
+            return Flux.from(payloads).switchOnFirst((first, all) -> {
+                String route = first.hasValue() ? RoutePatterns.route(first.get()) : null;
+                return metered(super.requestChannel(all), route, "request-channel");
+            });
+        }
+    }
+
+    private <T> Mono<T> metered(Mono<T> response, String route, String interaction) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return response.doFinally(signal -> record(sample, route, interaction, signal));
+        });
+    }
+
+    private <T> Flux<T> metered(Flux<T> response, String route, String interaction) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            AtomicLong elements = new AtomicLong();
+            return response
+                    .doOnNext(element -> elements.incrementAndGet())
+                    .doFinally(signal -> {
+                        Tags tags = record(sample, route, interaction, signal);
+                        DistributionSummary.builder(ELEMENTS)
+                                .description("Messages sent back by each stream or channel")
+                                .tags(tags.and("outcome", outcome(signal)))
+                                .register(registry)
+                                .record(elements.get());
+                    });
+        });
+    }
+
+    private Tags record(Timer.Sample sample, String route, String interaction, SignalType signal) {
+        Tags tags = Tags.of("route", routes.patternFor(route), "interaction", interaction);
+        sample.stop(Timer.builder(REQUESTS)
+                .description("Requests handled, by route, interaction model and outcome")
+                .tags(tags.and("outcome", outcome(signal)))
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry));
+        return tags;
+    }
+
+    private static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+}
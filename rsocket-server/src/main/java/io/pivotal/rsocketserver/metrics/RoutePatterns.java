@@ -0,0 +1,88 @@
+package io.pivotal.rsocketserver.metrics;
+
+import io.netty.buffer.ByteBuf;
+import io.rsocket.Payload;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.RoutingMetadata;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.springframework.messaging.handler.CompositeMessageCondition;
+import org.springframework.messaging.handler.DestinationPatternsMessageCondition;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.util.RouteMatcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Maps the route of a request to the @MessageMapping pattern that handles it, e.g. 'stream.0.1.100' to
+ * 'stream.{rate}.{batch}.{count}'. Metrics are tagged with the pattern rather than the route the client sent,
+ * so that the number of tag values stays as small as the number of handlers.
+ */
+public class RoutePatterns {
+
+    public static final String UNMATCHED = "unmatched";
+
+    private static final String ROUTING = WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString();
+
+    private final RouteMatcher matcher;
+    private final List<String> patterns;
+
+    public RoutePatterns(RouteMatcher matcher, Collection<String> patterns) {
+        this.matcher = matcher;
+        this.patterns = new ArrayList<>(patterns);
+    }
+
+    /**
+     * The patterns of all the handler's @MessageMapping and @ConnectMapping methods.
+     *
+     * @param handler
+     * @return RoutePatterns
+     */
+    public static RoutePatterns of(RSocketMessageHandler handler) {
+        List<String> patterns = new ArrayList<>();
+        for (CompositeMessageCondition mapping : handler.getHandlerMethods().keySet()) {
+            patterns.addAll(mapping.getCondition(DestinationPatternsMessageCondition.class).getPatterns());
+        }
+        return new RoutePatterns(handler.getRouteMatcher(), patterns);
+    }
+
+    /**
+     * @param route the route sent by the client, or null if it sent none
+     * @return the matching pattern, or 'unmatched'
+     */
+    public String patternFor(String route) {
+        if (route == null) {
+            return UNMATCHED;
+        }
+        RouteMatcher.Route parsed = matcher.parseRoute(route);
+        for (String pattern : patterns) {
+            if (matcher.match(pattern, parsed)) {
+                return pattern;
+            }
+        }
+        return UNMATCHED;
+    }
+
+    /**
+     * The route in the payload's composite metadata, or null if it has none.
+     */
+    public static String route(Payload payload) {
+        if (!payload.hasMetadata()) {
+            return null;
+        }
+        try {
+            ByteBuf metadata = payload.sliceMetadata();
+            for (CompositeMetadata.Entry entry : new CompositeMetadata(metadata, false)) {
+                if (ROUTING.equals(entry.getMimeType())) {
+                    Iterator<String> tags = new RoutingMetadata(entry.getContent()).iterator();
+                    return tags.hasNext() ? tags.next() : null;
+                }
+            }
+        } catch (RuntimeException notComposite) {
+            // Only composite metadata carries a route
+        }
+        return null;
+    }
+}
@@ -0,0 +1,180 @@
+package io.pivotal.rsocketserver.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.metrics.RoutePatterns;
+import io.rsocket.exceptions.RejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.security.config.annotation.rsocket.PayloadInterceptorOrder;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.rsocket.api.PayloadExchange;
+import org.springframework.security.rsocket.api.PayloadExchangeType;
+import org.springframework.security.rsocket.api.PayloadInterceptor;
+import org.springframework.security.rsocket.api.PayloadInterceptorChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many requests each user, and each connection, makes on each route, with a {@link TokenBucket} per
+ * user and route, and per connection and route. A request over either limit fails straight away with a
+ * {@link RejectedException}, rather than waiting its turn, so one busy user can't hold up everyone else.
+ * A fire-and-forget request has no response to fail, so it is dropped.
+ * <p>
+ * This comes after authentication and authorization, so only requests that would otherwise have been handled take a
+ * token. A connection's buckets are made when it is set up, and kept in its context next to its authentication.
+ * A user's buckets are kept until they have been idle long enough to fill up again, when new ones would be the same.
+ */
+@Slf4j
+public class RateLimitInterceptor implements PayloadInterceptor, Ordered {
+
+    static final String USER = "user";
+    static final String CONNECTION = "connection";
+
+    private final RoutePatterns patterns;
+    private final Map<String, Route> routes = new HashMap<>();
+    private final List<Route> perConnection = new ArrayList<>();
+    private final List<Route> perUser = new ArrayList<>();
+    private final Cache<String, TokenBucket[]> users;
+
+    public RateLimitInterceptor(RoutePatterns patterns, RateLimitProperties properties, MeterRegistry registry) {
+        this.patterns = patterns;
+        long idleNanos = TimeUnit.SECONDS.toNanos(1);
+        for (Map.Entry<String, RateLimitProperties.RouteLimits> entry : properties.getRoutes().entrySet()) {
+            String pattern = patterns.patternFor(entry.getKey());
+            if (RoutePatterns.UNMATCHED.equals(pattern)) {
+                throw new IllegalStateException("There is no @MessageMapping for rate limited route '"
+                        + entry.getKey() + "'");
+            }
+            RateLimitProperties.Limit user = entry.getValue().getPerUser();
+            RateLimitProperties.Limit connection = entry.getValue().getPerConnection();
+            Route route = new Route(pattern, user, user == null ? -1 : perUser.size(),
+                    connection, connection == null ? -1 : perConnection.size(), registry);
+            if (user != null) {
+                perUser.add(route);
+                idleNanos = Math.max(idleNanos, route.newUserBucket().refillNanos());
+            }
+            if (connection != null) {
+                perConnection.add(route);
+            }
+            routes.put(pattern, route);
+            log.info("Rate limiting '{}' (per user {}, per connection {})", pattern, user, connection);
+        }
+        this.users = Caffeine.newBuilder().expireAfterAccess(idleNanos, TimeUnit.NANOSECONDS).build();
+    }
+
+    @Override
+    public Mono<Void> intercept(PayloadExchange exchange, PayloadInterceptorChain chain) {
+        if (routes.isEmpty()) {
+            return chain.next(exchange);
+        }
+        if (exchange.getType() == PayloadExchangeType.SETUP) {
+            return perConnection.isEmpty() ? chain.next(exchange)
+                    : chain.next(exchange).subscriberContext(Context.of(ConnectionBuckets.class, newConnectionBuckets()));
+        }
+        Route route = routes.get(patterns.patternFor(RoutePatterns.route(exchange.getPayload())));
+        if (route == null) {
+            return chain.next(exchange);
+        }
+        return Mono.subscriberContext().flatMap(context -> {
+            ConnectionBuckets connection = context.getOrDefault(ConnectionBuckets.class, null);
+            if (route.connectionIndex >= 0 && connection != null
+                    && !connection.buckets[route.connectionIndex].tryAcquire()) {
+                return route.reject(CONNECTION);
+            }
+            if (route.userIndex < 0) {
+                return chain.next(exchange);
+            }
+            return ReactiveSecurityContextHolder.getContext()
+                    .filter(security -> security.getAuthentication() != null)
+                    .map(security -> userBuckets(security.getAuthentication().getName())[route.userIndex].tryAcquire())
+                    // No one to limit: authentication has already let the request through
+                    .defaultIfEmpty(true)
+                    .flatMap(acquired -> acquired ? chain.next(exchange) : route.reject(USER));
+        });
+    }
+
+    private ConnectionBuckets newConnectionBuckets() {
+        TokenBucket[] buckets = new TokenBucket[perConnection.size()];
+        for (Route route : perConnection) {
+            buckets[route.connectionIndex] = route.newConnectionBucket();
+        }
+        return new ConnectionBuckets(buckets);
+    }
+
+    private TokenBucket[] userBuckets(String username) {
+        return users.get(username, key -> {
+            TokenBucket[] buckets = new TokenBucket[perUser.size()];
+            for (Route route : perUser) {
+                buckets[route.userIndex] = route.newUserBucket();
+            }
+            return buckets;
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return PayloadInterceptorOrder.AUTHORIZATION.getOrder() + 1;
+    }
+
+    private static final class ConnectionBuckets {
+
+        private final TokenBucket[] buckets;
+
+        ConnectionBuckets(TokenBucket[] buckets) {
+            this.buckets = buckets;
+        }
+    }
+
+    private static final class Route {
+
+        private final String pattern;
+        private final RateLimitProperties.Limit user;
+        private final int userIndex;
+        private final RateLimitProperties.Limit connection;
+        private final int connectionIndex;
+        private final Counter rejectedUser;
+        private final Counter rejectedConnection;
+
+        Route(String pattern, RateLimitProperties.Limit user, int userIndex,
+              RateLimitProperties.Limit connection, int connectionIndex, MeterRegistry registry) {
+            this.pattern = pattern;
+            this.user = user;
+            this.userIndex = userIndex;
+            this.connection = connection;
+            this.connectionIndex = connectionIndex;
+            this.rejectedUser = rejected(registry, pattern, USER);
+            this.rejectedConnection = rejected(registry, pattern, CONNECTION);
+        }
+
+        TokenBucket newUserBucket() {
+            return new TokenBucket(user.getRate(), user.burstOrDefault());
+        }
+
+        TokenBucket newConnectionBucket() {
+            return new TokenBucket(connection.getRate(), connection.burstOrDefault());
+        }
+
+        <T> Mono<T> reject(String limit) {
+            (USER.equals(limit) ? rejectedUser : rejectedConnection).increment();
+            return Mono.error(new RejectedException("Rate limit exceeded: too many '" + pattern + "' requests per "
+                    + limit));
+        }
+
+        private static Counter rejected(MeterRegistry registry, String pattern, String limit) {
+            return Counter.builder("rsocket.rate-limit.rejected")
+                    .description("Requests rejected for going over a rate limit")
+                    .tag("route", pattern)
+                    .tag("limit", limit)
+                    .register(registry);
+        }
+    }
+}
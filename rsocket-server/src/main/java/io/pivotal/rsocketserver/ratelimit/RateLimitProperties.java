@@ -0,0 +1,52 @@
+package io.pivotal.rsocketserver.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How many requests each user, and each connection, may make on each route. Routes are keyed by their
+ * @MessageMapping pattern, e.g. rsocket.rate-limit.routes.request-response.per-user.rate=100, or
+ * rsocket.rate-limit.routes[stream.{rate}.{batch}.{count}].per-connection.rate=10 for patterns with dots in.
+ * Routes without a limit aren't limited.
+ */
+@Data
+@ConfigurationProperties("rsocket.rate-limit")
+public class RateLimitProperties {
+
+    private Map<String, RouteLimits> routes = new LinkedHashMap<>();
+
+    @Data
+    public static class RouteLimits {
+
+        /**
+         * Shared by all of one user's connections.
+         */
+        private Limit perUser;
+
+        /**
+         * For each connection on its own.
+         */
+        private Limit perConnection;
+    }
+
+    @Data
+    public static class Limit {
+
+        /**
+         * Requests allowed each second, on average.
+         */
+        private double rate;
+
+        /**
+         * The most requests allowed at once after a quiet spell. 0 means one second's worth.
+         */
+        private int burst;
+
+        int burstOrDefault() {
+            return burst > 0 ? burst : (int) Math.max(1, Math.ceil(rate));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.pivotal.rsocketserver.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that fills at 'rate' tokens a second and holds at most 'burst', kept as a single timestamp so
+ * that taking a token is one compare-and-set, without a lock or a refill thread.
+ * <p>
+ * The timestamp is when the bucket will next be full. Each token taken pushes it one interval (1 / rate) further
+ * into the future, and a token can be taken as long as that leaves it no more than 'burst' intervals ahead of now.
+ * This is the generic cell rate algorithm, which behaves exactly like a token bucket.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double rate, int burst) {
+        this(rate, burst, System.nanoTime());
+    }
+
+    TokenBucket(double rate, int burst, long nowNanos) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("A token bucket needs a rate above 0 and a burst of at least 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+        this.toleranceNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            // A bucket that has been full for a while is no fuller
+            long next = Math.max(current - nowNanos, 0) + intervalNanos;
+            if (next > toleranceNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, nowNanos + next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return how long an idle bucket takes to fill up
+     */
+    long refillNanos() {
+        return toleranceNanos;
+    }
+}
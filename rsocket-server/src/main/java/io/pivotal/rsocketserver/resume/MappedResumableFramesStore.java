@@ -0,0 +1,397 @@
+package io.pivotal.rsocketserver.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.internal.PlatformDependent;
+import io.rsocket.resume.ResumableFramesStore;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a session's unacknowledged frames in memory-mapped files instead of on the heap, so that the memory a
+ * session holds on to doesn't grow with the amount of stream data the client hasn't acknowledged yet. The operating
+ * system pages the files in and out as needed.
+ * <p>
+ * Frames are appended to a file (a segment) as a 4 byte length followed by the frame, and a new segment is started
+ * when the last one is full. Acknowledged frames are skipped over, and a segment is deleted once all of its frames
+ * have been acknowledged. Frames are also dropped, oldest first, when the session holds more than its byte cap, or
+ * when nothing has been written to their segment for longer than the retention window. A client can't resume from a
+ * position that has been dropped.
+ * <p>
+ * The frames on disk are a copy: the session itself, and the streams it carries, only live in the server's memory.
+ * A restarted server can't resume the sessions it had, so each server keeps its sessions in a directory of its own
+ * (see {@link SessionsDirectory}), and removes it when it stops. Servers that share a parent directory never touch
+ * each other's files, until a server has stopped without removing its own.
+ */
+@Slf4j
+public class MappedResumableFramesStore implements ResumableFramesStore {
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final long retentionMillis;
+    private final Clock clock;
+    private final MonoProcessor<Void> disposed = MonoProcessor.create();
+
+    // Guarded by this: the connection saves frames, and releases them when the client acknowledges them,
+    // on its own thread, but a resumed connection can be served by another.
+    private Segment head;
+    private Segment tail;
+    private long segments;
+    private long cachedBytes;
+
+    private volatile long position;
+    private volatile long impliedPosition;
+
+    public MappedResumableFramesStore(Path directory, ResumeStoreProperties properties) {
+        this(directory, Math.toIntExact(properties.getSegmentSize().toBytes()), properties.getMaxBytes().toBytes(),
+                properties.getRetention(), Clock.systemUTC());
+    }
+
+    MappedResumableFramesStore(Path directory, int segmentSize, long maxBytes, Duration retention, Clock clock) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        this.retentionMillis = retention.toMillis();
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Remove the directory, and every session's files in it.
+     *
+     * @param directory
+     */
+    public static void deleteSessions(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder())
+                    .forEach(MappedResumableFramesStore::delete);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
+        MonoProcessor<Void> completed = MonoProcessor.create();
+        frames.doFinally(signal -> completed.onComplete())
+                .subscribe(this::saveFrame, error -> log.info("Saving frames failed: {}", error.toString()));
+        return completed;
+    }
+
+    /**
+     * Copy the frame to the end of the last segment. The frame itself is left to the connection, which sends and
+     * then releases it.
+     *
+     * @param frame
+     */
+    synchronized void saveFrame(ByteBuf frame) {
+        if (isDisposed()) {
+            return;
+        }
+        int size = frame.readableBytes();
+        expire();
+        while (cachedBytes > 0 && cachedBytes + size > maxBytes) {
+            dropOldest();
+        }
+        if (size > maxBytes) {
+            position += size;
+            return;
+        }
+        if (tail == null || tail.remaining() < LENGTH_BYTES + size) {
+            append(Math.max(segmentSize, LENGTH_BYTES + size));
+        }
+        tail.write(frame, clock.millis());
+        cachedBytes += size;
+    }
+
+    @Override
+    public synchronized void releaseFrames(long remoteImpliedPos) {
+        long removeSize = Math.max(0, remoteImpliedPos - position);
+        while (removeSize > 0 && cachedBytes > 0) {
+            removeSize -= dropOldest();
+        }
+        if (removeSize > 0) {
+            throw new IllegalStateException(String.format(
+                    "Local and remote state disagreement: need to remove additional %d bytes, but cache is empty",
+                    removeSize));
+        }
+        if (removeSize < 0) {
+            throw new IllegalStateException(
+                    "Local and remote state disagreement: local and remote frame sizes are not equal");
+        }
+        expire();
+    }
+
+    /**
+     * The frames that were stored when resuming started, each read into a new buffer. Frames that are
+     * acknowledged or dropped in the meantime are skipped.
+     */
+    @Override
+    public Flux<ByteBuf> resumeStream() {
+        return Flux.generate(this::cursor, (cursor, sink) -> {
+            ByteBuf frame = next(cursor);
+            if (frame == null) {
+                sink.complete();
+            } else {
+                sink.next(frame);
+            }
+            return cursor;
+        });
+    }
+
+    @Override
+    public long framePosition() {
+        return position;
+    }
+
+    @Override
+    public long frameImpliedPosition() {
+        return impliedPosition;
+    }
+
+    @Override
+    public void resumableFrameReceived(ByteBuf frame) {
+        // Called on the connection's thread
+        impliedPosition += frame.readableBytes();
+    }
+
+    @Override
+    public Mono<Void> onClose() {
+        return disposed;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        if (isDisposed()) {
+            return;
+        }
+        while (head != null) {
+            Segment next = head.next;
+            head.release();
+            head = next;
+        }
+        tail = null;
+        cachedBytes = 0;
+        delete(directory);
+        disposed.onComplete();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed.isTerminated();
+    }
+
+    synchronized long cachedBytes() {
+        return cachedBytes;
+    }
+
+    synchronized long segments() {
+        long count = 0;
+        for (Segment segment = head; segment != null; segment = segment.next) {
+            count++;
+        }
+        return count;
+    }
+
+    private void append(int capacity) {
+        Segment segment = new Segment(directory.resolve(String.format("%020d.segment", segments++)), capacity);
+        if (tail == null) {
+            head = segment;
+        } else {
+            tail.next = segment;
+        }
+        tail = segment;
+    }
+
+    /**
+     * Drop the oldest frame, and its segment if that was the segment's last frame.
+     *
+     * @return the size of the frame
+     */
+    private int dropOldest() {
+        int size = head.lengthAt(head.readOffset);
+        head.readOffset += LENGTH_BYTES + size;
+        position += size;
+        cachedBytes -= size;
+        if (head.readOffset == head.writeOffset) {
+            if (head == tail) {
+                // Keep the last segment for the next frames, rather than creating a new file each time
+                head.rewind();
+            } else {
+                Segment next = head.next;
+                head.release();
+                head = next;
+            }
+        }
+        return size;
+    }
+
+    private void expire() {
+        long expired = clock.millis() - retentionMillis;
+        while (cachedBytes > 0 && head.lastWrite < expired) {
+            dropOldest();
+        }
+    }
+
+    private synchronized Cursor cursor() {
+        return new Cursor(position, position + cachedBytes);
+    }
+
+    private synchronized ByteBuf next(Cursor cursor) {
+        if (isDisposed()) {
+            return null;
+        }
+        if (cursor.position < position) {
+            cursor.position = position;
+            cursor.segment = null;
+        }
+        if (cursor.position >= cursor.end || cachedBytes == 0) {
+            return null;
+        }
+        if (cursor.segment == null || cursor.segment.released || cursor.segment.generation != cursor.generation) {
+            locate(cursor);
+        } else if (cursor.offset == cursor.segment.writeOffset) {
+            cursor.moveTo(cursor.segment.next);
+        }
+        int size = cursor.segment.lengthAt(cursor.offset);
+        ByteBuf frame = cursor.segment.read(cursor.offset, size);
+        cursor.offset += LENGTH_BYTES + size;
+        cursor.position += size;
+        return frame;
+    }
+
+    /**
+     * Find the frame at the cursor's position, starting from the oldest frame.
+     */
+    private void locate(Cursor cursor) {
+        cursor.moveTo(head);
+        long at = position;
+        while (at < cursor.position) {
+            if (cursor.offset == cursor.segment.writeOffset) {
+                cursor.moveTo(cursor.segment.next);
+            }
+            int size = cursor.segment.lengthAt(cursor.offset);
+            cursor.offset += LENGTH_BYTES + size;
+            at += size;
+        }
+        if (cursor.offset == cursor.segment.writeOffset && cursor.segment.next != null) {
+            cursor.moveTo(cursor.segment.next);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.toString());
+        }
+    }
+
+    private static final class Cursor {
+
+        private final long end;
+        private long position;
+        private Segment segment;
+        private int generation;
+        private int offset;
+
+        Cursor(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        void moveTo(Segment segment) {
+            this.segment = segment;
+            this.generation = segment.generation;
+            this.offset = segment.readOffset;
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private Segment next;
+        private int readOffset;
+        private int writeOffset;
+        private long lastWrite;
+        // Changes each time the segment is rewound, so that a cursor knows its offset is no longer valid
+        private int generation;
+        private boolean released;
+
+        Segment(Path file, int capacity) {
+            this.file = file;
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - writeOffset;
+        }
+
+        void write(ByteBuf frame, long now) {
+            int size = frame.readableBytes();
+            buffer.putInt(writeOffset, size);
+            frame.getBytes(frame.readerIndex(), slice(writeOffset + LENGTH_BYTES, size));
+            writeOffset += LENGTH_BYTES + size;
+            lastWrite = now;
+        }
+
+        int lengthAt(int offset) {
+            return buffer.getInt(offset);
+        }
+
+        ByteBuf read(int offset, int size) {
+            ByteBuf frame = ByteBufAllocator.DEFAULT.buffer(size);
+            frame.writeBytes(slice(offset + LENGTH_BYTES, size));
+            return frame;
+        }
+
+        void rewind() {
+            readOffset = 0;
+            writeOffset = 0;
+            generation++;
+        }
+
+        void release() {
+            released = true;
+            PlatformDependent.freeDirectBuffer(buffer);
+            delete(file);
+        }
+
+        private ByteBuffer slice(int offset, int size) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(offset + size).position(offset);
+            return slice;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.pivotal.rsocketserver.resume;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.buffer.ByteBuf;
+import io.rsocket.resume.ResumableFramesStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Meters resumable sessions, through the frame store each of them has.
+ * <ul>
+ * <li>rsocket.resume.sessions (gauge): sessions that can be resumed, whether or not their client is connected.</li>
+ * <li>rsocket.resume.retained (gauge): bytes of unacknowledged frames kept for all sessions.</li>
+ * <li>rsocket.resume.resumed (timer): how long each resume took to send the stored frames again, from the client's
+ * RESUME frame being accepted. The count is the number of sessions resumed.</li>
+ * </ul>
+ */
+public class ResumeMetrics {
+
+    static final String SESSIONS = "rsocket.resume.sessions";
+    static final String RETAINED = "rsocket.resume.retained";
+    static final String RESUMED = "rsocket.resume.resumed";
+
+    private final Set<MeteredStore> stores = ConcurrentHashMap.newKeySet();
+    private final Timer resumed;
+
+    public ResumeMetrics(MeterRegistry registry) {
+        Gauge.builder(SESSIONS, stores, Set::size)
+                .description("Sessions that can be resumed")
+                .register(registry);
+        Gauge.builder(RETAINED, this, ResumeMetrics::retained)
+                .description("Bytes of unacknowledged frames kept for resumable sessions")
+                .baseUnit("bytes")
+                .register(registry);
+        resumed = Timer.builder(RESUMED)
+                .description("Sessions resumed, and how long sending their stored frames again took")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * @param stores creates the store for a session, from its resume token
+     * @return a factory for stores that are metered
+     */
+    public Function<ByteBuf, ResumableFramesStore> metered(Function<ByteBuf, ? extends ResumableFramesStore> stores) {
+        return token -> {
+            MeteredStore store = new MeteredStore(stores.apply(token));
+            this.stores.add(store);
+            store.onClose().doFinally(signal -> this.stores.remove(store)).subscribe();
+            return store;
+        };
+    }
+
+    private long retained() {
+        long retained = 0;
+        for (MeteredStore store : stores) {
+            retained += store.retained();
+        }
+        return retained;
+    }
+
+    /**
+     * Counts the bytes saved. Those not yet acknowledged or dropped (the store's position is past them) are retained.
+     */
+    private final class MeteredStore implements ResumableFramesStore {
+
+        private final ResumableFramesStore delegate;
+        private final AtomicLong saved = new AtomicLong();
+
+        MeteredStore(ResumableFramesStore delegate) {
+            this.delegate = delegate;
+        }
+
+        long retained() {
+            return Math.max(0, saved.get() - delegate.framePosition());
+        }
+
+        @Override
+        public Mono<Void> saveFrames(Flux<ByteBuf> frames) {
+            return delegate.saveFrames(frames.doOnNext(frame -> saved.addAndGet(frame.readableBytes())));
+        }
+
+        @Override
+        public void releaseFrames(long remoteImpliedPos) {
+            delegate.releaseFrames(remoteImpliedPos);
+        }
+
+        @Override
+        public Flux<ByteBuf> resumeStream() {
+            return Flux.defer(() -> {
+                Timer.Sample sample = Timer.start();
+                return delegate.resumeStream().doOnComplete(() -> sample.stop(resumed));
+            });
+        }
+
+        @Override
+        public long framePosition() {
+            return delegate.framePosition();
+        }
+
+        @Override
+        public long frameImpliedPosition() {
+            return delegate.frameImpliedPosition();
+        }
+
+        @Override
+        public void resumableFrameReceived(ByteBuf frame) {
+            delegate.resumableFrameReceived(frame);
+        }
+
+        @Override
+        public Mono<Void> onClose() {
+            return delegate.onClose();
+        }
+
+        @Override
+        public void dispose() {
+            delegate.dispose();
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return delegate.isDisposed();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.pivotal.rsocketserver.resume;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for resumable sessions, used by the 'resumption' profile. See {@link ResumeStoreProperties} for where
+ * each session's frames are kept, and how many.
+ */
+@Data
+@ConfigurationProperties("rsocket.resume")
+public class ResumeProperties {
+
+    /**
+     * How long a session is kept for its client to resume it, after the connection drops.
+     */
+    private Duration sessionDuration = Duration.ofMinutes(2);
+
+    /**
+     * The longest wait for each stored frame while they are sent again to a resuming client.
+     */
+    private Duration streamTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Drop the frames a client has acknowledged each time it sends a keepalive, rather than only when it resumes.
+     * Keeps the stores small on long-lived connections.
+     */
+    private boolean cleanupStoreOnKeepAlive = false;
+}
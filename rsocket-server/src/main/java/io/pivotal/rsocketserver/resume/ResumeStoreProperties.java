@@ -0,0 +1,51 @@
+package io.pivotal.rsocketserver.resume;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings for the store that keeps each resumable session's unacknowledged frames.
+ */
+@Data
+@ConfigurationProperties("rsocket.resume.store")
+public class ResumeStoreProperties {
+
+    public enum Type {
+        /**
+         * Keep frames in memory, as rsocket-java does by default.
+         */
+        MEMORY,
+        /**
+         * Copy frames into memory-mapped files, one directory per session.
+         */
+        MAPPED
+    }
+
+    private Type type = Type.MAPPED;
+
+    /**
+     * Where the mapped store keeps its files. Each server has a directory of its own in it, removed when it stops,
+     * or by the next server to start if it didn't get to.
+     */
+    private Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "rsocket-resume");
+
+    /**
+     * The size of each file of the mapped store. Frames larger than this get a file of their own.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(1);
+
+    /**
+     * The most unacknowledged frame bytes to keep for one session. The oldest frames are dropped to make room.
+     */
+    private DataSize maxBytes = DataSize.ofMegabytes(64);
+
+    /**
+     * How long the mapped store keeps a file of frames after the last write to it, if they aren't acknowledged.
+     */
+    private Duration retention = Duration.ofMinutes(10);
+}
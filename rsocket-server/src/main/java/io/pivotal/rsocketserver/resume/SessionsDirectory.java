@@ -0,0 +1,121 @@
+package io.pivotal.rsocketserver.resume;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One server's directory for the {@link MappedResumableFramesStore}s of its sessions, under a parent that other
+ * servers may share.
+ * <p>
+ * The server holds a lock on a file in its directory for as long as it runs, and removes the directory when it stops.
+ * A server that didn't get to stop cleanly, because it was killed or crashed, leaves its directory behind, but the
+ * operating system releases its lock. The next server to start with the same parent removes every directory whose
+ * lock it can take.
+ */
+@Slf4j
+public final class SessionsDirectory implements Closeable {
+
+    static final String PREFIX = "server-";
+    static final String LOCK = "server.lock";
+
+    // Directories locked by this JVM. On some platforms closing any channel to a lock file releases the JVM's lock
+    // on it, so these are never opened to see if they are stale.
+    private static final Set<Path> HELD = ConcurrentHashMap.newKeySet();
+
+    private final Path path;
+    private final FileChannel channel;
+
+    private SessionsDirectory(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Remove the directories left by servers that have stopped, and create one for this server.
+     *
+     * @param parent where servers keep their sessions, created if need be
+     * @return a new directory under it, locked until it is closed
+     */
+    public static SessionsDirectory create(Path parent) {
+        try {
+            Files.createDirectories(parent);
+            deleteStale(parent);
+            Path path = Files.createTempDirectory(parent, PREFIX);
+            FileChannel channel = FileChannel.open(path.resolve(LOCK), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+            try {
+                if (null == channel.tryLock()) {
+                    throw new IOException("Could not lock " + path);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            HELD.add(path.toAbsolutePath());
+            return new SessionsDirectory(path, channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Release the lock, and remove the directory with every session's files in it.
+     */
+    @Override
+    public void close() {
+        HELD.remove(path.toAbsolutePath());
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not unlock {}: {}", path, e.toString());
+        }
+        MappedResumableFramesStore.deleteSessions(path);
+    }
+
+    private static void deleteStale(Path parent) throws IOException {
+        try (DirectoryStream<Path> servers = Files.newDirectoryStream(parent, PREFIX + "*")) {
+            for (Path server : servers) {
+                if (Files.isDirectory(server) && isStale(server)) {
+                    log.info("Removing the sessions of a server that stopped without removing them: {}", server);
+                    MappedResumableFramesStore.deleteSessions(server);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether the directory's lock could be taken, so the server that created it has stopped
+     */
+    private static boolean isStale(Path server) {
+        if (HELD.contains(server.toAbsolutePath())) {
+            return false;
+        }
+        // Closing the channel releases the lock again
+        try (FileChannel channel = FileChannel.open(server.resolve(LOCK), StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            return null != lock;
+        } catch (NoSuchFileException e) {
+            // Just created, and not locked yet
+            return false;
+        } catch (IOException e) {
+            log.warn("Could not tell whether {} is in use: {}", server, e.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package io.pivotal.rsocketserver.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the cache of verified credentials.
+ */
+@Data
+@ConfigurationProperties("rsocket.security.authentication-cache")
+public class AuthenticationCacheProperties {
+
+    /**
+     * How long verified credentials are trusted before the password is checked again.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+    /**
+     * The most credentials to keep.
+     */
+    private long maximumSize = 10_000;
+}
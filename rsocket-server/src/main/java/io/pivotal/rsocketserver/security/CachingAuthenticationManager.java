@@ -0,0 +1,111 @@
+package io.pivotal.rsocketserver.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Remembers credentials that have been verified, so the same username and password aren't put through the
+ * (deliberately slow) password encoder again. That covers the setup frame and every later request that carries
+ * the same credentials: after the first check, authenticating them is a digest and a hash lookup.
+ * <p>
+ * Entries are keyed by the username and a salted SHA-256 digest of the username and password, so the cache never
+ * holds a plain-text password. Failed attempts are not cached. Concurrent attempts with the same credentials share one
+ * check. Entries expire after a while, and are removed straight away when a {@link UserChangedEvent} is published,
+ * along with any checks still in progress, whose answer may already be out of date.
+ */
+@Slf4j
+public class CachingAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private static final String CACHE_NAME = "authentication";
+
+    private final ReactiveAuthenticationManager delegate;
+    private final AsyncCache<Key, Authentication> verified;
+    private final byte[] salt = new byte[16];
+
+    public CachingAuthenticationManager(ReactiveAuthenticationManager delegate,
+                                        AuthenticationCacheProperties properties,
+                                        MeterRegistry registry) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+        new SecureRandom().nextBytes(salt);
+        CaffeineCacheMetrics.monitor(registry, verified, CACHE_NAME);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+        return Mono.defer(() -> {
+            CompletableFuture<Authentication> result = verified.get(key(authentication),
+                    (key, executor) -> delegate.authenticate(authentication).toFuture());
+            // Cancelling a copy leaves the shared future for the other callers
+            return Mono.fromFuture(result.thenApply(Function.identity()));
+        });
+    }
+
+    /**
+     * Forget every cached authentication for the user, and every check of their credentials in progress.
+     *
+     * @param username
+     */
+    public void invalidate(String username) {
+        // Unlike the synchronous view, this includes the checks in progress
+        verified.asMap().keySet().removeIf(key -> username.equals(key.getUsername()));
+    }
+
+    public void invalidateAll() {
+        verified.synchronous().invalidateAll();
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        log.info("Forgetting cached authentication for {}", event.getUsername() == null ? "all users" : event.getUsername());
+        if (event.getUsername() == null) {
+            invalidateAll();
+        } else {
+            invalidate(event.getUsername());
+        }
+    }
+
+    private Key key(Authentication authentication) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(authentication.getName().getBytes(StandardCharsets.UTF_8));
+            // A separator that can't appear in a UTF-8 string, so 'ab' + 'c' and 'a' + 'bc' differ
+            digest.update((byte) 0xFF);
+            digest.update(String.valueOf(authentication.getCredentials()).getBytes(StandardCharsets.UTF_8));
+            return new Key(authentication.getName(), Base64.getEncoder().encodeToString(digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Value
+    static class Key {
+        String username;
+        String digest;
+    }
+}
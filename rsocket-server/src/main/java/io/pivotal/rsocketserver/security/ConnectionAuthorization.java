@@ -0,0 +1,41 @@
+package io.pivotal.rsocketserver.security;
+
+import org.springframework.util.RouteMatcher;
+
+import java.util.List;
+
+/**
+ * The routes one connection may not use, decided when it connected. Most connections are allowed every route,
+ * and then checking a request costs nothing: its route isn't even read.
+ */
+public class ConnectionAuthorization {
+
+    private final RouteMatcher matcher;
+    private final List<String> denied;
+
+    ConnectionAuthorization(RouteMatcher matcher, List<String> denied) {
+        this.matcher = matcher;
+        this.denied = denied;
+    }
+
+    public boolean permitsAll() {
+        return denied.isEmpty();
+    }
+
+    /**
+     * @param route the route sent by the client, or null if it sent none
+     * @return false if the route matches one of the denied patterns
+     */
+    public boolean permits(String route) {
+        if (route == null || denied.isEmpty()) {
+            return true;
+        }
+        RouteMatcher.Route parsed = matcher.parseRoute(route);
+        for (String pattern : denied) {
+            if (matcher.match(pattern, parsed)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
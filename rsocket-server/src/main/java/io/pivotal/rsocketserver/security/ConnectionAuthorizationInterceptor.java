@@ -0,0 +1,60 @@
+package io.pivotal.rsocketserver.security;
+
+import io.pivotal.rsocketserver.metrics.RoutePatterns;
+import org.springframework.core.Ordered;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.config.annotation.rsocket.PayloadInterceptorOrder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.rsocket.api.PayloadExchange;
+import org.springframework.security.rsocket.api.PayloadExchangeType;
+import org.springframework.security.rsocket.api.PayloadInterceptor;
+import org.springframework.security.rsocket.api.PayloadInterceptorChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Authorizes a connection once, when it is set up, instead of authorizing each request.
+ * <p>
+ * The setup frame must be authenticated. The connection's {@link ConnectionAuthorization} is then decided from the
+ * {@link RouteAuthorizations} and put in the connection's context, next to its authentication, where Spring Security
+ * keeps it for every request on the connection. Each request is then checked against it, without evaluating any
+ * expressions: a request for a route the connection may not use fails with the same "Denied" error that method
+ * security gives.
+ */
+public class ConnectionAuthorizationInterceptor implements PayloadInterceptor, Ordered {
+
+    private final RouteAuthorizations routes;
+
+    public ConnectionAuthorizationInterceptor(RouteAuthorizations routes) {
+        this.routes = routes;
+    }
+
+    @Override
+    public Mono<Void> intercept(PayloadExchange exchange, PayloadInterceptorChain chain) {
+        if (exchange.getType() == PayloadExchangeType.SETUP) {
+            return ReactiveSecurityContextHolder.getContext()
+                    .map(SecurityContext::getAuthentication)
+                    .filter(Authentication::isAuthenticated)
+                    .switchIfEmpty(Mono.error(() -> new AccessDeniedException("Access Denied")))
+                    .flatMap(authentication -> chain.next(exchange)
+                            .subscriberContext(Context.of(ConnectionAuthorization.class, routes.decide(authentication))));
+        }
+        return Mono.subscriberContext().flatMap(context -> {
+            ConnectionAuthorization authorization = context.getOrDefault(ConnectionAuthorization.class, null);
+            if (authorization == null) {
+                return Mono.error(new AccessDeniedException("Access Denied"));
+            }
+            if (authorization.permitsAll() || authorization.permits(RoutePatterns.route(exchange.getPayload()))) {
+                return chain.next(exchange);
+            }
+            return Mono.error(new AccessDeniedException("Denied"));
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return PayloadInterceptorOrder.AUTHORIZATION.getOrder();
+    }
+}
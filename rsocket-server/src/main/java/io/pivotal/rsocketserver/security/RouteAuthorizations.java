@@ -0,0 +1,120 @@
+package io.pivotal.rsocketserver.security;
+
+import lombok.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.VariableReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.messaging.handler.CompositeMessageCondition;
+import org.springframework.messaging.handler.DestinationPatternsMessageCondition;
+import org.springframework.messaging.handler.HandlerMethod;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+import org.springframework.util.RouteMatcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The @PreAuthorize rules of every @MessageMapping, read once at startup so that they can be decided once per
+ * connection rather than once per request. Rules are evaluated by the same expression handler that method
+ * security uses, so 'hasRole('USER')' means the same thing in both places.
+ * <p>
+ * Only rules that depend on nothing but the authenticated user can be decided up front: a rule that refers to
+ * a method argument (e.g. '#request.origin == authentication.name') is rejected when the server starts.
+ */
+public class RouteAuthorizations {
+
+    private final RouteMatcher matcher;
+    private final List<Rule> rules;
+    private final MethodSecurityExpressionHandler expressions;
+
+    RouteAuthorizations(RouteMatcher matcher, List<Rule> rules, MethodSecurityExpressionHandler expressions) {
+        this.matcher = matcher;
+        this.rules = rules;
+        this.expressions = expressions;
+    }
+
+    /**
+     * The rules of all the handler's @MessageMapping methods. Routes without a @PreAuthorize rule are open to
+     * any authenticated user.
+     *
+     * @param handler
+     * @return RouteAuthorizations
+     */
+    public static RouteAuthorizations of(RSocketMessageHandler handler) {
+        MethodSecurityExpressionHandler expressions = new DefaultMethodSecurityExpressionHandler();
+        List<Rule> rules = new ArrayList<>();
+        for (Map.Entry<CompositeMessageCondition, HandlerMethod> mapping : handler.getHandlerMethods().entrySet()) {
+            HandlerMethod method = mapping.getValue();
+            PreAuthorize preAuthorize = findPreAuthorize(method);
+            if (preAuthorize == null || !method.hasMethodAnnotation(MessageMapping.class)) {
+                continue;
+            }
+            Expression rule = expressions.getExpressionParser().parseExpression(preAuthorize.value());
+            if (refersToVariables(rule)) {
+                throw new IllegalStateException("@PreAuthorize(\"" + preAuthorize.value() + "\") on " + method
+                        + " refers to a method argument, so it can't be decided when the client connects");
+            }
+            rules.add(new Rule(mapping.getKey().getCondition(DestinationPatternsMessageCondition.class).getPatterns(),
+                    method, rule));
+        }
+        return new RouteAuthorizations(handler.getRouteMatcher(), rules, expressions);
+    }
+
+    /**
+     * Decide every rule for a newly authenticated connection.
+     *
+     * @param authentication the authentication of the connection's setup frame
+     * @return the routes this connection may not use
+     */
+    public ConnectionAuthorization decide(Authentication authentication) {
+        List<String> denied = new ArrayList<>();
+        for (Rule rule : rules) {
+            SimpleMethodInvocation invocation = new SimpleMethodInvocation(rule.getHandler().getBean(), rule.getHandler().getMethod());
+            if (!ExpressionUtils.evaluateAsBoolean(rule.getExpression(),
+                    expressions.createEvaluationContext(authentication, invocation))) {
+                denied.addAll(rule.getPatterns());
+            }
+        }
+        return new ConnectionAuthorization(matcher, denied.isEmpty() ? Collections.emptyList() : denied);
+    }
+
+    private static PreAuthorize findPreAuthorize(HandlerMethod method) {
+        PreAuthorize onMethod = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), PreAuthorize.class);
+        return onMethod != null ? onMethod : AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), PreAuthorize.class);
+    }
+
+    private static boolean refersToVariables(Expression expression) {
+        return expression instanceof SpelExpression && refersToVariables(((SpelExpression) expression).getAST());
+    }
+
+    private static boolean refersToVariables(SpelNode node) {
+        if (node instanceof VariableReference && !"#this".equals(node.toStringAST()) && !"#root".equals(node.toStringAST())) {
+            return true;
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (refersToVariables(node.getChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Value
+    static class Rule {
+        Collection<String> patterns;
+        HandlerMethod handler;
+        Expression expression;
+    }
+}
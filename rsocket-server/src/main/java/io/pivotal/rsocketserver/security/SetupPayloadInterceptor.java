@@ -0,0 +1,32 @@
+package io.pivotal.rsocketserver.security;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.rsocket.api.PayloadExchange;
+import org.springframework.security.rsocket.api.PayloadExchangeType;
+import org.springframework.security.rsocket.api.PayloadInterceptor;
+import org.springframework.security.rsocket.api.PayloadInterceptorChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Runs another interceptor on the setup frame only, and lets every later frame of the connection straight through.
+ */
+public class SetupPayloadInterceptor implements PayloadInterceptor, Ordered {
+
+    private final PayloadInterceptor delegate;
+    private final int order;
+
+    public SetupPayloadInterceptor(PayloadInterceptor delegate, int order) {
+        this.delegate = delegate;
+        this.order = order;
+    }
+
+    @Override
+    public Mono<Void> intercept(PayloadExchange exchange, PayloadInterceptorChain chain) {
+        return exchange.getType() == PayloadExchangeType.SETUP ? delegate.intercept(exchange, chain) : chain.next(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+}
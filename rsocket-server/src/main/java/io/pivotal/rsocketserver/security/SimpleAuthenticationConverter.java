@@ -0,0 +1,63 @@
+package io.pivotal.rsocketserver.security;
+
+import io.netty.buffer.ByteBuf;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.WellKnownAuthType;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.springframework.core.codec.DataBufferDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.messaging.rsocket.DefaultMetadataExtractor;
+import org.springframework.messaging.rsocket.MetadataExtractor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.rsocket.api.PayloadExchange;
+import org.springframework.security.rsocket.authentication.PayloadExchangeAuthenticationConverter;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads simple authentication (username and password) metadata straight out of the frame.
+ * Spring Security's own AuthenticationPayloadExchangeConverter copies the metadata into a pooled buffer
+ * that it never releases, leaking one buffer per authenticated frame; this converter copies nothing
+ * and releases what it extracts.
+ */
+public class SimpleAuthenticationConverter implements PayloadExchangeAuthenticationConverter {
+
+    private static final MimeType AUTHENTICATION_MIME_TYPE = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+    private static final String AUTHENTICATION = "authentication";
+
+    private final MetadataExtractor metadataExtractor = createExtractor();
+
+    @Override
+    public Mono<Authentication> convert(PayloadExchange exchange) {
+        return Mono.fromCallable(() -> metadataExtractor.extract(exchange.getPayload(), exchange.getMetadataMimeType()))
+                .flatMap(metadata -> Mono.justOrEmpty((Authentication) metadata.get(AUTHENTICATION)));
+    }
+
+    /**
+     * Decode each authentication entry as it is extracted, so every extracted buffer is released
+     * even when the metadata carries more than one entry (the last one wins).
+     */
+    private static MetadataExtractor createExtractor() {
+        DefaultMetadataExtractor extractor = new DefaultMetadataExtractor(new DataBufferDecoder());
+        extractor.metadataToExtract(AUTHENTICATION_MIME_TYPE, DataBuffer.class, (metadata, headers) -> {
+            try {
+                ByteBuf auth = NettyDataBufferFactory.toByteBuf(metadata);
+                if (AuthMetadataCodec.isWellKnownAuthType(auth)
+                        && AuthMetadataCodec.readWellKnownAuthType(auth) == WellKnownAuthType.SIMPLE) {
+                    String username = AuthMetadataCodec.readUsername(auth).toString(StandardCharsets.UTF_8);
+                    String password = AuthMetadataCodec.readPassword(auth).toString(StandardCharsets.UTF_8);
+                    headers.put(AUTHENTICATION, new UsernamePasswordAuthenticationToken(username, password));
+                }
+            } finally {
+                DataBufferUtils.release(metadata);
+            }
+        });
+        return extractor;
+    }
+}
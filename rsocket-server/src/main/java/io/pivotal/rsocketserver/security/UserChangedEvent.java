@@ -0,0 +1,25 @@
+package io.pivotal.rsocketserver.security;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Publish this when a user's password or roles change, or the user is removed, so that no cached
+ * authentication outlives the change.
+ */
+public class UserChangedEvent extends ApplicationEvent {
+
+    private final String username;
+
+    /**
+     * @param source
+     * @param username the user that changed, or null if any number of users changed
+     */
+    public UserChangedEvent(Object source, String username) {
+        super(source);
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,65 @@
+package io.pivotal.rsocketserver.stream;
+
+import io.pivotal.rsocketserver.data.Message;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Builds a stream of indexed Messages that are only created when the subscriber asks for them.
+ * Nothing is created ahead of demand, so a slow subscriber never causes messages to pile up in a buffer;
+ * with no rate limit the stream runs as fast as the subscriber (and the connection) can take it.
+ */
+public final class MessageStream {
+
+    // Each batch is held in memory until it is sent
+    public static final int MAX_BATCH = 1000;
+
+    private MessageStream() {
+    }
+
+    /**
+     * @param origin      the origin of every message
+     * @param interaction the interaction of every message
+     * @param rate        the most messages to send each second, or 0 for no limit
+     * @param batch       how many messages to send together at each tick, when the rate is limited, up to
+     *                    {@link #MAX_BATCH}
+     * @param count       how many messages to send in total, or 0 for no end
+     * @return Flux of Messages, indexed from 0
+     */
+    public static Flux<Message> of(String origin, String interaction, long rate, int batch, long count) {
+        return of(origin, interaction, rate, batch, count, Flux::interval);
+    }
+
+    /**
+     * As {@link #of(String, String, long, int, long)}, pacing the batches with the given interval source.
+     *
+     * @param interval    the source of ticks for a period, such as Flux::interval
+     */
+    public static Flux<Message> of(String origin, String interaction, long rate, int batch, long count,
+                                   Function<Duration, Flux<Long>> interval) {
+        if (rate < 0 || batch < 1 || batch > MAX_BATCH || count < 0) {
+            return Flux.error(new IllegalArgumentException("Expected rate >= 0, 1 <= batch <= " + MAX_BATCH
+                    + " and count >= 0 but was " + rate + ", " + batch + ", " + count));
+        }
+        Flux<Message> messages = Flux.generate(() -> 0L, (index, sink) -> {
+            sink.next(new Message(origin, interaction, index));
+            return index + 1;
+        });
+        if (rate > 0) {
+            // A tick that comes while the subscriber has no demand is dropped, rather than queued. Only the batch
+            // being sent is fetched, so the ticks aren't queued as batches further down either
+            messages = interval.apply(period(rate, batch))
+                    .onBackpressureDrop()
+                    .zipWith(messages.buffer(batch), 1, (tick, messagesInBatch) -> messagesInBatch)
+                    .concatMapIterable(messagesInBatch -> messagesInBatch, 1);
+        }
+        return count > 0 ? messages.take(count) : messages;
+    }
+
+    static Duration period(long rate, int batch) {
+        return Duration.ofNanos(Math.max(1, TimeUnit.SECONDS.toNanos(batch) / rate));
+    }
+}
@@ -0,0 +1,233 @@
+package io.pivotal.rsocketserver.ticks;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A drop-in for Flux.interval that shares one timer between all the subscribers asking for the same period.
+ * Flux.interval schedules a periodic task per subscriber, so 10k streams mean 10k timer tasks. Here each
+ * distinct period has a single timeout on a hashed wheel timer, and when it fires the tick is fanned out to
+ * every subscriber on that period, each counting from its own index 0. Timer work therefore grows with the
+ * number of distinct periods, not with the number of subscriptions.
+ * <p>
+ * The fan out runs on the parallel scheduler, with the subscribers of a period split into one shard per
+ * worker, so that one slow subscriber doesn't hold up the timer thread. A subscriber joins in step with the
+ * others on its period, so its first tick comes after at most one period rather than exactly one period.
+ * A tick that comes while a subscriber has no demand is dropped for that subscriber.
+ */
+@Slf4j
+@Component
+public class SharedTicks {
+
+    private final ConcurrentMap<Duration, PeriodTicks> periods = new ConcurrentHashMap<>();
+    private final HashedWheelTimer timer;
+    private final Duration tickDuration;
+    private final int shards = Schedulers.DEFAULT_POOL_SIZE;
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public SharedTicks(TickProperties properties, MeterRegistry registry) {
+        this.tickDuration = properties.getTickDuration();
+        this.timer = new HashedWheelTimer(new DefaultThreadFactory("rsocket-ticks", true),
+                tickDuration.toNanos(), TimeUnit.NANOSECONDS, properties.getWheelSize());
+        Gauge.builder("rsocket.ticks.periods", periods, ConcurrentMap::size)
+                .description("Distinct periods with a shared timer")
+                .register(registry);
+        Gauge.builder("rsocket.ticks.subscribers", subscribers, AtomicInteger::get)
+                .description("Subscribers to the shared timers")
+                .register(registry);
+    }
+
+    /**
+     * Like Flux.interval(period): emits 0, 1, 2... once every period until cancelled.
+     *
+     * @param period
+     * @return Flux of tick indexes
+     */
+    public Flux<Long> interval(Duration period) {
+        if (period.isNegative() || period.isZero()) {
+            return Flux.error(new IllegalArgumentException("Expected a positive period but was " + period));
+        }
+        if (period.compareTo(tickDuration) < 0) {
+            // The wheel can't tick faster than its tick duration
+            return Flux.interval(period);
+        }
+        return Flux.create(sink -> {
+            Subscriber subscriber = new Subscriber(sink);
+            subscribe(period, subscriber);
+            sink.onDispose(() -> unsubscribe(period, subscriber));
+        }, FluxSink.OverflowStrategy.DROP);
+    }
+
+    int periods() {
+        return periods.size();
+    }
+
+    int subscribers() {
+        return subscribers.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+        periods.values().forEach(PeriodTicks::stop);
+        periods.clear();
+    }
+
+    private void subscribe(Duration period, Subscriber subscriber) {
+        // compute() makes joining a period atomic with the last subscriber leaving it
+        periods.compute(period, (key, ticks) -> {
+            PeriodTicks joined = ticks == null ? new PeriodTicks(period) : ticks;
+            joined.add(subscriber);
+            return joined;
+        });
+        subscribers.incrementAndGet();
+    }
+
+    private void unsubscribe(Duration period, Subscriber subscriber) {
+        periods.computeIfPresent(period, (key, ticks) -> {
+            ticks.remove(subscriber);
+            if (ticks.isEmpty()) {
+                ticks.stop();
+                return null;
+            }
+            return ticks;
+        });
+        subscribers.decrementAndGet();
+    }
+
+    /**
+     * The shared timer for one period, and the subscribers on it.
+     */
+    private final class PeriodTicks {
+
+        private final Duration period;
+        private final long start = System.nanoTime();
+        private final AtomicLong ticks = new AtomicLong();
+        private final Shard[] shardsOfSubscribers = new Shard[shards];
+        private final AtomicInteger next = new AtomicInteger();
+        private int size;
+        private volatile Timeout timeout;
+        private volatile boolean stopped;
+
+        PeriodTicks(Duration period) {
+            this.period = period;
+            for (int i = 0; i < shards; i++) {
+                shardsOfSubscribers[i] = new Shard();
+            }
+            log.debug("Starting a shared timer for period {}", period);
+            schedule(1);
+        }
+
+        // Only called inside compute(), so size needs no further locking
+        void add(Subscriber subscriber) {
+            subscriber.offset = ticks.get();
+            shardsOfSubscribers[Math.floorMod(next.getAndIncrement(), shards)].add(subscriber);
+            size++;
+        }
+
+        void remove(Subscriber subscriber) {
+            for (Shard shard : shardsOfSubscribers) {
+                if (shard.remove(subscriber)) {
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void stop() {
+            log.debug("Stopping the shared timer for period {}", period);
+            stopped = true;
+            Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+            for (Shard shard : shardsOfSubscribers) {
+                shard.worker.dispose();
+            }
+        }
+
+        private void schedule(long tick) {
+            // Fixed rate: each tick is due a whole number of periods after the start, so lateness doesn't add up
+            long delay = start + tick * period.toNanos() - System.nanoTime();
+            timeout = timer.newTimeout(this::fire, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+
+        private void fire(Timeout fired) {
+            if (stopped) {
+                return;
+            }
+            long tick = ticks.incrementAndGet();
+            for (Shard shard : shardsOfSubscribers) {
+                if (!shard.isEmpty()) {
+                    shard.worker.schedule(() -> shard.emit(tick));
+                }
+            }
+            if (!stopped) {
+                schedule(tick + 1);
+            }
+        }
+    }
+
+    /**
+     * A share of a period's subscribers, always fanned out by the same worker so ticks stay in order.
+     */
+    private static final class Shard {
+
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final Scheduler.Worker worker = Schedulers.parallel().createWorker();
+
+        void add(Subscriber subscriber) {
+            subscribers.add(subscriber);
+        }
+
+        boolean remove(Subscriber subscriber) {
+            return subscribers.remove(subscriber);
+        }
+
+        boolean isEmpty() {
+            return subscribers.isEmpty();
+        }
+
+        void emit(long tick) {
+            for (Subscriber subscriber : subscribers) {
+                long index = tick - subscriber.offset - 1;
+                // A subscriber that joined while this tick was being fanned out starts on the next one
+                if (index >= 0) {
+                    subscriber.sink.next(index);
+                }
+            }
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final FluxSink<Long> sink;
+        private volatile long offset;
+
+        Subscriber(FluxSink<Long> sink) {
+            this.sink = sink;
+        }
+    }
+}
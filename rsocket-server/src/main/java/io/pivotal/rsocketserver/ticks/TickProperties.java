@@ -0,0 +1,25 @@
+package io.pivotal.rsocketserver.ticks;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the shared timer behind the interval-based streams.
+ */
+@Data
+@ConfigurationProperties("rsocket.ticks")
+public class TickProperties {
+
+    /**
+     * How often the timer wheel moves on. Ticks fire within this much of their due time, and shorter
+     * periods fall back to a per-subscriber Flux.interval.
+     */
+    private Duration tickDuration = Duration.ofMillis(10);
+
+    /**
+     * The number of slots in the timer wheel.
+     */
+    private int wheelSize = 512;
+}
@@ -0,0 +1,74 @@
+package io.pivotal.rsocketserver.transport;
+
+import io.rsocket.core.RSocketServer;
+import io.rsocket.transport.local.LocalServerTransport;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.WebsocketServerTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Binds the server's responder to the transports enabled in {@link TransportProperties}, alongside the server Spring
+ * Boot starts. Each transport gets a server of its own from the given supplier, set up in the same way as Spring
+ * Boot's, so every route, and the security, resumption and leases, work the same on all of them.
+ */
+@Slf4j
+public class AdditionalTransports implements SmartLifecycle {
+
+    private final TransportProperties properties;
+    private final Supplier<RSocketServer> servers;
+    private final List<Disposable> bound = new CopyOnWriteArrayList<>();
+
+    private volatile InetSocketAddress websocketAddress;
+    private volatile boolean running;
+
+    public AdditionalTransports(TransportProperties properties, Supplier<RSocketServer> servers) {
+        this.properties = properties;
+        this.servers = servers;
+    }
+
+    @Override
+    public void start() {
+        TransportProperties.Websocket websocket = properties.getWebsocket();
+        if (websocket.isEnabled()) {
+            CloseableChannel channel = servers.get()
+                    .bind(WebsocketServerTransport.create(websocket.getAddress(), websocket.getPort()))
+                    .block();
+            bound.add(channel);
+            websocketAddress = channel.address();
+            log.info("RSocket WebSocket server started on {}", websocketAddress);
+        }
+        TransportProperties.Local local = properties.getLocal();
+        if (local.isEnabled()) {
+            bound.add(servers.get().bind(LocalServerTransport.create(local.getName())).block());
+            log.info("RSocket local server started as '{}'", local.getName());
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        bound.forEach(Disposable::dispose);
+        bound.clear();
+        websocketAddress = null;
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return where the WebSocket server is listening, or null if it isn't
+     */
+    public InetSocketAddress getWebsocketAddress() {
+        return websocketAddress;
+    }
+}
@@ -0,0 +1,48 @@
+package io.pivotal.rsocketserver.transport;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Transports the server listens on as well as the one set by 'spring.rsocket.server.transport' and
+ * 'spring.rsocket.server.port' (TCP on port 7000, unless changed).
+ */
+@Data
+@ConfigurationProperties("rsocket.transport")
+public class TransportProperties {
+
+    private final Websocket websocket = new Websocket();
+
+    private final Local local = new Local();
+
+    /**
+     * RSocket over WebSocket, for clients that can only get out through an HTTP proxy.
+     */
+    @Data
+    public static class Websocket {
+
+        private boolean enabled = false;
+
+        private String address = "0.0.0.0";
+
+        /**
+         * 0 for any free port.
+         */
+        private int port = 7080;
+    }
+
+    /**
+     * An in-JVM transport, for clients running in the same JVM as the server, such as tests. Frames are handed over
+     * without going through the network stack.
+     */
+    @Data
+    public static class Local {
+
+        private boolean enabled = false;
+
+        /**
+         * The name clients connect to. Only one server in the JVM can use each name.
+         */
+        private String name = "rsocket-server";
+    }
+}
@@ -0,0 +1,10 @@
+package io.pivotal.rsocketserver;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * The same tests, with each connection authorized once when it is set up rather than on every request.
+ */
+@SpringBootTest(properties = {RSocketSecurityConfig.AUTHORIZATION + "=connection", "spring.rsocket.server.port=0"})
+public class RSocketClientToSecuredServerConnectionAuthorizationITest extends RSocketClientToSecuredServerITest {
+}
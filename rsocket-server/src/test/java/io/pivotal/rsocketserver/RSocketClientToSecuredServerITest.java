@@ -1,5 +1,6 @@
 package io.pivotal.rsocketserver;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.pivotal.rsocketserver.data.Message;
 import io.rsocket.SocketAcceptor;
 import io.rsocket.metadata.WellKnownMimeType;
@@ -25,10 +26,13 @@ import reactor.test.StepVerifier;
 import java.time.Duration;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 public class RSocketClientToSecuredServerITest {
 
     private static RSocketRequester requester;
+    private static RSocketRequester authorizedRequester;
     private static UsernamePasswordMetadata credentials;
     private static MimeType mimeType;
 
@@ -54,6 +58,51 @@ public class RSocketClientToSecuredServerITest {
                 .rsocketConnector(connector -> connector.acceptor(responder))
                 .connectTcp("localhost", port)
                 .block();
+
+        // The user 'user' IS in the 'USER' role
+        authorizedRequester = builder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata("user", "pass"), mimeType)
+                .rsocketStrategies(b ->
+                        b.encoder(new SimpleAuthenticationEncoder()))
+                .rsocketConnector(connector -> connector.acceptor(responder))
+                .connectTcp("localhost", port)
+                .block();
+    }
+
+    @Test
+    public void testCachedRequestResponse(@Autowired MeterRegistry registry) {
+        Message request = new Message("TEST", "Cached Request");
+
+        // An authorized user puts the response in the cache
+        StepVerifier
+                .create(authorizedRequester
+                        .route("request-response")
+                        .data(request)
+                        .retrieveMono(Message.class))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // Assert that the user 'test' is still DENIED access, rather than getting the cached response.
+        StepVerifier
+                .create(requester
+                        .route("request-response")
+                        .data(request)
+                        .retrieveMono(Message.class))
+                .verifyErrorMessage("Denied");
+
+        // The authorized user gets the cached response
+        StepVerifier
+                .create(authorizedRequester
+                        .route("request-response")
+                        .data(request)
+                        .retrieveMono(Message.class))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(registry.get("cache.gets").tag("cache", "request-response").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
     }
 
     @Test
@@ -73,6 +122,7 @@ public class RSocketClientToSecuredServerITest {
     @AfterAll
     public static void tearDownOnce() {
         requester.rsocket().dispose();
+        authorizedRequester.rsocket().dispose();
     }
 
     @Slf4j
@@ -0,0 +1,155 @@
+package io.pivotal.rsocketserver;
+
+import io.pivotal.rsocketserver.codec.BinaryFormat;
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run the interactions using the hand-written binary data MIME type instead of CBOR.
+ */
+@SpringBootTest
+public class RSocketClientToServerBinaryCodecITest {
+
+    private static RSocketRequester requester;
+
+    @BeforeAll
+    public static void setupOnce(@Autowired RSocketRequester.Builder builder,
+                                 @LocalRSocketServerPort Integer port,
+                                 @Autowired RSocketStrategies strategies) {
+
+        SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new RSocketClientToServerITest.ClientHandler());
+        UsernamePasswordMetadata credentials = new UsernamePasswordMetadata("user", "pass");
+        MimeType mimeType = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+
+        requester = builder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(credentials, mimeType)
+                .dataMimeType(BinaryFormat.MIME_TYPE)
+                .rsocketStrategies(b -> b
+                        .encoder(new SimpleAuthenticationEncoder())
+                        .encoder(new DurationEncoder()))
+                .rsocketConnector(connector -> connector.acceptor(responder))
+                .connectTcp("localhost", port)
+                .block();
+    }
+
+    @Test
+    public void testRequestGetsResponse() {
+        Mono<Message> result = requester
+                .route("request-response")
+                .data(new Message("TEST", "Request"))
+                .retrieveMono(Message.class);
+
+        StepVerifier
+                .create(result)
+                .consumeNextWith(message -> {
+                    assertThat(message.getOrigin()).isEqualTo(RSocketController.SERVER);
+                    assertThat(message.getInteraction()).isEqualTo(RSocketController.RESPONSE);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testStreamGetsStream() {
+        Flux<Message> result = requester
+                .route("channel")
+                .data(Flux.just(Duration.ofSeconds(1)))
+                .retrieveFlux(Message.class);
+
+        StepVerifier
+                .create(result)
+                .consumeNextWith(message -> {
+                    assertThat(message.getInteraction()).isEqualTo(RSocketController.CHANNEL);
+                    assertThat(message.getIndex()).isEqualTo(0L);
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testBatchedChannelGetsBatches() {
+        Flux<List<Message>> result = requester
+                .route("channel.5.1000")
+                .data(Flux.just(Duration.ofMillis(10)))
+                .retrieveFlux(new ParameterizedTypeReference<List<Message>>() { });
+
+        // Five messages come long before the second is up, so the first batch is full
+        StepVerifier
+                .create(result)
+                .consumeNextWith(batch -> {
+                    assertThat(batch).hasSize(5);
+                    assertThat(batch).extracting(Message::getInteraction).containsOnly(RSocketController.CHANNEL);
+                    assertThat(batch).extracting(Message::getIndex).containsExactly(0L, 1L, 2L, 3L, 4L);
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @AfterAll
+    public static void tearDownOnce() {
+        requester.rsocket().dispose();
+    }
+
+    /**
+     * The server only decodes Durations, so the client side encoder lives here with the test.
+     */
+    static class DurationEncoder extends AbstractEncoder<Duration> {
+
+        DurationEncoder() {
+            super(BinaryFormat.MIME_TYPE);
+        }
+
+        @Override
+        public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+            return Duration.class.equals(elementType.toClass()) && super.canEncode(elementType, mimeType);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<? extends Duration> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            return Flux.from(inputStream).map(duration -> encodeValue(duration, bufferFactory, elementType, mimeType, hints));
+        }
+
+        @Override
+        public DataBuffer encodeValue(Duration duration, DataBufferFactory bufferFactory,
+                                      ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+            DataBuffer buffer = bufferFactory.allocateBuffer(13);
+            buffer.asByteBuffer(0, 13)
+                    .put((byte) 1)
+                    .putLong(duration.getSeconds())
+                    .putInt(duration.getNano());
+            return buffer.writePosition(13);
+        }
+    }
+}
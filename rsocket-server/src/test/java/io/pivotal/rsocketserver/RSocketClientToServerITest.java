@@ -1,5 +1,9 @@
 package io.pivotal.rsocketserver;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.pivotal.rsocketserver.clients.ClientRegistry;
+import io.pivotal.rsocketserver.clients.ConnectedClient;
 import io.pivotal.rsocketserver.data.Message;
 import io.rsocket.SocketAcceptor;
 import io.rsocket.metadata.WellKnownMimeType;
@@ -10,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.rsocket.RSocketRequester;
 import org.springframework.messaging.rsocket.RSocketStrategies;
@@ -20,9 +25,12 @@ import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.ReplayProcessor;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -33,6 +41,10 @@ public class RSocketClientToServerITest {
     private static RSocketRequester requester;
     private static UsernamePasswordMetadata credentials;
     private static MimeType mimeType;
+    private static String clientId;
+
+    @Autowired
+    private ClientRegistry clients;
 
 
     @BeforeAll
@@ -43,10 +55,11 @@ public class RSocketClientToServerITest {
         SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new ClientHandler());
         credentials = new UsernamePasswordMetadata("user", "pass");
         mimeType = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+        clientId = UUID.randomUUID().toString();
 
         requester = builder
                 .setupRoute("shell-client")
-                .setupData(UUID.randomUUID().toString())
+                .setupData(clientId)
                 .setupMetadata(credentials, mimeType)
                 .rsocketStrategies(b ->
                         b.encoder(new SimpleAuthenticationEncoder()))
@@ -56,7 +69,42 @@ public class RSocketClientToServerITest {
     }
 
     @Test
-    public void testFireAndForget() {
+    public void testConnectedClientIsRegistered() {
+        // The client is registered under the client ID from its setup payload and under its username
+        assertThat(clients.findById(clientId))
+                .hasValueSatisfying(client -> assertThat(client.getUsername()).isEqualTo("user"));
+        assertThat(clients.findByUser("user"))
+                .extracting(ConnectedClient::getClientId)
+                .contains(clientId);
+    }
+
+    @Test
+    public void testRequestsAreMeteredByRoute(@Autowired MeterRegistry registry) {
+        StepVerifier
+                .create(requester
+                        .route("request-response")
+                        .data(new Message("TEST", "Metered Request"))
+                        .retrieveMono(Message.class))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // The server records the request once its response has been sent, so wait for it
+        Timer timer = Flux.interval(Duration.ofMillis(10))
+                .map(tick -> Optional.ofNullable(registry.find("rsocket.requests")
+                        .tag("route", "request-response")
+                        .tag("interaction", "request-response")
+                        .tag("outcome", "success")
+                        .timer()))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .blockFirst(Duration.ofSeconds(5));
+
+        assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+        assertThat(registry.get("rsocket.connections").gauge().value()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void testFireAndForget(@Autowired MeterRegistry registry) {
         // Send a fire-and-forget message
         Mono<Void> result = requester
                 .route("fire-and-forget")
@@ -67,6 +115,13 @@ public class RSocketClientToServerITest {
         StepVerifier
                 .create(result)
                 .verifyComplete();
+
+        // The message reaches the ingest sink, in the next batch written
+        Double written = Flux.interval(Duration.ofMillis(10))
+                .map(tick -> registry.get("rsocket.ingest.written").counter().count())
+                .filter(count -> count >= 1)
+                .blockFirst(Duration.ofSeconds(5));
+        assertThat(written).isGreaterThanOrEqualTo(1);
     }
 
     @Test
@@ -88,6 +143,34 @@ public class RSocketClientToServerITest {
                 .verifyComplete();
     }
 
+    @Test
+    public void testBlockingRequestLeavesTheConnectionFree() {
+        Mono<String> blocking = requester
+                .route("blocking.1000")
+                .data(new Message("TEST", "Blocking Request"))
+                .retrieveMono(Message.class)
+                .map(message -> "blocking");
+        Mono<String> request = requester
+                .route("request-response")
+                .data(new Message("TEST", "Request"))
+                .retrieveMono(Message.class)
+                .map(message -> "request-response");
+
+        // Sent second, but answered while the blocking call is still going
+        StepVerifier
+                .create(Mono.first(blocking, request.delaySubscription(Duration.ofMillis(100))))
+                .expectNext("request-response")
+                .verifyComplete();
+
+        StepVerifier
+                .create(requester
+                        .route("blocking.10")
+                        .data(new Message("TEST", "Blocking Request"))
+                        .retrieveMono(Message.class))
+                .consumeNextWith(message -> assertThat(message.getInteraction()).isEqualTo(RSocketController.RESPONSE))
+                .verifyComplete();
+    }
+
     @Test
     public void testRequestGetsStream() {
         // Send a request message
@@ -114,6 +197,26 @@ public class RSocketClientToServerITest {
                 .verify();
     }
 
+    @Test
+    public void testRequestGetsStreamOfCount() {
+        // Ask for ten messages, sent as fast as possible
+        Flux<Message> result = requester
+                .route("stream.0.1.10")
+                .data(new Message("TEST", "Stream"))
+                .retrieveFlux(Message.class);
+
+        // Verify that the stream ends after the tenth message
+        StepVerifier
+                .create(result)
+                .expectNextCount(9)
+                .consumeNextWith(message -> {
+                    assertThat(message.getOrigin()).isEqualTo(RSocketController.SERVER);
+                    assertThat(message.getInteraction()).isEqualTo(RSocketController.STREAM);
+                    assertThat(message.getIndex()).isEqualTo(9L);
+                })
+                .verifyComplete();
+    }
+
     @Test
     public void testStreamGetsStream() {
         Mono<Duration> setting1 = Mono.just(Duration.ofSeconds(6)).delayElement(Duration.ofSeconds(0));
@@ -143,6 +246,47 @@ public class RSocketClientToServerITest {
                 .verify();
     }
 
+    @Test
+    public void testBatchedChannelGetsBatches() {
+        Flux<List<Message>> result = requester
+                .route("channel.5.1000")
+                .data(Flux.just(Duration.ofMillis(10)))
+                .retrieveFlux(new ParameterizedTypeReference<List<Message>>() { });
+
+        // Five messages come long before the second is up, so the first batch is full
+        StepVerifier
+                .create(result)
+                .consumeNextWith(batch -> {
+                    assertThat(batch).hasSize(5);
+                    assertThat(batch).extracting(Message::getInteraction).containsOnly(RSocketController.CHANNEL);
+                    assertThat(batch).extracting(Message::getIndex).containsExactly(0L, 1L, 2L, 3L, 4L);
+                })
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testBroadcastIsSentToClients() {
+        // Send a message to be broadcast to every client, including this one
+        Mono<Void> result = requester
+                .route("broadcast")
+                .data(new Message("TEST", "Broadcast"))
+                .send();
+
+        StepVerifier
+                .create(result)
+                .verifyComplete();
+
+        // Verify that the broadcast was received by this client's 'broadcast' route
+        StepVerifier
+                .create(ClientHandler.BROADCASTS.next())
+                .consumeNextWith(message -> {
+                    assertThat(message.getOrigin()).isEqualTo("TEST");
+                    assertThat(message.getInteraction()).isEqualTo("Broadcast");
+                })
+                .verifyComplete();
+    }
+
     @Test
     public void testNoMatchingRouteGetsException() {
         // Send a request with bad route and data
@@ -165,10 +309,19 @@ public class RSocketClientToServerITest {
     @Slf4j
     static class ClientHandler {
 
+        static final ReplayProcessor<Message> BROADCASTS = ReplayProcessor.create();
+
         @MessageMapping("client-status")
         public Flux<String> statusUpdate(String status) {
             log.info("Connection {}", status);
             return Flux.interval(Duration.ofSeconds(5)).map(index -> String.valueOf(Runtime.getRuntime().freeMemory()));
         }
+
+        @MessageMapping("broadcast")
+        public Mono<Void> broadcast(Flux<Message> messages) {
+            return messages
+                    .doOnNext(BROADCASTS::onNext)
+                    .then();
+        }
     }
 }
@@ -0,0 +1,187 @@
+package io.pivotal.rsocketserver;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.Leases;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.stereotype.Controller;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Saturate a route that handles one request at a time, with many more requests at once than it can take, from a
+ * client that honours leases. The server only has as many requests in flight as it leased, which are answered in
+ * bounded time, and the rest are shed by the client without reaching the server. Without leases, every request would
+ * queue behind all the others.
+ */
+@SpringBootTest(properties = {
+        "spring.rsocket.server.port=0",
+        "rsocket.lease.interval=10ms",
+        "rsocket.lease.latency-threshold=20ms"})
+@ActiveProfiles("lease")
+public class RSocketLeaseITest {
+
+    // Requests at once: without leases, the last would wait for all the others, about 200ms
+    private static final int CONCURRENCY = 200;
+    private static final Duration SERVICE_TIME = Duration.ofMillis(1);
+    // Client and server share the JVM, and on a single CPU the JIT takes a few seconds to settle
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration RUN = Duration.ofSeconds(6);
+    private static final Duration RETRY_DELAY = Duration.ofMillis(20);
+
+    private static RSocketRequester requester;
+
+    @BeforeAll
+    public static void setupOnce(@Autowired RSocketRequester.Builder builder,
+                                 @LocalRSocketServerPort Integer port,
+                                 @Autowired RSocketStrategies strategies) {
+
+        SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new RSocketClientToServerITest.ClientHandler());
+
+        requester = builder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata("user", "pass"),
+                        MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString()))
+                .rsocketStrategies(b -> b.encoder(new SimpleAuthenticationEncoder()))
+                .rsocketConnector(connector -> connector
+                        .acceptor(responder)
+                        // Honour the server's leases, and lease it all the requests it wants
+                        .lease(() -> Leases.create().sender(stats -> Flux
+                                .interval(Duration.ZERO, Duration.ofSeconds(1))
+                                .map(tick -> Lease.create(5_000, Integer.MAX_VALUE)))))
+                .connectTcp("localhost", port)
+                .block();
+    }
+
+    @Test
+    public void testRequestsAreLeased() {
+        StepVerifier
+                .create(Mono.defer(() -> requester
+                        .route("request-response")
+                        .data(new Message("TEST", "Request"))
+                        .retrieveMono(Message.class))
+                        .retryWhen(Retry.fixedDelay(100, Duration.ofMillis(10))
+                                .filter(RejectedException.class::isInstance)))
+                .expectNextMatches(message -> "Server".equals(message.getOrigin()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testLatencyStaysBoundedWhenSaturated(@Autowired MeterRegistry registry) {
+        long start = System.nanoTime();
+        long measureFrom = start + WARM_UP.toNanos();
+        long end = start + RUN.toNanos();
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong shed = new AtomicLong();
+        AtomicLong mostInFlight = new AtomicLong();
+
+        Disposable sampler = Flux.interval(Duration.ofMillis(5))
+                .filter(tick -> System.nanoTime() >= measureFrom)
+                .subscribe(tick -> mostInFlight.accumulateAndGet(
+                        (long) registry.get("rsocket.lease.in-flight").gauge().value(), Math::max));
+        Flux.range(0, CONCURRENCY)
+                .flatMap(worker -> Mono.defer(() -> {
+                    long sent = System.nanoTime();
+                    return requester
+                            .route("slow")
+                            .data("request")
+                            .retrieveMono(String.class)
+                            .doOnNext(response -> {
+                                if (sent >= measureFrom) {
+                                    latencies.add(System.nanoTime() - sent);
+                                }
+                            })
+                            .then()
+                            // Turned away by the client for want of a lease: try again after the next one
+                            .onErrorResume(RejectedException.class, error -> {
+                                shed.incrementAndGet();
+                                return Mono.delay(RETRY_DELAY).then();
+                            });
+                }).repeat(() -> System.nanoTime() < end), CONCURRENCY)
+                .blockLast(RUN.plusSeconds(10));
+        sampler.dispose();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long median = TimeUnit.NANOSECONDS.toMillis(sorted.get(sorted.size() / 2));
+        long p99 = TimeUnit.NANOSECONDS.toMillis(sorted.get((int) (sorted.size() * 0.99)));
+
+        assertThat(sorted).hasSizeGreaterThan(500);
+        assertThat(shed.get()).isPositive();
+        // Without leases all of them would be in flight, and the median request would wait for about 100 others
+        assertThat(mostInFlight.get()).as("most requests in flight").isLessThan(CONCURRENCY / 2);
+        assertThat(median).as("median latency (ms)").isLessThan(CONCURRENCY * SERVICE_TIME.toMillis() / 2);
+        // Without leases the slowest would wait for all the others. With them it waits for those under the limit, and
+        // perhaps a GC pause
+        assertThat(p99).as("p99 latency (ms)").isLessThan(CONCURRENCY * SERVICE_TIME.toMillis() * 3 / 4);
+        assertThat(registry.get("rsocket.lease.limit").gauge().value()).isLessThan(CONCURRENCY);
+    }
+
+    @AfterAll
+    public static void tearDownOnce() {
+        requester.rsocket().dispose();
+    }
+
+    @TestConfiguration
+    static class SlowRouteConfig {
+
+        @Bean
+        SlowController slowController() {
+            return new SlowController();
+        }
+    }
+
+    /**
+     * Handles one request at a time, each taking the service time, so requests queue when they come faster.
+     */
+    @Controller
+    static class SlowController {
+
+        private final Scheduler worker = Schedulers.newSingle("slow-route");
+
+        @MessageMapping("slow")
+        Mono<String> slow(String request) {
+            return Mono.fromCallable(() -> {
+                Thread.sleep(SERVICE_TIME.toMillis());
+                return "response";
+            }).subscribeOn(worker);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package io.pivotal.rsocketserver;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * The same tests, with each connection authorized once when it is set up rather than on every request.
+ */
+@SpringBootTest(properties = {RSocketSecurityConfig.AUTHORIZATION + "=connection",
+        "spring.rsocket.server.port=0",
+        "rsocket.rate-limit.routes.request-response.per-user.rate=0.001",
+        "rsocket.rate-limit.routes.request-response.per-user.burst=3",
+        "rsocket.rate-limit.routes[stream.{rate}.{batch}.{count}].per-connection.rate=0.001",
+        "rsocket.rate-limit.routes[stream.{rate}.{batch}.{count}].per-connection.burst=2"})
+public class RSocketRateLimitConnectionAuthorizationITest extends RSocketRateLimitITest {
+}
@@ -0,0 +1,106 @@
+package io.pivotal.rsocketserver;
+
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.UUID;
+
+/**
+ * One user on two connections, with limits too slow to refill during the test.
+ */
+@SpringBootTest(properties = {
+        "spring.rsocket.server.port=0",
+        "rsocket.rate-limit.routes.request-response.per-user.rate=0.001",
+        "rsocket.rate-limit.routes.request-response.per-user.burst=3",
+        "rsocket.rate-limit.routes[stream.{rate}.{batch}.{count}].per-connection.rate=0.001",
+        "rsocket.rate-limit.routes[stream.{rate}.{batch}.{count}].per-connection.burst=2"})
+public class RSocketRateLimitITest {
+
+    private static RSocketRequester first;
+    private static RSocketRequester second;
+
+    @BeforeAll
+    public static void setupOnce(@Autowired RSocketRequester.Builder builder,
+                                 @LocalRSocketServerPort Integer port,
+                                 @Autowired RSocketStrategies strategies) {
+        first = connect(builder, port, strategies);
+        second = connect(builder, port, strategies);
+    }
+
+    @Test
+    public void testUserIsLimitedAcrossTheirConnections() {
+        succeeds(requestResponse(first));
+        succeeds(requestResponse(second));
+        succeeds(requestResponse(first));
+
+        rejected(requestResponse(first));
+        rejected(requestResponse(second));
+    }
+
+    @Test
+    public void testEachConnectionIsLimitedOnItsOwn() {
+        succeeds(stream(first));
+        succeeds(stream(first));
+        rejected(stream(first));
+
+        succeeds(stream(second));
+    }
+
+    private static Mono<Message> requestResponse(RSocketRequester requester) {
+        return requester
+                .route("request-response")
+                .data(new Message("TEST", "Request"))
+                .retrieveMono(Message.class);
+    }
+
+    private static Mono<Message> stream(RSocketRequester requester) {
+        return requester
+                .route("stream.0.1.1")
+                .data(new Message("TEST", "Stream"))
+                .retrieveFlux(Message.class)
+                .next();
+    }
+
+    private static void succeeds(Mono<Message> response) {
+        StepVerifier.create(response).expectNextCount(1).verifyComplete();
+    }
+
+    private static void rejected(Mono<Message> response) {
+        StepVerifier.create(response).verifyError(RejectedException.class);
+    }
+
+    private static RSocketRequester connect(RSocketRequester.Builder builder, Integer port, RSocketStrategies strategies) {
+        SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new RSocketClientToServerITest.ClientHandler());
+        return builder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata("user", "pass"),
+                        MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString()))
+                .rsocketStrategies(b -> b.encoder(new SimpleAuthenticationEncoder()))
+                .rsocketConnector(connector -> connector.acceptor(responder))
+                .connectTcp("localhost", port)
+                .block();
+    }
+
+    @AfterAll
+    public static void tearDownOnce() {
+        first.rsocket().dispose();
+        second.rsocket().dispose();
+    }
+}
@@ -0,0 +1,145 @@
+package io.pivotal.rsocketserver;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.pivotal.rsocketserver.data.Message;
+import io.pivotal.rsocketserver.transport.AdditionalTransports;
+import io.rsocket.DuplexConnection;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.core.Resume;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.transport.ClientTransport;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drop the client's connection in the middle of a stream, and check the stream carries on where it left off
+ * once the client has resumed its session, over each transport.
+ */
+@SpringBootTest(properties = {
+        "spring.rsocket.server.port=0",
+        "rsocket.transport.websocket.enabled=true",
+        "rsocket.transport.websocket.address=localhost",
+        "rsocket.transport.websocket.port=0",
+        "rsocket.transport.local.enabled=true",
+        "rsocket.transport.local.name=" + RSocketResumptionITest.LOCAL_NAME})
+@ActiveProfiles("resumption")
+public class RSocketResumptionITest {
+
+    static final String LOCAL_NAME = "rsocket-resumption-itest";
+    private static final int MESSAGES = 300;
+
+    @Autowired
+    private RSocketRequester.Builder builder;
+
+    @Autowired
+    private RSocketStrategies strategies;
+
+    @Autowired
+    private AdditionalTransports transports;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @LocalRSocketServerPort
+    private Integer port;
+
+    @ParameterizedTest
+    @EnumSource(TestTransport.class)
+    public void testStreamResumesWithoutGaps(TestTransport over) {
+        SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new RSocketClientToServerITest.ClientHandler());
+        KillableTransport transport = new KillableTransport(over.create(port, transports, LOCAL_NAME));
+        long resumed = registry.get("rsocket.resume.resumed").timer().count();
+        double sessions = registry.get("rsocket.resume.sessions").gauge().value();
+
+        RSocketRequester requester = builder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata("user", "pass"),
+                        MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString()))
+                .rsocketStrategies(b -> b.encoder(new SimpleAuthenticationEncoder()))
+                .rsocketConnector(connector -> connector
+                        .acceptor(responder)
+                        .resume(new Resume().retry(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(100)))))
+                .connect(transport)
+                .block();
+        List<Long> indexes = new ArrayList<>();
+
+        try {
+            // 100 messages a second, so the server carries on sending while the client is away
+            StepVerifier
+                    .create(requester
+                            .route("stream.100.1." + MESSAGES)
+                            .data(new Message("TEST", "Stream"))
+                            .retrieveFlux(Message.class)
+                            .map(Message::getIndex))
+                    .recordWith(() -> indexes)
+                    .expectNextCount(50)
+                    .then(transport::kill)
+                    .thenConsumeWhile(index -> true)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(30));
+
+            assertThat(transport.connections()).isEqualTo(2);
+            assertThat(indexes).containsExactlyElementsOf(
+                    LongStream.range(0, MESSAGES).boxed().collect(Collectors.toList()));
+            assertThat(registry.get("rsocket.resume.resumed").timer().count()).isEqualTo(resumed + 1);
+            assertThat(registry.get("rsocket.resume.sessions").gauge().value()).isEqualTo(sessions + 1);
+        } finally {
+            requester.rsocket().dispose();
+        }
+    }
+
+    /**
+     * Connects over the given transport, and can close the last connection as if the network had dropped it.
+     */
+    static class KillableTransport implements ClientTransport {
+
+        private final ClientTransport delegate;
+        private final AtomicReference<DuplexConnection> connection = new AtomicReference<>();
+        private final AtomicInteger connections = new AtomicInteger();
+
+        KillableTransport(ClientTransport delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Mono<DuplexConnection> connect(int mtu) {
+            return delegate.connect(mtu).doOnNext(connected -> {
+                connections.incrementAndGet();
+                connection.set(connected);
+            });
+        }
+
+        void kill() {
+            connection.get().dispose();
+        }
+
+        int connections() {
+            return connections.get();
+        }
+    }
+}
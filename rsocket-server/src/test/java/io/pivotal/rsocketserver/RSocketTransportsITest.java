@@ -0,0 +1,144 @@
+package io.pivotal.rsocketserver;
+
+import io.pivotal.rsocketserver.data.Message;
+import io.pivotal.rsocketserver.transport.AdditionalTransports;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.metadata.WellKnownMimeType;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run the interactions, and security, over every transport the server listens on.
+ */
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.rsocket.server.port=0",
+        "rsocket.transport.websocket.enabled=true",
+        "rsocket.transport.websocket.address=localhost",
+        "rsocket.transport.websocket.port=0",
+        "rsocket.transport.local.enabled=true",
+        "rsocket.transport.local.name=" + RSocketTransportsITest.LOCAL_NAME})
+public class RSocketTransportsITest {
+
+    static final String LOCAL_NAME = "rsocket-transports-itest";
+    private static final int STREAM_MESSAGES = 10_000;
+
+    @Autowired
+    private RSocketRequester.Builder builder;
+
+    @Autowired
+    private RSocketStrategies strategies;
+
+    @Autowired
+    private AdditionalTransports transports;
+
+    @LocalRSocketServerPort
+    private Integer port;
+
+    @ParameterizedTest
+    @EnumSource(TestTransport.class)
+    public void testRequestGetsResponse(TestTransport transport) {
+        RSocketRequester requester = connect(transport, "user");
+        try {
+            StepVerifier
+                    .create(requester
+                            .route("request-response")
+                            .data(new Message("TEST", "Request"))
+                            .retrieveMono(Message.class))
+                    .consumeNextWith(message -> {
+                        assertThat(message.getOrigin()).isEqualTo(RSocketController.SERVER);
+                        assertThat(message.getInteraction()).isEqualTo(RSocketController.RESPONSE);
+                    })
+                    .verifyComplete();
+        } finally {
+            requester.rsocket().dispose();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestTransport.class)
+    public void testStreamGetsEveryMessage(TestTransport transport) {
+        RSocketRequester requester = connect(transport, "user");
+        try {
+            long start = System.nanoTime();
+            StepVerifier
+                    .create(requester
+                            .route("stream.0.1." + STREAM_MESSAGES)
+                            .data(new Message("TEST", "Stream"))
+                            .retrieveFlux(Message.class))
+                    .expectNextCount(STREAM_MESSAGES)
+                    .verifyComplete();
+            long millis = Math.max(1, Duration.ofNanos(System.nanoTime() - start).toMillis());
+            // For a rough comparison only: the benchmarks measure throughput properly
+            log.info("Streamed {} messages over {} in {}ms ({} a second)",
+                    STREAM_MESSAGES, transport, millis, STREAM_MESSAGES * 1000L / millis);
+        } finally {
+            requester.rsocket().dispose();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestTransport.class)
+    public void testChannelGetsStream(TestTransport transport) {
+        RSocketRequester requester = connect(transport, "user");
+        try {
+            StepVerifier
+                    .create(requester
+                            .route("channel")
+                            .data(Flux.just(Duration.ofMillis(10)))
+                            .retrieveFlux(Message.class)
+                            .take(3)
+                            .map(Message::getIndex))
+                    .expectNext(0L, 1L, 2L)
+                    .verifyComplete();
+        } finally {
+            requester.rsocket().dispose();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TestTransport.class)
+    public void testUnknownUserIsRefused(TestTransport transport) {
+        RSocketRequester requester = connect(transport, "fake");
+        try {
+            StepVerifier
+                    .create(requester
+                            .route("request-response")
+                            .data(new Message("TEST", "Request"))
+                            .retrieveMono(Message.class))
+                    .verifyErrorMessage("Invalid Credentials");
+        } finally {
+            requester.rsocket().dispose();
+        }
+    }
+
+    private RSocketRequester connect(TestTransport transport, String username) {
+        SocketAcceptor responder = RSocketMessageHandler.responder(strategies, new RSocketClientToServerITest.ClientHandler());
+        return builder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata(username, "pass"),
+                        MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString()))
+                .rsocketStrategies(b -> b.encoder(new SimpleAuthenticationEncoder()))
+                .rsocketConnector(connector -> connector.acceptor(responder))
+                .connect(transport.create(port, transports, LOCAL_NAME))
+                .block();
+    }
+}
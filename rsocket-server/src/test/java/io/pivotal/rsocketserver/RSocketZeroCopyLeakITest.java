@@ -0,0 +1,145 @@
+package io.pivotal.rsocketserver;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.metadata.WellKnownMimeType;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.rsocket.metadata.SimpleAuthenticationEncoder;
+import org.springframework.security.rsocket.metadata.UsernamePasswordMetadata;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drive every route on a server running with zero-copy payload decoding, then check Netty found no leaked buffers.
+ * Runs in its own JVM (see the 'leak-detection' failsafe execution) with paranoid leak detection.
+ */
+@SpringBootTest(properties = "spring.rsocket.server.port=0")
+@ActiveProfiles("zero-copy")
+public class RSocketZeroCopyLeakITest {
+
+    private static final int REQUESTS = 200;
+
+    private static RSocketRequester.Builder reqbuilder;
+    private static RSocketStrategies rsocketStrategies;
+    private static Integer theport;
+    private static final List<RSocketRequester> CONNECTIONS = new ArrayList<>();
+
+    @BeforeAll
+    public static void setupOnce(@Autowired RSocketRequester.Builder builder,
+                                 @LocalRSocketServerPort Integer port,
+                                 @Autowired RSocketStrategies strategies) {
+        reqbuilder = builder;
+        rsocketStrategies = strategies;
+        theport = port;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"application/x.rsocket-demo.binary", "application/cbor", "application/json"})
+    public void testEveryRouteReleasesItsBuffers(String dataMimeType) {
+        assertThat(ResourceLeakDetector.getLevel()).isEqualTo(ResourceLeakDetector.Level.PARANOID);
+
+        RSocketRequester requester = connect(MimeTypeUtils.parseMimeType(dataMimeType));
+        CONNECTIONS.add(requester);
+
+        Flux.range(0, REQUESTS)
+                .concatMap(index -> requester
+                        .route("request-response")
+                        .data(new Message("TEST", "Request", index))
+                        .retrieveMono(Message.class))
+                .blockLast(Duration.ofSeconds(30));
+
+        Flux.range(0, REQUESTS)
+                .concatMap(index -> requester
+                        .route("fire-and-forget")
+                        .data(new Message("TEST", "Fire-And-Forget", index))
+                        .send())
+                .blockLast(Duration.ofSeconds(30));
+
+        Flux.range(0, REQUESTS)
+                .concatMap(index -> requester
+                        .route("broadcast")
+                        .data(new Message("TEST", "Broadcast", index))
+                        .send())
+                .blockLast(Duration.ofSeconds(30));
+
+        requester.route("stream")
+                .data(new Message("TEST", "Stream"))
+                .retrieveFlux(Message.class)
+                .take(2)
+                .blockLast(Duration.ofSeconds(10));
+
+        requester.route("channel")
+                .data(Flux.just(Duration.ofMillis(10)).concatWith(Mono.never()), Duration.class)
+                .retrieveFlux(Message.class)
+                .take(REQUESTS)
+                .blockLast(Duration.ofSeconds(30));
+
+        assertThat(RecordingLeakDetector.INSTANCES.get()).as("leak detector installed").isPositive();
+        assertThat(collectLeaks()).isEmpty();
+    }
+
+    /**
+     * rsocket-core 1.0 can leak the cancel frames it writes while a connection shuts down, with or without zero copy,
+     * so connections stay open until every test has checked for leaks.
+     */
+    @AfterAll
+    public static void tearDownOnce() {
+        CONNECTIONS.forEach(requester -> requester.rsocket().dispose());
+    }
+
+    private static RSocketRequester connect(MimeType dataMimeType) {
+        SocketAcceptor responder = RSocketMessageHandler.responder(rsocketStrategies, new RSocketClientToServerITest.ClientHandler());
+        MimeType authentication = MimeTypeUtils.parseMimeType(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+
+        return reqbuilder
+                .setupRoute("shell-client")
+                .setupData(UUID.randomUUID().toString())
+                .setupMetadata(new UsernamePasswordMetadata("user", "pass"), authentication)
+                .dataMimeType(dataMimeType)
+                .rsocketStrategies(b -> b
+                        .encoder(new SimpleAuthenticationEncoder())
+                        .encoder(new RSocketClientToServerBinaryCodecITest.DurationEncoder()))
+                .rsocketConnector(connector -> connector.acceptor(responder))
+                .connectTcp("localhost", theport)
+                .block();
+    }
+
+    /**
+     * Leaks are only reported once a leaked buffer has been garbage collected and another buffer is allocated.
+     */
+    private static List<String> collectLeaks() {
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            for (int j = 0; j < 100; j++) {
+                PooledByteBufAllocator.DEFAULT.buffer(1).release();
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return RecordingLeakDetector.LEAKS;
+    }
+}
@@ -0,0 +1,39 @@
+package io.pivotal.rsocketserver;
+
+import io.netty.util.ResourceLeakDetector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Netty leak detector that records leaks so tests can fail on them, instead of only logging them.
+ * Installed with -Dio.netty.customResourceLeakDetector=io.pivotal.rsocketserver.RecordingLeakDetector
+ */
+public class RecordingLeakDetector<T> extends ResourceLeakDetector<T> {
+
+    static final List<String> LEAKS = new CopyOnWriteArrayList<>();
+    static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public RecordingLeakDetector(Class<?> resourceType, int samplingInterval) {
+        super(resourceType, samplingInterval);
+        INSTANCES.incrementAndGet();
+    }
+
+    @Override
+    protected boolean needReport() {
+        return true;
+    }
+
+    @Override
+    protected void reportTracedLeak(String resourceType, String records) {
+        LEAKS.add(resourceType + records);
+        super.reportTracedLeak(resourceType, records);
+    }
+
+    @Override
+    protected void reportUntracedLeak(String resourceType) {
+        LEAKS.add(resourceType);
+        super.reportUntracedLeak(resourceType);
+    }
+}
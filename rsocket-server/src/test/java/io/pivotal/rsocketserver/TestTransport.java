@@ -0,0 +1,33 @@
+package io.pivotal.rsocketserver;
+
+import io.pivotal.rsocketserver.transport.AdditionalTransports;
+import io.rsocket.transport.ClientTransport;
+import io.rsocket.transport.local.LocalClientTransport;
+import io.rsocket.transport.netty.client.TcpClientTransport;
+import io.rsocket.transport.netty.client.WebsocketClientTransport;
+
+/**
+ * The transports a test can connect to the server over. The WebSocket and local ones need the test to enable them
+ * with the 'rsocket.transport' properties.
+ */
+enum TestTransport {
+    TCP, WEBSOCKET, LOCAL;
+
+    /**
+     * @param tcpPort    the server's TCP port
+     * @param transports the server's other transports
+     * @param localName  the server's 'rsocket.transport.local.name'
+     */
+    ClientTransport create(int tcpPort, AdditionalTransports transports, String localName) {
+        switch (this) {
+            case TCP:
+                return TcpClientTransport.create("localhost", tcpPort);
+            case WEBSOCKET:
+                return WebsocketClientTransport.create(transports.getWebsocketAddress());
+            case LOCAL:
+                return LocalClientTransport.create(localName);
+            default:
+                throw new IllegalArgumentException("Unknown transport " + this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package io.pivotal.rsocketserver.blocking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BlockingInterceptorTest {
+
+    private BlockingExecutor executor;
+    private Handler target;
+    private Handler handler;
+
+    @BeforeEach
+    public void setup() {
+        executor = new BlockingExecutor(new BlockingProperties(), new SimpleMeterRegistry());
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("executor", executor);
+
+        target = new Handler();
+        ProxyFactory proxy = new ProxyFactory(target);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvisor(new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(Blocking.class),
+                new BlockingInterceptor(beans.getBeanProvider(BlockingExecutor.class))));
+        handler = (Handler) proxy.getProxy();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    public void testMethodIsCalledOnTheBlockingExecutorWhenSubscribed() {
+        Mono<String> thread = handler.thread();
+        assertThat(target.calls).isZero();
+
+        StepVerifier.create(thread)
+                .assertNext(name -> assertThat(name).startsWith(BlockingExecutor.THREAD_PREFIX))
+                .verifyComplete();
+        assertThat(target.calls).isEqualTo(1);
+    }
+
+    @Test
+    public void testFluxIsPassedOn() {
+        StepVerifier.create(handler.threads(3))
+                .assertNext(name -> assertThat(name).startsWith(BlockingExecutor.THREAD_PREFIX))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testExceptionBecomesAnError() throws IOException {
+        StepVerifier.create(handler.failing()).verifyError(IOException.class);
+    }
+
+    @Test
+    @ExtendWith(OutputCaptureExtension.class)
+    public void testCancellingInterruptsTheCallWithoutLoggingAnError(CapturedOutput output) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Disposable call = handler.sleep(started, interrupted).subscribe();
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        call.dispose();
+
+        assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(100);
+        assertThat(output).doesNotContain("InterruptedException");
+    }
+
+    @Test
+    public void testOtherMethodsAreCalledAsUsual() {
+        assertThat(handler.notBlocking()).isEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testBlockingMethodMustBeReactive() {
+        assertThatThrownBy(() -> handler.notReactive())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("must return a Mono or a Flux");
+    }
+
+    @Test
+    public void testCallsWaitAtTheSameTime() throws InterruptedException {
+        // More than one thread per call would allow, unless the executor is virtual
+        int calls = VirtualThreads.isAvailable() ? 1000 : new BlockingProperties().getMaxThreads();
+        CountDownLatch waiting = new CountDownLatch(calls);
+        List<String> answers = Flux.range(0, calls)
+                .flatMap(call -> Mono.defer(() -> await(waiting)), calls)
+                .collectList()
+                .block();
+
+        assertThat(answers).hasSize(calls);
+    }
+
+    @Test
+    public void testVirtualThreadsAreUsedWhenTheJvmHasThem() {
+        BlockingProperties.ExecutorType expected = VirtualThreads.isAvailable()
+                ? BlockingProperties.ExecutorType.VIRTUAL : BlockingProperties.ExecutorType.BOUNDED_ELASTIC;
+
+        assertThat(executor.getType()).isEqualTo(expected);
+    }
+
+    private Mono<String> await(CountDownLatch waiting) {
+        try {
+            return handler.await(waiting);
+        } catch (InterruptedException e) {
+            return Mono.error(e);
+        }
+    }
+
+    static class Handler {
+
+        private volatile int calls;
+
+        @Blocking
+        Mono<String> thread() {
+            calls++;
+            return Mono.just(Thread.currentThread().getName());
+        }
+
+        @Blocking
+        Flux<String> threads(int count) {
+            return Flux.range(0, count).map(i -> Thread.currentThread().getName());
+        }
+
+        @Blocking
+        Mono<String> failing() throws IOException {
+            throw new IOException("Disk full");
+        }
+
+        /**
+         * Blocks until every call has started.
+         */
+        @Blocking
+        Mono<String> await(CountDownLatch waiting) throws InterruptedException {
+            waiting.countDown();
+            return waiting.await(10, TimeUnit.SECONDS) ? Mono.just("done") : Mono.error(new IllegalStateException());
+        }
+
+        @Blocking
+        Mono<String> sleep(CountDownLatch started, CountDownLatch interrupted) throws InterruptedException {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return Mono.just("slept");
+        }
+
+        @Blocking
+        String notReactive() {
+            return "value";
+        }
+
+        String notBlocking() {
+            return Thread.currentThread().getName();
+        }
+    }
+}
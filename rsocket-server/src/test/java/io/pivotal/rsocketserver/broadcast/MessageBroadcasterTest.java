@@ -0,0 +1,113 @@
+package io.pivotal.rsocketserver.broadcast;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.pivotal.rsocketserver.clients.ConnectedClient;
+import io.pivotal.rsocketserver.data.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class MessageBroadcasterTest {
+
+    private BroadcastProperties properties;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        properties = new BroadcastProperties();
+        properties.setBufferSize(4);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testEveryClientReceivesTheBroadcast() {
+        MessageBroadcaster broadcaster = new MessageBroadcaster(properties, registry);
+        Flux<Message> one = broadcaster.outbox(client("one"));
+        Flux<Message> two = broadcaster.outbox(client("two"));
+
+        StepVerifier.create(Flux.merge(one, two).take(2))
+                .then(() -> assertThat(broadcaster.broadcast(message(0))).isEqualTo(2))
+                .expectNext(message(0), message(0))
+                .verifyComplete();
+
+        assertThat(registry.get("rsocket.broadcast.fanout").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSlowClientDropsOldestMessages() {
+        properties.setOverflowPolicy(BroadcastProperties.OverflowPolicy.DROP_OLDEST);
+        MessageBroadcaster broadcaster = new MessageBroadcaster(properties, registry);
+
+        StepVerifier.create(broadcaster.outbox(client("slow")), 0)
+                .then(() -> broadcastMessages(broadcaster, 10))
+                .thenRequest(10)
+                .expectNext(message(6), message(7), message(8), message(9))
+                .thenCancel()
+                .verify();
+
+        assertThat(registry.get("rsocket.broadcast.dropped").counter().count()).isEqualTo(6);
+    }
+
+    @Test
+    public void testSlowClientDropsLatestMessages() {
+        properties.setOverflowPolicy(BroadcastProperties.OverflowPolicy.DROP_LATEST);
+        MessageBroadcaster broadcaster = new MessageBroadcaster(properties, registry);
+
+        StepVerifier.create(broadcaster.outbox(client("slow")), 0)
+                .then(() -> broadcastMessages(broadcaster, 10))
+                .thenRequest(10)
+                .expectNext(message(0), message(1), message(2), message(3))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testSlowClientIsDownsampled() {
+        properties.setOverflowPolicy(BroadcastProperties.OverflowPolicy.DOWNSAMPLE);
+        MessageBroadcaster broadcaster = new MessageBroadcaster(properties, registry);
+
+        StepVerifier.create(broadcaster.outbox(client("slow")), 0)
+                .then(() -> broadcastMessages(broadcaster, 10))
+                .thenRequest(10)
+                .expectNext(message(9))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testSlowClientIsDetached() {
+        properties.setOverflowPolicy(BroadcastProperties.OverflowPolicy.DETACH);
+        MessageBroadcaster broadcaster = new MessageBroadcaster(properties, registry);
+        Flux<Message> slow = broadcaster.outbox(client("slow"));
+
+        StepVerifier.create(slow, 0)
+                .then(() -> broadcastMessages(broadcaster, 10))
+                .thenRequest(10)
+                .expectNextCount(4)
+                .verifyError();
+
+        // The detached client is no longer broadcast to
+        assertThat(broadcaster.broadcast(message(10))).isZero();
+    }
+
+    private static void broadcastMessages(MessageBroadcaster broadcaster, int count) {
+        IntStream.range(0, count).forEach(index -> broadcaster.broadcast(message(index)));
+    }
+
+    private static Message message(long index) {
+        Message message = new Message("TEST", "Broadcast", index);
+        message.setCreated(0);
+        return message;
+    }
+
+    private static ConnectedClient client(String clientId) {
+        return new ConnectedClient(clientId, "user", mock(RSocketRequester.class));
+    }
+}
@@ -0,0 +1,158 @@
+package io.pivotal.rsocketserver.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseCacheInterceptorTest {
+
+    private static final UserDetails ALICE = User.withUsername("alice").password("pass").roles("USER").build();
+    private static final UserDetails BOB = User.withUsername("bob").password("pass").roles("USER").build();
+
+    private SimpleMeterRegistry registry;
+    private Handler target;
+    private Handler handler;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("registry", registry);
+
+        target = new Handler();
+        ProxyFactory proxy = new ProxyFactory(target);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvisor(new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(CachedResponse.class),
+                new ResponseCacheInterceptor(beans.getBeanProvider(MeterRegistry.class))));
+        handler = (Handler) proxy.getProxy();
+    }
+
+    @Test
+    public void testIdenticalRequestsAreServedFromTheCache() {
+        StepVerifier.create(handler.shared("one", ALICE)).expectNext("one-1").verifyComplete();
+        StepVerifier.create(handler.shared("one", BOB)).expectNext("one-1").verifyComplete();
+        StepVerifier.create(handler.shared("two", ALICE)).expectNext("two-2").verifyComplete();
+
+        assertThat(target.calls.get()).isEqualTo(2);
+        assertThat(registry.get("cache.gets").tag("cache", "shared").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "shared").tag("result", "miss").functionCounter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    public void testPerUserResponsesAreKeyedByPrincipal() {
+        StepVerifier.create(handler.perUser("one", ALICE)).expectNext("one-1").verifyComplete();
+        StepVerifier.create(handler.perUser("one", BOB)).expectNext("one-2").verifyComplete();
+        StepVerifier.create(handler.perUser("one", ALICE)).expectNext("one-1").verifyComplete();
+
+        assertThat(target.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentRequestsAreCoalesced() {
+        Mono<String> first = handler.slow("one");
+        Mono<String> second = handler.slow("one");
+
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> assertThat(target.calls.get()).isEqualTo(1))
+                .then(() -> target.slow.onNext("done"))
+                .assertNext(both -> {
+                    assertThat(both.getT1()).isEqualTo("done");
+                    assertThat(both.getT2()).isEqualTo("done");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void testCancellingOneCallerLeavesTheOthers() {
+        StepVerifier.create(handler.slow("one"))
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(handler.slow("one"))
+                .then(() -> target.slow.onNext("done"))
+                .expectNext("done")
+                .verifyComplete();
+
+        assertThat(target.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        StepVerifier.create(handler.failing("one")).verifyErrorMessage("1");
+        StepVerifier.create(handler.failing("one")).verifyErrorMessage("2");
+    }
+
+    @Test
+    public void testResponsesExpire() throws InterruptedException {
+        StepVerifier.create(handler.expiring("one")).expectNext("one-1").verifyComplete();
+        Thread.sleep(150);
+        StepVerifier.create(handler.expiring("one")).expectNext("one-2").verifyComplete();
+    }
+
+    @Test
+    public void testUnannotatedMethodsAreNotCached() {
+        StepVerifier.create(handler.uncached("one")).expectNext("one-1").verifyComplete();
+        StepVerifier.create(handler.uncached("one")).expectNext("one-2").verifyComplete();
+    }
+
+    static class Handler {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final MonoProcessor<String> slow = MonoProcessor.create();
+
+        @CachedResponse
+        @MessageMapping("shared")
+        public Mono<String> shared(String request, @AuthenticationPrincipal UserDetails user) {
+            return Mono.fromSupplier(() -> request + "-" + calls.incrementAndGet());
+        }
+
+        @CachedResponse(perUser = true)
+        @MessageMapping("per-user")
+        public Mono<String> perUser(String request, @AuthenticationPrincipal UserDetails user) {
+            return Mono.fromSupplier(() -> request + "-" + calls.incrementAndGet());
+        }
+
+        @CachedResponse
+        @MessageMapping("slow")
+        public Mono<String> slow(String request) {
+            calls.incrementAndGet();
+            return slow;
+        }
+
+        @CachedResponse
+        @MessageMapping("failing")
+        public Mono<String> failing(String request) {
+            return Mono.error(() -> new IllegalStateException(String.valueOf(calls.incrementAndGet())));
+        }
+
+        @CachedResponse(expireAfterWrite = "100ms")
+        @MessageMapping("expiring")
+        public Mono<String> expiring(String request) {
+            return Mono.fromSupplier(() -> request + "-" + calls.incrementAndGet());
+        }
+
+        @MessageMapping("uncached")
+        public Mono<String> uncached(String request) {
+            return Mono.fromSupplier(() -> request + "-" + calls.incrementAndGet());
+        }
+    }
+}
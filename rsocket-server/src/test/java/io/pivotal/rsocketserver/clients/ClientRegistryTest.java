@@ -0,0 +1,62 @@
+package io.pivotal.rsocketserver.clients;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.rsocket.RSocketRequester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ClientRegistryTest {
+
+    private ClientRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        registry = new ClientRegistry();
+    }
+
+    @Test
+    public void testRegisteredClientsCanBeFoundByIdAndUser() {
+        ConnectedClient one = new ConnectedClient("one", "user", mock(RSocketRequester.class));
+        ConnectedClient two = new ConnectedClient("two", "user", mock(RSocketRequester.class));
+        ConnectedClient three = new ConnectedClient("three", "test", mock(RSocketRequester.class));
+
+        registry.register(one);
+        registry.register(two);
+        registry.register(three);
+
+        assertThat(registry.size()).isEqualTo(3);
+        assertThat(registry.findById("two")).contains(two);
+        assertThat(registry.findByUser("user")).containsExactlyInAnyOrder(one, two);
+        assertThat(registry.findByUser("test")).containsExactly(three);
+        assertThat(registry.all()).containsExactlyInAnyOrder(one, two, three);
+    }
+
+    @Test
+    public void testUnregisteredClientsAreRemovedFromEveryIndex() {
+        ConnectedClient one = new ConnectedClient("one", "user", mock(RSocketRequester.class));
+        registry.register(one);
+
+        assertThat(registry.unregister(one)).isTrue();
+
+        assertThat(registry.size()).isZero();
+        assertThat(registry.findById("one")).isEmpty();
+        assertThat(registry.findByUser("user")).isEmpty();
+    }
+
+    @Test
+    public void testReconnectingClientIsNotRemovedByItsOldConnection() {
+        ConnectedClient before = new ConnectedClient("one", "user", mock(RSocketRequester.class));
+        ConnectedClient after = new ConnectedClient("one", "user", mock(RSocketRequester.class));
+
+        registry.register(before);
+        registry.register(after);
+
+        // The old connection closes after the client has reconnected
+        assertThat(registry.unregister(before)).isFalse();
+
+        assertThat(registry.findById("one")).contains(after);
+        assertThat(registry.findByUser("user")).containsExactly(after);
+    }
+}
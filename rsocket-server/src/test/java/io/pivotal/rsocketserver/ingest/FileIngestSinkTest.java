@@ -0,0 +1,43 @@
+package io.pivotal.rsocketserver.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.pivotal.rsocketserver.data.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileIngestSinkTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void testEventsAreAppendedAsJsonLines(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("ingest").resolve("events.jsonl");
+
+        try (FileIngestSink sink = new FileIngestSink(file, mapper)) {
+            sink.write(Arrays.asList(event(0), event(1)));
+        }
+        try (FileIngestSink sink = new FileIngestSink(file, mapper)) {
+            sink.write(Collections.singletonList(event(2)));
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(3);
+        for (int i = 0; i < lines.size(); i++) {
+            assertThat(mapper.readValue(lines.get(i), Message.class)).isEqualTo(event(i));
+        }
+    }
+
+    private static Message event(long index) {
+        Message message = new Message("TEST", "Fire-And-Forget", index);
+        message.setCreated(0);
+        return message;
+    }
+}
@@ -0,0 +1,236 @@
+package io.pivotal.rsocketserver.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.pivotal.rsocketserver.data.Message;
+import io.rsocket.exceptions.RejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IngestPipelineTest {
+
+    private IngestProperties properties;
+    private SimpleMeterRegistry registry;
+    private RecordingSink sink;
+    private IngestPipeline pipeline;
+
+    @BeforeEach
+    public void setup() {
+        properties = new IngestProperties();
+        properties.setBufferSize(8);
+        properties.setBatchSize(4);
+        properties.setFlushInterval(Duration.ofSeconds(30));
+        registry = new SimpleMeterRegistry();
+        sink = new RecordingSink();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        sink.blocked.countDown();
+        if (null != pipeline) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void testFullBatchesAreWrittenAtOnce() {
+        pipeline = new IngestPipeline(properties, sink, registry);
+
+        offer(0, 8);
+
+        await(() -> sink.batches.size() == 2);
+        assertThat(sink.batches).containsExactly(indexes(0, 4), indexes(4, 8));
+        assertThat(registry.get("rsocket.ingest.written").counter().count()).isEqualTo(8);
+    }
+
+    @Test
+    public void testPartBatchIsWrittenAfterTheFlushInterval() {
+        properties.setFlushInterval(Duration.ofMillis(50));
+        pipeline = new IngestPipeline(properties, sink, registry);
+
+        long start = System.nanoTime();
+        offer(0, 3);
+
+        await(() -> sink.batches.size() == 1);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(sink.batches.get(0)).isEqualTo(indexes(0, 3));
+    }
+
+    @Test
+    public void testEventsWakeTheIdleWriter() throws InterruptedException {
+        pipeline = new IngestPipeline(properties, sink, registry);
+        offer(0, 1);
+        // Long enough for the writer to take the event and wait on the 30s flush interval
+        Thread.sleep(100);
+
+        offer(1, 4);
+
+        await(() -> sink.batches.size() == 1);
+        assertThat(sink.batches.get(0)).isEqualTo(indexes(0, 4));
+    }
+
+    @Test
+    public void testCloseWritesTheBufferedEvents() throws IOException {
+        pipeline = new IngestPipeline(properties, sink, registry);
+        offer(0, 3);
+
+        pipeline.close();
+
+        assertThat(sink.batches).containsExactly(indexes(0, 3));
+        assertThat(sink.closed).isTrue();
+        // Nothing is taken once closed
+        assertThat(pipeline.offer(event(3))).isFalse();
+    }
+
+    @Test
+    public void testNewEventsAreDroppedWhileTheBufferIsFull() {
+        properties.setOverflowPolicy(IngestProperties.OverflowPolicy.DROP);
+        pipeline = blockedPipeline();
+
+        // The buffer holds 8, and the rest are dropped
+        offer(1, 12);
+        assertThat(registry.get("rsocket.ingest.queued").gauge().value()).isEqualTo(8);
+        assertThat(registry.get("rsocket.ingest.dropped").tag("policy", "DROP").counter().count()).isEqualTo(3);
+
+        sink.blocked.countDown();
+        await(() -> registry.get("rsocket.ingest.written").counter().count() == 9);
+        assertThat(sink.events()).isEqualTo(indexes(0, 9));
+    }
+
+    @Test
+    public void testEventsAreSampledPastTheThreshold() {
+        properties.setOverflowPolicy(IngestProperties.OverflowPolicy.SAMPLE);
+        properties.setSampleThreshold(0.5);
+        properties.setSampleEvery(3);
+        pipeline = blockedPipeline();
+
+        // The first 4 fill half the buffer, then 1 in every 3 is kept
+        offer(1, 11);
+
+        assertThat(registry.get("rsocket.ingest.queued").gauge().value()).isEqualTo(6);
+        assertThat(registry.get("rsocket.ingest.dropped").counter().count()).isEqualTo(4);
+        sink.blocked.countDown();
+        await(() -> registry.get("rsocket.ingest.written").counter().count() == 7);
+        assertThat(sink.events()).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 8L);
+    }
+
+    @Test
+    public void testEventsAreRejectedWhileTheBufferIsFull() {
+        properties.setOverflowPolicy(IngestProperties.OverflowPolicy.REJECT);
+        pipeline = blockedPipeline();
+        offer(1, 9);
+
+        StepVerifier.create(pipeline.ingest(event(9)))
+                .expectError(RejectedException.class)
+                .verify();
+        assertThat(registry.get("rsocket.ingest.dropped").tag("policy", "REJECT").counter().count()).isEqualTo(1);
+
+        sink.blocked.countDown();
+        await(() -> registry.get("rsocket.ingest.queued").gauge().value() == 0);
+        StepVerifier.create(pipeline.ingest(event(10)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFailedBatchesAreCounted() {
+        sink.failing = true;
+        pipeline = new IngestPipeline(properties, sink, registry);
+
+        offer(0, 4);
+
+        await(() -> registry.get("rsocket.ingest.failed").counter().count() == 4);
+        assertThat(registry.get("rsocket.ingest.written").counter().count()).isZero();
+    }
+
+    /**
+     * A pipeline whose writer is stuck writing the event with index 0, so that the buffer fills up.
+     */
+    private IngestPipeline blockedPipeline() {
+        properties.setBatchSize(1);
+        sink.blocking = true;
+        IngestPipeline pipeline = new IngestPipeline(properties, sink, registry);
+        pipeline.offer(event(0));
+        try {
+            assertThat(sink.writing.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return pipeline;
+    }
+
+    private void offer(int from, int to) {
+        IntStream.range(from, to).forEach(index -> pipeline.offer(event(index)));
+    }
+
+    private static Message event(long index) {
+        return new Message("TEST", "Fire-And-Forget", index);
+    }
+
+    private static List<Long> indexes(int from, int to) {
+        return IntStream.range(from, to).mapToObj(Long::valueOf).collect(Collectors.toList());
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("Waited too long").isLessThan(deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    static class RecordingSink implements IngestSink {
+
+        // The indexes of the events in each batch
+        final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        volatile boolean blocking;
+        volatile boolean failing;
+        volatile boolean closed;
+
+        @Override
+        public void write(List<Message> events) throws IOException {
+            writing.countDown();
+            if (blocking) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (failing) {
+                throw new IOException("Disk full");
+            }
+            batches.add(events.stream().map(Message::getIndex).collect(Collectors.toList()));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        List<Long> events() {
+            List<Long> events = new ArrayList<>();
+            batches.forEach(events::addAll);
+            return events;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.pivotal.rsocketserver.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IngestPropertiesTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(Config.class);
+
+    @Test
+    public void testDefaultsAreValid() {
+        runner.run(context -> assertThat(context).hasNotFailed().hasSingleBean(IngestProperties.class));
+    }
+
+    @Test
+    public void testSizesMustBePositive() {
+        runner.withPropertyValues("rsocket.ingest.sample-every=0")
+                .run(context -> assertThat(context).hasFailed());
+        runner.withPropertyValues("rsocket.ingest.batch-size=0")
+                .run(context -> assertThat(context).hasFailed());
+        runner.withPropertyValues("rsocket.ingest.buffer-size=0")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Test
+    public void testSampleThresholdIsAFraction() {
+        runner.withPropertyValues("rsocket.ingest.sample-threshold=1.5")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(IngestProperties.class)
+    static class Config {
+    }
+}
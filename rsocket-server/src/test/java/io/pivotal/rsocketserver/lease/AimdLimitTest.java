@@ -0,0 +1,115 @@
+package io.pivotal.rsocketserver.lease;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AimdLimitTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofMillis(100).toNanos();
+
+    private LeaseProperties properties;
+
+    @BeforeEach
+    public void setup() {
+        properties = new LeaseProperties();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(12);
+        properties.setLatencyThreshold(Duration.ofMillis(50));
+        properties.setBackoffRatio(0.5);
+    }
+
+    @Test
+    public void testSlowRequestsCutTheLimit() {
+        AimdLimit limit = new AimdLimit(properties);
+
+        request(limit, SLOW);
+        assertThat(limit.limit()).isEqualTo(5);
+        request(limit, SLOW);
+        request(limit, SLOW);
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRequestsStartedBeforeACutDoNotCutItAgain() {
+        AimdLimit limit = new AimdLimit(properties);
+        long first = limit.start();
+        long second = limit.start();
+
+        limit.end(first, SLOW);
+        limit.end(second, SLOW);
+        assertThat(limit.limit()).isEqualTo(5);
+
+        request(limit, SLOW);
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFastRequestsRaiseTheLimitWhileItIsInUse() {
+        AimdLimit limit = new AimdLimit(properties);
+        for (int i = 0; i < 5; i++) {
+            limit.start();
+        }
+        assertThat(limit.headroom()).isEqualTo(5);
+
+        // 5 of the 10 in flight: in use
+        limit.end(0, FAST);
+        assertThat(limit.limit()).isEqualTo(11);
+        // 4 of the 11: not
+        limit.end(0, FAST);
+        assertThat(limit.limit()).isEqualTo(11);
+        assertThat(limit.inFlight()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLatencyIsAveraged() {
+        AimdLimit limit = new AimdLimit(properties);
+        assertThat(limit.latencyNanos()).isNegative();
+
+        request(limit, FAST);
+        assertThat(limit.latencyNanos()).isEqualTo(FAST);
+        request(limit, FAST + 10_000_000);
+        assertThat(limit.latencyNanos()).isEqualTo(FAST + 2_000_000);
+    }
+
+    @Test
+    public void testLimitStaysWithinItsBounds() {
+        AimdLimit limit = new AimdLimit(properties);
+        for (int i = 0; i < 20; i++) {
+            limit.start();
+        }
+        for (int i = 0; i < 20; i++) {
+            limit.end(0, FAST);
+        }
+        assertThat(limit.limit()).isEqualTo(12);
+        assertThat(limit.headroom()).isEqualTo(12);
+
+        for (int i = 0; i < 20; i++) {
+            request(limit, SLOW);
+        }
+        assertThat(limit.limit()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCancelledRequestsLeaveTheLimitAlone() {
+        AimdLimit limit = new AimdLimit(properties);
+        for (int i = 0; i < 10; i++) {
+            limit.start();
+        }
+        assertThat(limit.headroom()).isZero();
+
+        limit.cancel();
+
+        assertThat(limit.limit()).isEqualTo(10);
+        assertThat(limit.headroom()).isEqualTo(1);
+    }
+
+    private static void request(AimdLimit limit, long latency) {
+        limit.end(limit.start(), latency);
+    }
+}
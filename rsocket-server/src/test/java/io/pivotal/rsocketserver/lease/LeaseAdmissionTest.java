@@ -0,0 +1,154 @@
+package io.pivotal.rsocketserver.lease;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.lease.Lease;
+import io.rsocket.lease.LeaseStats;
+import io.rsocket.lease.Leases;
+import io.rsocket.util.DefaultPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeaseAdmissionTest {
+
+    private LeaseProperties properties;
+    private SimpleMeterRegistry registry;
+    private AimdLimit limit;
+    private final AtomicBoolean overloaded = new AtomicBoolean();
+    private LeaseAdmission admission;
+
+    @BeforeEach
+    public void setup() {
+        properties = new LeaseProperties();
+        properties.setInitialLimit(10);
+        properties.setInterval(Duration.ofMillis(50));
+        // Slow enough that no request here cuts the limit
+        properties.setLatencyThreshold(Duration.ofSeconds(10));
+        registry = new SimpleMeterRegistry();
+        limit = new AimdLimit(properties);
+        admission = new LeaseAdmission(limit, properties, overloaded::get, registry);
+    }
+
+    @Test
+    public void testEachConnectionIsLeasedItsShareOfTheHeadroom() {
+        Lease first = leases().blockFirst(Duration.ofSeconds(5));
+        assertThat(first.getAllowedRequests()).isEqualTo(10);
+        assertThat(first.getTimeToLiveMillis()).isEqualTo(100);
+
+        // With three connections, each gets a third, rounded up
+        Disposable connections = Flux.merge(leases(), leases(), leases()).subscribe();
+        try {
+            assertThat(admission.budget()).isEqualTo(4);
+        } finally {
+            connections.dispose();
+        }
+        assertThat(admission.budget()).isEqualTo(10);
+    }
+
+    @Test
+    public void testFastRequestsAreNotThrottledToTheLimit() {
+        for (int i = 0; i < 20; i++) {
+            limit.end(limit.start(), Duration.ofMillis(1).toNanos());
+        }
+        assertThat(limit.limit()).isEqualTo(10);
+
+        // 10 at once, 1ms each, serve 500 in the 50ms interval
+        assertThat(admission.budget()).isEqualTo(500);
+        Disposable connections = Flux.merge(leases(), leases()).subscribe();
+        try {
+            assertThat(admission.budget()).isEqualTo(250);
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    @Test
+    public void testSlowRequestsAreLeasedTheHeadroom() {
+        limit.end(limit.start(), Duration.ofSeconds(1).toNanos());
+
+        assertThat(admission.budget()).isEqualTo(10);
+    }
+
+    @Test
+    public void testNoLeaseWithoutHeadroom() {
+        MonoProcessor<Payload> response = MonoProcessor.create();
+        RSocket rsocket = admission.apply(new RSocket() {
+            @Override
+            public Mono<Payload> requestResponse(Payload payload) {
+                return response;
+            }
+        });
+        Disposable[] requests = new Disposable[10];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = rsocket.requestResponse(DefaultPayload.create("request")).subscribe();
+        }
+        assertThat(registry.get("rsocket.lease.in-flight").gauge().value()).isEqualTo(10);
+        assertThat(admission.budget()).isZero();
+
+        StepVerifier.create(leases())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(200))
+                .then(() -> response.onNext(DefaultPayload.create("response")))
+                .assertNext(lease -> assertThat(lease.getAllowedRequests()).isGreaterThanOrEqualTo(10))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertThat(registry.get("rsocket.lease.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    public void testNoLeaseWhileOverloaded() {
+        overloaded.set(true);
+
+        StepVerifier.create(leases())
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(200))
+                .then(() -> overloaded.set(false))
+                .expectNextCount(1)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testStreamsAreNotCountedInFlight() {
+        RSocket rsocket = admission.apply(new RSocket() {
+            @Override
+            public Flux<Payload> requestStream(Payload payload) {
+                return Flux.never();
+            }
+        });
+
+        Disposable stream = rsocket.requestStream(DefaultPayload.create("request")).subscribe();
+        try {
+            assertThat(limit.inFlight()).isZero();
+        } finally {
+            stream.dispose();
+        }
+    }
+
+    @Test
+    public void testRejectionsAreCounted() {
+        Leases<?> leases = admission.leases();
+
+        leases.stats().ifPresent(stats -> stats.onEvent(LeaseStats.EventType.REJECT));
+        leases.stats().ifPresent(stats -> stats.onEvent(LeaseStats.EventType.ACCEPT));
+
+        assertThat(registry.get("rsocket.lease.rejected").counter().count()).isEqualTo(1);
+    }
+
+    private Flux<Lease> leases() {
+        Leases<?> leases = admission.leases();
+        return leases.sender().apply(Optional.empty());
+    }
+}
@@ -0,0 +1,63 @@
+package io.pivotal.rsocketserver.logging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestLogSamplerTest {
+
+    private LogSamplingProperties properties;
+
+    @BeforeEach
+    public void setup() {
+        properties = new LogSamplingProperties();
+    }
+
+    @Test
+    public void testEveryRequestIsLoggedByDefault() {
+        RequestLogSampler sampler = new RequestLogSampler(properties);
+
+        assertThat(sampled(sampler, "request-response", 10)).isEqualTo(10);
+    }
+
+    @Test
+    public void testOneInEveryNRequestsIsLogged() {
+        properties.setEvery(10);
+        properties.getRoutes().put("stream", 100);
+        RequestLogSampler sampler = new RequestLogSampler(properties);
+
+        assertThat(sampled(sampler, "request-response", 1000)).isEqualTo(100);
+        assertThat(sampled(sampler, "stream", 1000)).isEqualTo(10);
+        assertThat(sampler.getCounts()).contains("stream: 10 logged, 990 skipped");
+    }
+
+    @Test
+    public void testLoggingIsLimitedPerSecond() {
+        properties.setMaxPerSecond(5);
+        RequestLogSampler sampler = new RequestLogSampler(properties);
+
+        // A second could turn over part way through, letting up to five more through
+        assertThat(sampled(sampler, "fire-and-forget", 1000)).isBetween(5, 10);
+    }
+
+    @Test
+    public void testSamplingCanBeChangedAtRuntime() {
+        RequestLogSampler sampler = new RequestLogSampler(properties);
+
+        sampler.setEvery(4);
+        assertThat(sampled(sampler, "broadcast", 100)).isEqualTo(25);
+
+        sampler.setRouteEvery("broadcast", 50);
+        assertThat(sampled(sampler, "broadcast", 100)).isEqualTo(2);
+
+        sampler.setRouteEvery("broadcast", 0);
+        assertThat(sampled(sampler, "broadcast", 100)).isEqualTo(25);
+    }
+
+    private static int sampled(RequestLogSampler sampler, String route, int requests) {
+        return (int) IntStream.range(0, requests).filter(request -> sampler.sample(route)).count();
+    }
+}
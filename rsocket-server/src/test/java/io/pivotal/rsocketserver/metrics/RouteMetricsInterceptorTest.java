@@ -0,0 +1,145 @@
+package io.pivotal.rsocketserver.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.metadata.CompositeMetadataCodec;
+import io.rsocket.metadata.TaggingMetadataCodec;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.ByteBufPayload;
+import io.rsocket.util.DefaultPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.SimpleRouteMatcher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RouteMetricsInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private RSocket rSocket;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        RoutePatterns routes = new RoutePatterns(new SimpleRouteMatcher(new AntPathMatcher(".")),
+                Arrays.asList("request-response", "fire-and-forget", "stream.{rate}.{batch}.{count}", "channel"));
+        rSocket = new RouteMetricsInterceptor(registry, routes).apply(new EchoRSocket());
+    }
+
+    @Test
+    public void testRequestResponseIsTimedByRouteAndOutcome() {
+        StepVerifier.create(rSocket.requestResponse(payload("request-response"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(rSocket.requestResponse(payload("request-response", "fail"))).verifyError();
+
+        assertThat(timerCount("request-response", "request-response", "success")).isEqualTo(1);
+        assertThat(timerCount("request-response", "request-response", "error")).isEqualTo(1);
+    }
+
+    @Test
+    public void testFireAndForgetIsCounted() {
+        StepVerifier.create(rSocket.fireAndForget(payload("fire-and-forget"))).verifyComplete();
+        StepVerifier.create(rSocket.fireAndForget(payload("fire-and-forget"))).verifyComplete();
+
+        assertThat(timerCount("fire-and-forget", "fire-and-forget", "success")).isEqualTo(2);
+    }
+
+    @Test
+    public void testStreamsAreTaggedWithTheRoutePattern() {
+        StepVerifier.create(rSocket.requestStream(payload("stream.0.1.3"))).expectNextCount(3).verifyComplete();
+
+        assertThat(timerCount("stream.{rate}.{batch}.{count}", "request-stream", "success")).isEqualTo(1);
+        assertThat(registry.get(RouteMetricsInterceptor.ELEMENTS)
+                .tag("route", "stream.{rate}.{batch}.{count}")
+                .summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testCancelledChannelsAreCounted() {
+        StepVerifier.create(rSocket.requestChannel(Flux.just(payload("channel"), payload("channel"))))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        assertThat(timerCount("channel", "request-channel", "cancelled")).isEqualTo(1);
+        assertThat(registry.get(RouteMetricsInterceptor.ELEMENTS)
+                .tag("route", "channel")
+                .tag("outcome", "cancelled")
+                .summary().totalAmount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testUnknownRoutesShareOneTag() {
+        StepVerifier.create(rSocket.requestResponse(payload("no-such-route"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(rSocket.requestResponse(DefaultPayload.create("no metadata"))).expectNextCount(1).verifyComplete();
+
+        assertThat(timerCount(RoutePatterns.UNMATCHED, "request-response", "success")).isEqualTo(2);
+    }
+
+    private long timerCount(String route, String interaction, String outcome) {
+        return registry.get(RouteMetricsInterceptor.REQUESTS)
+                .tag("route", route)
+                .tag("interaction", interaction)
+                .tag("outcome", outcome)
+                .timer().count();
+    }
+
+    private static Payload payload(String route) {
+        return payload(route, "data");
+    }
+
+    private static Payload payload(String route, String data) {
+        ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+        CompositeByteBuf metadata = allocator.compositeBuffer();
+        CompositeMetadataCodec.encodeAndAddMetadata(metadata, allocator, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+                TaggingMetadataCodec.createRoutingMetadata(allocator, Collections.singletonList(route)).getContent());
+        return ByteBufPayload.create(Unpooled.copiedBuffer(data.getBytes()), metadata);
+    }
+
+    /**
+     * Echoes payloads back, as the handlers would, releasing each request once it has been read.
+     */
+    private static class EchoRSocket implements RSocket {
+
+        @Override
+        public Mono<Void> fireAndForget(Payload payload) {
+            payload.release();
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Payload> requestResponse(Payload payload) {
+            String data = payload.getDataUtf8();
+            payload.release();
+            return "fail".equals(data) ? Mono.error(new IllegalStateException(data)) : Mono.just(DefaultPayload.create(data));
+        }
+
+        @Override
+        public Flux<Payload> requestStream(Payload payload) {
+            payload.release();
+            return Flux.range(0, 3).map(index -> DefaultPayload.create(String.valueOf(index)));
+        }
+
+        @Override
+        public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+            return Flux.from(payloads)
+                    .map(payload -> {
+                        String data = payload.getDataUtf8();
+                        payload.release();
+                        return DefaultPayload.create(data);
+                    })
+                    .concatWith(Flux.never());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package io.pivotal.rsocketserver.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.pivotal.rsocketserver.metrics.RoutePatterns;
+import io.rsocket.Payload;
+import io.rsocket.exceptions.RejectedException;
+import io.rsocket.metadata.CompositeMetadataCodec;
+import io.rsocket.metadata.TaggingMetadataCodec;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.ByteBufPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.rsocket.api.PayloadExchangeType;
+import org.springframework.security.rsocket.api.PayloadInterceptorChain;
+import org.springframework.security.rsocket.core.DefaultPayloadExchange;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.SimpleRouteMatcher;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RateLimitInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private RoutePatterns patterns;
+    private RateLimitProperties properties;
+    private AtomicInteger handled;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        patterns = new RoutePatterns(new SimpleRouteMatcher(new AntPathMatcher(".")),
+                Arrays.asList("request-response", "fire-and-forget", "stream.{rate}.{batch}.{count}"));
+        properties = new RateLimitProperties();
+        handled = new AtomicInteger();
+    }
+
+    @Test
+    public void testEachUserHasTheirOwnLimit() {
+        limit("request-response", limit(3), null);
+        RateLimitInterceptor interceptor = interceptor();
+        Context connection = connect(interceptor);
+
+        assertThat(requests(interceptor, connection, "user", "request-response", 5)).isEqualTo(3);
+        assertThat(requests(interceptor, connection, "other", "request-response", 5)).isEqualTo(3);
+        assertThat(rejected("request-response", RateLimitInterceptor.USER)).isEqualTo(4);
+    }
+
+    @Test
+    public void testUsersLimitIsSharedByTheirConnections() {
+        limit("request-response", limit(3), null);
+        RateLimitInterceptor interceptor = interceptor();
+
+        assertThat(requests(interceptor, connect(interceptor), "user", "request-response", 2)).isEqualTo(2);
+        assertThat(requests(interceptor, connect(interceptor), "user", "request-response", 2)).isEqualTo(1);
+    }
+
+    @Test
+    public void testEachConnectionHasItsOwnLimit() {
+        limit("fire-and-forget", null, limit(2));
+        RateLimitInterceptor interceptor = interceptor();
+
+        assertThat(requests(interceptor, connect(interceptor), "user", "fire-and-forget", 5)).isEqualTo(2);
+        assertThat(requests(interceptor, connect(interceptor), "user", "fire-and-forget", 5)).isEqualTo(2);
+        assertThat(rejected("fire-and-forget", RateLimitInterceptor.CONNECTION)).isEqualTo(6);
+    }
+
+    @Test
+    public void testRoutesAreLimitedByTheirPattern() {
+        limit("stream.{rate}.{batch}.{count}", limit(2), null);
+        RateLimitInterceptor interceptor = interceptor();
+        Context connection = connect(interceptor);
+
+        assertThat(requests(interceptor, connection, "user", "stream.0.1.10", 1)).isEqualTo(1);
+        assertThat(requests(interceptor, connection, "user", "stream.1000.100.0", 2)).isEqualTo(1);
+        // Not limited
+        assertThat(requests(interceptor, connection, "user", "request-response", 10)).isEqualTo(10);
+    }
+
+    @Test
+    public void testRejectedRequestGetsARejectedError() {
+        limit("request-response", limit(1), null);
+        RateLimitInterceptor interceptor = interceptor();
+        Context connection = connect(interceptor);
+        requests(interceptor, connection, "user", "request-response", 1);
+
+        StepVerifier.create(request(interceptor, connection, "user", "request-response"))
+                .expectErrorSatisfies(error -> assertThat(error)
+                        .isInstanceOf(RejectedException.class)
+                        .hasMessageContaining("request-response"))
+                .verify();
+        assertThat(handled).hasValue(1);
+    }
+
+    @Test
+    public void testRouteWithoutAHandlerIsRejectedAtStartup() {
+        limit("no-such-route", limit(1), null);
+
+        assertThatThrownBy(this::interceptor)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("no-such-route");
+    }
+
+    private void limit(String route, RateLimitProperties.Limit perUser, RateLimitProperties.Limit perConnection) {
+        RateLimitProperties.RouteLimits limits = new RateLimitProperties.RouteLimits();
+        limits.setPerUser(perUser);
+        limits.setPerConnection(perConnection);
+        properties.getRoutes().put(route, limits);
+    }
+
+    /**
+     * A limit too slow to refill during a test.
+     */
+    private static RateLimitProperties.Limit limit(int burst) {
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+        limit.setRate(0.001);
+        limit.setBurst(burst);
+        return limit;
+    }
+
+    private RateLimitInterceptor interceptor() {
+        return new RateLimitInterceptor(patterns, properties, registry);
+    }
+
+    /**
+     * @return the context every request on the new connection runs in
+     */
+    private Context connect(RateLimitInterceptor interceptor) {
+        AtomicReference<Context> connection = new AtomicReference<>();
+        PayloadInterceptorChain chain = exchange -> Mono.subscriberContext().doOnNext(connection::set).then();
+        DefaultPayloadExchange setup = exchange(PayloadExchangeType.SETUP, "shell-client");
+        interceptor.intercept(setup, chain).doFinally(signal -> setup.getPayload().release()).block();
+        return connection.get();
+    }
+
+    private int requests(RateLimitInterceptor interceptor, Context connection, String user, String route, int requests) {
+        int before = handled.get();
+        for (int i = 0; i < requests; i++) {
+            request(interceptor, connection, user, route).onErrorResume(RejectedException.class, error -> Mono.empty()).block();
+        }
+        return handled.get() - before;
+    }
+
+    private Mono<Void> request(RateLimitInterceptor interceptor, Context connection, String user, String route) {
+        PayloadInterceptorChain chain = exchange -> Mono.fromRunnable(handled::incrementAndGet);
+        DefaultPayloadExchange request = exchange(PayloadExchangeType.REQUEST_RESPONSE, route);
+        return interceptor.intercept(request, chain)
+                .subscriberContext(ReactiveSecurityContextHolder.withAuthentication(
+                        new TestingAuthenticationToken(user, "pass", "ROLE_USER")))
+                .subscriberContext(connection)
+                .doFinally(signal -> request.getPayload().release());
+    }
+
+    private double rejected(String route, String limit) {
+        return registry.get("rsocket.rate-limit.rejected").tag("route", route).tag("limit", limit).counter().count();
+    }
+
+    private static DefaultPayloadExchange exchange(PayloadExchangeType type, String route) {
+        return new DefaultPayloadExchange(type, payload(route), MimeTypeUtils.parseMimeType(
+                WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString()), MimeTypeUtils.APPLICATION_JSON);
+    }
+
+    private static Payload payload(String route) {
+        ByteBufAllocator allocator = ByteBufAllocator.DEFAULT;
+        CompositeByteBuf metadata = allocator.compositeBuffer();
+        CompositeMetadataCodec.encodeAndAddMetadata(metadata, allocator, WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+                TaggingMetadataCodec.createRoutingMetadata(allocator, Collections.singletonList(route)).getContent());
+        return ByteBufPayload.create(Unpooled.copiedBuffer("data".getBytes()), metadata);
+    }
+}
@@ -0,0 +1,84 @@
+package io.pivotal.rsocketserver.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TokenBucketTest {
+
+    private static final long START = 1_000_000_000L;
+
+    @Test
+    public void testBurstIsAllowedThenTheBucketIsEmpty() {
+        TokenBucket bucket = new TokenBucket(10, 5, START);
+
+        assertThat(acquired(bucket, START, 10)).isEqualTo(5);
+    }
+
+    @Test
+    public void testBucketRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, START);
+        acquired(bucket, START, 5);
+
+        // One token every 100ms
+        assertThat(bucket.tryAcquire(START + Duration.ofMillis(99).toNanos())).isFalse();
+        assertThat(bucket.tryAcquire(START + Duration.ofMillis(100).toNanos())).isTrue();
+        assertThat(bucket.tryAcquire(START + Duration.ofMillis(150).toNanos())).isFalse();
+        assertThat(acquired(bucket, START + Duration.ofMillis(400).toNanos(), 10)).isEqualTo(3);
+    }
+
+    @Test
+    public void testIdleBucketHoldsNoMoreThanTheBurst() {
+        TokenBucket bucket = new TokenBucket(10, 5, START);
+
+        assertThat(acquired(bucket, START + Duration.ofMinutes(1).toNanos(), 10)).isEqualTo(5);
+        assertThat(bucket.refillNanos()).isEqualTo(Duration.ofMillis(500).toNanos());
+    }
+
+    @Test
+    public void testConcurrentRequestsNeverTakeMoreThanTheBurst() throws InterruptedException {
+        // So slow to refill that none are added during the test
+        TokenBucket bucket = new TokenBucket(0.001, 1000);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            threads.execute(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        threads.shutdown();
+
+        assertThat(acquired.get()).isEqualTo(1000);
+    }
+
+    @Test
+    public void testBucketNeedsARateAndABurst() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucket(1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static int acquired(TokenBucket bucket, long now, int attempts) {
+        int acquired = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (bucket.tryAcquire(now)) {
+                acquired++;
+            }
+        }
+        return acquired;
+    }
+}
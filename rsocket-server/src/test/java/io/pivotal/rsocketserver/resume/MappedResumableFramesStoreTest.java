@@ -0,0 +1,180 @@
+package io.pivotal.rsocketserver.resume;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedResumableFramesStoreTest {
+
+    // Room for two 10 byte frames and their lengths
+    private static final int SEGMENT_SIZE = 28;
+
+    @TempDir
+    Path directory;
+
+    private MutableClock clock;
+    private MappedResumableFramesStore store;
+
+    @BeforeEach
+    public void setup() {
+        clock = new MutableClock();
+        store = new MappedResumableFramesStore(directory.resolve("session"), SEGMENT_SIZE, 100, Duration.ofMinutes(1), clock);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        store.dispose();
+    }
+
+    @Test
+    public void testSavedFramesAreResumedInOrder() {
+        store.saveFrames(Flux.just(frame("frame-0000"), frame("frame-0001"), frame("frame-0002"))).block();
+
+        assertThat(store.cachedBytes()).isEqualTo(30);
+        assertThat(store.segments()).isEqualTo(2);
+        StepVerifier.create(store.resumeStream().map(MappedResumableFramesStoreTest::text))
+                .expectNext("frame-0000", "frame-0001", "frame-0002")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testAcknowledgedFramesAndTheirSegmentsAreRemoved() throws Exception {
+        save("frame-0000", "frame-0001", "frame-0002");
+
+        store.releaseFrames(20);
+
+        assertThat(store.framePosition()).isEqualTo(20);
+        assertThat(store.cachedBytes()).isEqualTo(10);
+        assertThat(files(directory.resolve("session"))).hasSize(1);
+        StepVerifier.create(store.resumeStream().map(MappedResumableFramesStoreTest::text))
+                .expectNext("frame-0002")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testOldestFramesAreDroppedOverTheByteCap() {
+        for (int i = 0; i < 12; i++) {
+            save(String.format("frame-%04d", i));
+        }
+
+        assertThat(store.cachedBytes()).isEqualTo(100);
+        assertThat(store.framePosition()).isEqualTo(20);
+        StepVerifier.create(store.resumeStream().map(MappedResumableFramesStoreTest::text))
+                .expectNext("frame-0002")
+                .expectNextCount(9)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFramesAreDroppedAfterTheRetentionWindow() {
+        save("frame-0000", "frame-0001");
+        clock.advance(Duration.ofSeconds(30));
+        save("frame-0002");
+        clock.advance(Duration.ofSeconds(45));
+
+        store.releaseFrames(0);
+
+        assertThat(store.framePosition()).isEqualTo(20);
+        StepVerifier.create(store.resumeStream().map(MappedResumableFramesStoreTest::text))
+                .expectNext("frame-0002")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testFramesAcknowledgedWhileResumingAreSkipped() {
+        save("frame-0000", "frame-0001", "frame-0002", "frame-0003");
+
+        StepVerifier.create(store.resumeStream().map(MappedResumableFramesStoreTest::text), 1)
+                .expectNext("frame-0000")
+                .then(() -> store.releaseFrames(30))
+                .thenRequest(Long.MAX_VALUE)
+                .expectNext("frame-0003")
+                .verifyComplete();
+    }
+
+    @Test
+    public void testReleasingUnknownFramesFails() {
+        save("frame-0000");
+
+        assertThatThrownBy(() -> store.releaseFrames(15)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testFilesAreDeleted() throws Exception {
+        save("frame-0000", "frame-0001", "frame-0002");
+        MappedResumableFramesStore other = new MappedResumableFramesStore(directory.resolve("other"), SEGMENT_SIZE, 100,
+                Duration.ofMinutes(1), clock);
+        other.saveFrames(Flux.just(frame("frame-0000"))).block();
+
+        store.dispose();
+        assertThat(directory.resolve("session")).doesNotExist();
+
+        MappedResumableFramesStore.deleteSessions(directory);
+        assertThat(directory).doesNotExist();
+    }
+
+    private void save(String... frames) {
+        store.saveFrames(Flux.fromArray(frames).map(MappedResumableFramesStoreTest::frame)).block();
+    }
+
+    private static List<Path> files(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static ByteBuf frame(String text) {
+        return Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuf frame) {
+        try {
+            return frame.toString(StandardCharsets.UTF_8);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
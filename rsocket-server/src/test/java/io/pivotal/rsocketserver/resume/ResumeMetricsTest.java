@@ -0,0 +1,66 @@
+package io.pivotal.rsocketserver.resume;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.resume.InMemoryResumableFramesStore;
+import io.rsocket.resume.ResumableFramesStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResumeMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private Function<ByteBuf, ResumableFramesStore> stores;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        stores = new ResumeMetrics(registry).metered(token -> new InMemoryResumableFramesStore("test", 1000));
+    }
+
+    @Test
+    public void testSessionsAreCountedUntilTheirStoreIsDisposed() {
+        ResumableFramesStore first = stores.apply(Unpooled.EMPTY_BUFFER);
+        stores.apply(Unpooled.EMPTY_BUFFER);
+        assertThat(registry.get(ResumeMetrics.SESSIONS).gauge().value()).isEqualTo(2);
+
+        first.dispose();
+        assertThat(registry.get(ResumeMetrics.SESSIONS).gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void testUnacknowledgedBytesAreRetained() {
+        ResumableFramesStore store = stores.apply(Unpooled.EMPTY_BUFFER);
+        store.saveFrames(Flux.just(frame(10), frame(20), frame(30))).block();
+        assertThat(registry.get(ResumeMetrics.RETAINED).gauge().value()).isEqualTo(60);
+
+        store.releaseFrames(30);
+        assertThat(registry.get(ResumeMetrics.RETAINED).gauge().value()).isEqualTo(30);
+
+        store.dispose();
+        assertThat(registry.get(ResumeMetrics.RETAINED).gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void testResumesAreTimed() {
+        ResumableFramesStore store = stores.apply(Unpooled.EMPTY_BUFFER);
+        store.saveFrames(Flux.just(frame(10), frame(20))).block();
+
+        StepVerifier.create(store.resumeStream())
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertThat(registry.get(ResumeMetrics.RESUMED).timer().count()).isEqualTo(1);
+    }
+
+    private static ByteBuf frame(int size) {
+        return Unpooled.buffer(size).writeZero(size);
+    }
+}
@@ -0,0 +1,70 @@
+package io.pivotal.rsocketserver.resume;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SessionsDirectoryTest {
+
+    @TempDir
+    Path parent;
+
+    @Test
+    public void testServersSharingADirectoryKeepTheirSessionsApart() {
+        SessionsDirectory first = SessionsDirectory.create(parent);
+        SessionsDirectory second = SessionsDirectory.create(parent);
+        assertThat(first.path()).isNotEqualTo(second.path());
+        MappedResumableFramesStore session = new MappedResumableFramesStore(second.path().resolve("session"), 28, 100,
+                Duration.ofMinutes(1), Clock.systemUTC());
+        session.saveFrames(Flux.just(Unpooled.copiedBuffer("frame-0000", StandardCharsets.UTF_8))).block();
+
+        first.close();
+        // Starting another server leaves the running one's sessions alone
+        SessionsDirectory third = SessionsDirectory.create(parent);
+
+        assertThat(first.path()).doesNotExist();
+        assertThat(second.path().resolve("session")).isDirectoryContaining(file -> true);
+        session.dispose();
+        second.close();
+        third.close();
+        assertThat(parent).isEmptyDirectory();
+    }
+
+    @Test
+    public void testDirectoriesOfServersThatDidNotStopAreRemovedAtStartup() throws Exception {
+        // What a server that was killed leaves behind: nothing holds its lock any more
+        Path stale = Files.createDirectories(parent.resolve(SessionsDirectory.PREFIX + "123"));
+        Files.createFile(stale.resolve(SessionsDirectory.LOCK));
+        Files.write(Files.createDirectories(stale.resolve("session")).resolve("0"), new byte[1024]);
+
+        SessionsDirectory sessions = SessionsDirectory.create(parent);
+        try {
+            assertThat(stale).doesNotExist();
+            assertThat(sessions.path()).exists();
+        } finally {
+            sessions.close();
+        }
+    }
+
+    @Test
+    public void testDirectoriesWithoutALockAreLeftAlone() throws Exception {
+        // A server that has only just created its directory
+        Path starting = Files.createDirectories(parent.resolve(SessionsDirectory.PREFIX + "123"));
+        Path other = Files.createDirectories(parent.resolve("other"));
+        Files.createFile(other.resolve(SessionsDirectory.LOCK));
+
+        SessionsDirectory.create(parent).close();
+
+        assertThat(starting).exists();
+        assertThat(other).exists();
+    }
+}
@@ -0,0 +1,161 @@
+package io.pivotal.rsocketserver.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingAuthenticationManagerTest {
+
+    private AuthenticationCacheProperties properties;
+    private SimpleMeterRegistry registry;
+    private AtomicInteger checks;
+    private MonoProcessor<Void> slowCheck;
+
+    @BeforeEach
+    public void setup() {
+        properties = new AuthenticationCacheProperties();
+        registry = new SimpleMeterRegistry();
+        checks = new AtomicInteger();
+        slowCheck = null;
+    }
+
+    @Test
+    public void testVerifiedCredentialsAreOnlyCheckedOnce() {
+        CachingAuthenticationManager manager = manager();
+
+        StepVerifier.create(manager.authenticate(credentials("user", "pass")))
+                .assertNext(authentication -> assertThat(authentication.isAuthenticated()).isTrue())
+                .verifyComplete();
+        StepVerifier.create(manager.authenticate(credentials("user", "pass")))
+                .assertNext(authentication -> assertThat(authentication.getName()).isEqualTo("user"))
+                .verifyComplete();
+
+        assertThat(checks.get()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "authentication").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testWrongPasswordsAreCheckedAndNotCached() {
+        CachingAuthenticationManager manager = manager();
+
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(manager.authenticate(credentials("user", "wrong"))).verifyError(BadCredentialsException.class);
+        StepVerifier.create(manager.authenticate(credentials("user", "wrong"))).verifyError(BadCredentialsException.class);
+
+        assertThat(checks.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testUsernameAndPasswordAreNotConcatenated() {
+        CachingAuthenticationManager manager = manager();
+
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(manager.authenticate(credentials("userp", "ass"))).verifyError(BadCredentialsException.class);
+    }
+
+    @Test
+    public void testChangedUsersAreCheckedAgain() {
+        CachingAuthenticationManager manager = manager();
+
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(manager.authenticate(credentials("test", "pass"))).expectNextCount(1).verifyComplete();
+        manager.onUserChanged(new UserChangedEvent(this, "user"));
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+        StepVerifier.create(manager.authenticate(credentials("test", "pass"))).expectNextCount(1).verifyComplete();
+        assertThat(checks.get()).isEqualTo(3);
+
+        manager.onUserChanged(new UserChangedEvent(this, null));
+        StepVerifier.create(manager.authenticate(credentials("test", "pass"))).expectNextCount(1).verifyComplete();
+        assertThat(checks.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void testChecksInProgressWhenTheUserChangesAreNotCached() {
+        slowCheck = MonoProcessor.create();
+        CachingAuthenticationManager manager = manager();
+
+        // The old password is being checked when it is changed
+        StepVerifier.create(manager.authenticate(credentials("user", "pass")))
+                .then(() -> manager.onUserChanged(new UserChangedEvent(this, "user")))
+                .then(() -> slowCheck.onComplete())
+                .expectNextCount(1)
+                .verifyComplete();
+
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+        assertThat(checks.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCachedCredentialsExpire() throws InterruptedException {
+        properties.setExpireAfterWrite(Duration.ofMillis(100));
+        CachingAuthenticationManager manager = manager();
+
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+        Thread.sleep(150);
+        StepVerifier.create(manager.authenticate(credentials("user", "pass"))).expectNextCount(1).verifyComplete();
+
+        assertThat(checks.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testConcurrentChecksAreShared() {
+        slowCheck = MonoProcessor.create();
+        CachingAuthenticationManager manager = manager();
+
+        StepVerifier.create(Mono.zip(manager.authenticate(credentials("user", "pass")),
+                manager.authenticate(credentials("user", "pass"))))
+                .then(() -> slowCheck.onComplete())
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertThat(checks.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testOtherAuthenticationsAreNotCached() {
+        CachingAuthenticationManager manager = manager();
+        TestingAuthenticationToken token = new TestingAuthenticationToken("user", "pass");
+
+        StepVerifier.create(manager.authenticate(token)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(manager.authenticate(token)).expectNextCount(1).verifyComplete();
+
+        assertThat(checks.get()).isEqualTo(2);
+    }
+
+    private CachingAuthenticationManager manager() {
+        return new CachingAuthenticationManager(this::check, properties, registry);
+    }
+
+    /**
+     * Stands in for the password encoder: 'pass' is everyone's password.
+     */
+    private Mono<Authentication> check(Authentication authentication) {
+        checks.incrementAndGet();
+        Mono<Void> delay = slowCheck == null ? Mono.empty() : slowCheck;
+        return delay.then(Mono.fromCallable(() -> {
+            if (!"pass".equals(authentication.getCredentials())) {
+                throw new BadCredentialsException("Invalid Credentials");
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getName(), null,
+                    AuthorityUtils.createAuthorityList("ROLE_USER"));
+        }));
+    }
+
+    private static Authentication credentials(String username, String password) {
+        return new UsernamePasswordAuthenticationToken(username, password);
+    }
+}
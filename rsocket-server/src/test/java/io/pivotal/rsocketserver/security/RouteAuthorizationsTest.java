@@ -0,0 +1,112 @@
+package io.pivotal.rsocketserver.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.rsocket.annotation.ConnectMapping;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RouteAuthorizationsTest {
+
+    @Test
+    public void testUserInRoleIsPermittedEveryRoute() {
+        ConnectionAuthorization authorization = routes(new Handlers()).decide(user("ROLE_USER"));
+
+        assertThat(authorization.permitsAll()).isTrue();
+        assertThat(authorization.permits("guarded")).isTrue();
+        assertThat(authorization.permits("stream.10.1.100")).isTrue();
+    }
+
+    @Test
+    public void testUserNotInRoleIsDeniedGuardedRoutesOnly() {
+        ConnectionAuthorization authorization = routes(new Handlers()).decide(user("ROLE_NONE"));
+
+        assertThat(authorization.permitsAll()).isFalse();
+        assertThat(authorization.permits("guarded")).isFalse();
+        assertThat(authorization.permits("stream.10.1.100")).isFalse();
+        assertThat(authorization.permits("open")).isTrue();
+        assertThat(authorization.permits("shell-client")).isTrue();
+        assertThat(authorization.permits("no-such-route")).isTrue();
+        assertThat(authorization.permits(null)).isTrue();
+    }
+
+    @Test
+    public void testRuleOnTheControllerCoversItsMethods() {
+        RouteAuthorizations routes = routes(new AdminHandlers());
+
+        assertThat(routes.decide(user("ROLE_USER")).permits("admin")).isFalse();
+        assertThat(routes.decide(user("ROLE_ADMIN")).permits("admin")).isTrue();
+    }
+
+    @Test
+    public void testRuleThatReadsAnArgumentIsRejected() {
+        assertThatThrownBy(() -> routes(new ArgumentHandlers()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("#name");
+    }
+
+    private static RouteAuthorizations routes(Object handlers) {
+        RSocketMessageHandler handler = new RSocketMessageHandler();
+        handler.setHandlers(Collections.singletonList(handlers));
+        handler.afterPropertiesSet();
+        return RouteAuthorizations.of(handler);
+    }
+
+    private static Authentication user(String role) {
+        return new TestingAuthenticationToken("user", "pass", role);
+    }
+
+    @Controller
+    static class Handlers {
+
+        @PreAuthorize("hasRole('NONE')")
+        @ConnectMapping("shell-client")
+        void connect() {
+        }
+
+        @PreAuthorize("hasRole('USER')")
+        @MessageMapping("guarded")
+        String guarded() {
+            return "guarded";
+        }
+
+        @PreAuthorize("hasRole('USER')")
+        @MessageMapping("stream.{rate}.{batch}.{count}")
+        String stream() {
+            return "stream";
+        }
+
+        @MessageMapping("open")
+        String open() {
+            return "open";
+        }
+    }
+
+    @Controller
+    @PreAuthorize("hasRole('ADMIN')")
+    static class AdminHandlers {
+
+        @MessageMapping("admin")
+        String admin() {
+            return "admin";
+        }
+    }
+
+    @Controller
+    static class ArgumentHandlers {
+
+        @PreAuthorize("#name == authentication.name")
+        @MessageMapping("argument")
+        String argument(String name) {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package io.pivotal.rsocketserver.stream;
+
+import io.pivotal.rsocketserver.data.Message;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageStreamTest {
+
+    @Test
+    public void testMessagesAreOnlyCreatedOnDemand() {
+        AtomicLong requested = new AtomicLong();
+
+        StepVerifier.create(MessageStream.of("TEST", "Stream", 0, 1, 0)
+                .doOnRequest(requested::addAndGet), 0)
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(2)
+                .assertNext(message -> assertThat(message.getIndex()).isEqualTo(0L))
+                .assertNext(message -> assertThat(message.getIndex()).isEqualTo(1L))
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(1)
+                .assertNext(message -> assertThat(message.getIndex()).isEqualTo(2L))
+                .thenCancel()
+                .verify();
+
+        assertThat(requested.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testStreamEndsAfterCount() {
+        StepVerifier.create(MessageStream.of("TEST", "Stream", 0, 1, 1000).map(Message::getIndex))
+                .expectNextCount(999)
+                .expectNext(999L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testRateIsPacedInBatches() {
+        StepVerifier.withVirtualTime(() -> MessageStream.of("TEST", "Stream", 10, 5, 10).map(Message::getIndex))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(500))
+                .expectNext(0L, 1L, 2L, 3L, 4L)
+                .expectNoEvent(Duration.ofMillis(500))
+                .expectNext(5L, 6L, 7L, 8L, 9L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testTicksWithoutDemandAreDropped() {
+        StepVerifier.withVirtualTime(() -> MessageStream.of("TEST", "Stream", 1, 1, 0).map(Message::getIndex), 0)
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(10))
+                .thenRequest(2)
+                .expectNoEvent(Duration.ofMillis(999))
+                .expectNext(0L)
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNext(1L)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testBatchesAreNotQueuedForTicksWithoutDemand() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        List<Message> received = new ArrayList<>();
+        BaseSubscriber<Message> subscriber = new BaseSubscriber<Message>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // No demand until asked for below
+            }
+
+            @Override
+            protected void hookOnNext(Message message) {
+                received.add(message);
+            }
+        };
+        MessageStream.of("TEST", "Stream", 10, 5, 0, period -> Flux.interval(period, scheduler)).subscribe(subscriber);
+
+        scheduler.advanceTimeBy(Duration.ofSeconds(10));
+        subscriber.request(100);
+
+        // At most the batch being sent and the next one, not one for each of the 20 ticks
+        assertThat(received).hasSizeBetween(5, 10);
+        subscriber.dispose();
+    }
+
+    @Test
+    public void testInvalidSettingsAreRejected() {
+        StepVerifier.create(MessageStream.of("TEST", "Stream", -1, 1, 0))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(MessageStream.of("TEST", "Stream", 0, 0, 0))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(MessageStream.of("TEST", "Stream", 0, 1, -1))
+                .verifyError(IllegalArgumentException.class);
+        StepVerifier.create(MessageStream.of("TEST", "Stream", 0, MessageStream.MAX_BATCH + 1, 0))
+                .verifyError(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testPeriodCoversOneBatch() {
+        assertThat(MessageStream.period(1000, 100)).isEqualTo(Duration.ofMillis(100));
+        assertThat(MessageStream.period(1, 1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(MessageStream.period(Long.MAX_VALUE, 1)).isEqualTo(Duration.ofNanos(1));
+    }
+}
@@ -0,0 +1,87 @@
+package io.pivotal.rsocketserver.ticks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedTicksTest {
+
+    private static final Duration PERIOD = Duration.ofMillis(50);
+
+    private SimpleMeterRegistry registry;
+    private SharedTicks ticks;
+
+    @BeforeEach
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        ticks = new SharedTicks(new TickProperties(), registry);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        ticks.shutdown();
+    }
+
+    @Test
+    public void testEverySubscriberCountsFromZero() {
+        Disposable first = ticks.interval(PERIOD).subscribe();
+
+        StepVerifier.create(Flux.interval(Duration.ofMillis(120)).take(1)
+                .thenMany(ticks.interval(PERIOD).take(3)))
+                .expectNext(0L, 1L, 2L)
+                .verifyComplete();
+
+        first.dispose();
+    }
+
+    @Test
+    public void testSubscribersOnTheSamePeriodShareATimer() {
+        Disposable one = ticks.interval(PERIOD).subscribe();
+        Disposable two = ticks.interval(PERIOD).subscribe();
+        Disposable three = ticks.interval(PERIOD.multipliedBy(2)).subscribe();
+
+        assertThat(ticks.periods()).isEqualTo(2);
+        assertThat(ticks.subscribers()).isEqualTo(3);
+        assertThat(registry.get("rsocket.ticks.periods").gauge().value()).isEqualTo(2);
+
+        one.dispose();
+        assertThat(ticks.periods()).isEqualTo(2);
+        two.dispose();
+        three.dispose();
+        assertThat(ticks.periods()).isEqualTo(0);
+        assertThat(ticks.subscribers()).isEqualTo(0);
+    }
+
+    @Test
+    public void testTicksWithoutDemandAreDropped() {
+        StepVerifier.create(ticks.interval(PERIOD), 0)
+                .expectSubscription()
+                .expectNoEvent(PERIOD.multipliedBy(4))
+                .thenRequest(1)
+                .assertNext(index -> assertThat(index).isGreaterThanOrEqualTo(3L))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    public void testPeriodsShorterThanTheTimerTickAreNotShared() {
+        StepVerifier.create(ticks.interval(Duration.ofMillis(1)).take(3))
+                .then(() -> assertThat(ticks.periods()).isEqualTo(0))
+                .expectNext(0L, 1L, 2L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void testInvalidPeriodsAreRejected() {
+        StepVerifier.create(ticks.interval(Duration.ZERO))
+                .verifyError(IllegalArgumentException.class);
+    }
+}